@@ -0,0 +1,129 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of comparing two generated NDJSON address books of 1 million contacts, where the new address book has
+ * every hundredth contact removed, every fiftieth given a new phone number, and a thousand contacts added.
+ * Also compares holding the old address book in a ContactIndex with holding it in a HashMap of Contact objects;
+ * run with the gc profiler to see the difference in allocation, and see the setup output for the memory each one retains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AddressBookDiffBenchmark {
+    private static final int CONTACT_COUNT = 1000000;
+
+    private final AddressBookParser addressBookParser = new AddressBookParser();
+    private File oldAddressBook;
+    private File newAddressBook;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        oldAddressBook = File.createTempFile("old-address-book", ".ndjson");
+        newAddressBook = File.createTempFile("new-address-book", ".ndjson");
+        new AddressBookGenerator(addressBookParser, 0, 0.5, false).generate(oldAddressBook, CONTACT_COUNT);
+        try(ContactReader contactReader = addressBookParser.newContactReader(oldAddressBook);
+            ContactWriter contactWriter = addressBookParser.newContactWriter(newAddressBook)){
+            Contact contact = null;
+            for(int i = 0; i < CONTACT_COUNT; i++){
+                contact = contactReader.nextContact();
+                if(i % 100 == 99){
+                    continue;
+                }
+                if(i % 50 == 0){
+                    contact.setPhone("(555) 000-0000");
+                }
+                contactWriter.writeContact(contact);
+            }
+            for(int i = 0; i < 1000; i++){
+                contact.setCustomerID("N" + i);
+                contactWriter.writeContact(contact);
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long before = usedMemory(runtime);
+        ContactIndex contactIndex = buildContactIndex();
+        System.out.printf("%nContactIndex of %d contacts: %d bytes retained%n", contactIndex.size(), usedMemory(runtime) - before);
+        contactIndex = null;
+        before = usedMemory(runtime);
+        Map<String, Contact> contactMap = buildHashMap();
+        System.out.printf("HashMap of %d contacts: %d bytes retained%n", contactMap.size(), usedMemory(runtime) - before);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        oldAddressBook.delete();
+        newAddressBook.delete();
+    }
+
+    @Benchmark
+    public AddressBookDiff.Summary diff() throws IOException {
+        return new AddressBookDiff(addressBookParser).diff(oldAddressBook, newAddressBook, new AddressBookDiff.Listener() {
+            @Override
+            public void added(Contact contact) {
+            }
+
+            @Override
+            public void removed(Contact contact) {
+            }
+
+            @Override
+            public void modified(Contact oldContact, Contact newContact, List<AddressBookDiff.FieldChange> fieldChanges) {
+            }
+        });
+    }
+
+    @Benchmark
+    public ContactIndex buildContactIndex() throws IOException {
+        ContactIndex contactIndex = new ContactIndex();
+        try(ContactReader contactReader = addressBookParser.newContactReader(oldAddressBook)){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                contactIndex.put(contact);
+            }
+        }
+        return contactIndex;
+    }
+
+    @Benchmark
+    public Map<String, Contact> buildHashMap() throws IOException {
+        Map<String, Contact> contactMap = new HashMap<>();
+        try(ContactReader contactReader = addressBookParser.newContactReader(oldAddressBook)){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                contactMap.put(contact.getCustomerID(), contact);
+            }
+        }
+        return contactMap;
+    }
+
+    private static long usedMemory(Runtime runtime){
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,93 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of reading and writing the same generated address book of 100 thousand contacts in memory in every
+ * AddressBookFormat, to compare the binary Smile and CBOR encodings with XML and JSON.
+ * XML is validated against the schema while it is read and written, as it is in every conversion.
+ * The size of the address book in each format is printed once during setup, as the encoded size is part of the comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class AddressBookFormatBenchmark {
+    private static final int CONTACT_COUNT = 100000;
+
+    @Param({"XML", "JSON", "NDJSON", "SMILE", "CBOR"})
+    public AddressBookFormat format;
+
+    private final AddressBookParser addressBookParser = new AddressBookParser(AddressBookParser.OutputLayout.COMPACT);
+    private final List<Contact> contacts = new ArrayList<>();
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64 * 1024 * 1024);
+    private byte[] addressBook;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File addressBookFile = File.createTempFile("address-book", format.getExtension());
+        try {
+            new AddressBookGenerator(addressBookParser, 0, 0.5, false).generate(addressBookFile, CONTACT_COUNT);
+            addressBook = Files.readAllBytes(addressBookFile.toPath());
+        } finally {
+            addressBookFile.delete();
+        }
+        try(ContactReader contactReader = addressBookParser.newContactReader(new ByteArrayInputStream(addressBook), format)){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                contacts.add(contact);
+            }
+        }
+        System.out.printf("%n%s address book of %d contacts: %d bytes%n", format, CONTACT_COUNT, addressBook.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contacts.clear();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        try(ContactReader contactReader = addressBookParser.newContactReader(new ByteArrayInputStream(addressBook), format)){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                blackhole.consume(contact);
+            }
+        }
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        outputStream.reset();
+        try(ContactWriter contactWriter = addressBookParser.newContactWriter(outputStream, format)){
+            for(Contact contact : contacts){
+                contactWriter.writeContact(contact);
+            }
+        }
+        return outputStream.size();
+    }
+}
@@ -0,0 +1,84 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the conversion and validation hot paths of AddressBookParser,
+ * over generated address books of 10, 10 thousand and 1 million contacts.
+ * Throughput mode reports operations per millisecond, and SampleTime mode reports latency percentiles.
+ * Run with the gc profiler (enabled in build.gradle, or -prof gc) to report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class AddressBookParserBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    public int contactCount;
+
+    private final AddressBookParser addressBookParser = new AddressBookParser();
+    private File xmlAddressBook;
+    private File jsonAddressBook;
+    private File jsonOutputFile;
+    private File xmlOutputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        xmlAddressBook = File.createTempFile("address-book", ".xml");
+        jsonAddressBook = File.createTempFile("address-book", ".json");
+        jsonOutputFile = File.createTempFile("address-book-output", ".json");
+        xmlOutputFile = File.createTempFile("address-book-output", ".xml");
+        AddressBookGenerator addressBookGenerator = new AddressBookGenerator(addressBookParser, 0, 0.5, false);
+        addressBookGenerator.generate(xmlAddressBook, contactCount);
+        addressBookGenerator.generate(jsonAddressBook, contactCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        xmlAddressBook.delete();
+        jsonAddressBook.delete();
+        jsonOutputFile.delete();
+        xmlOutputFile.delete();
+    }
+
+    @Benchmark
+    public File convertXmlAddressBookToJson() throws IOException {
+        addressBookParser.convertXmlAddressBookToJson(xmlAddressBook, jsonOutputFile);
+        return jsonOutputFile;
+    }
+
+    @Benchmark
+    public File convertJsonAddressBookToXml() throws IOException {
+        addressBookParser.convertJsonAddressBookToXml(jsonAddressBook, xmlOutputFile);
+        return xmlOutputFile;
+    }
+
+    @Benchmark
+    public boolean isValidXmlAddressBook() {
+        return addressBookParser.isValidXmlAddressBook(xmlAddressBook);
+    }
+
+    @Benchmark
+    public boolean isValidJsonAddressBook() {
+        return addressBookParser.isValidJsonAddressBook(jsonAddressBook);
+    }
+}
@@ -0,0 +1,81 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of the throughput of BatchConverter on many tiny address books, comparing a fixed pool of
+ * platform threads with one virtual thread per file, at the same bounded concurrency.
+ * The score is the time to convert the whole batch.
+ * Virtual threads need Java 21; on older JVMs VIRTUAL_THREADS falls back to a thread pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchConversionBenchmark {
+    private static final int FILE_COUNT = 500;
+    private static final String TINY_ADDRESS_BOOK = "<AddressBook>\n  <Contact>\n    <CustomerID>ALFKI</CustomerID>\n"
+            + "    <CompanyName>Alfreds Futterkiste</CompanyName>\n    <ContactName>Maria Anders</ContactName>\n"
+            + "    <ContactTitle>Sales Representative</ContactTitle>\n    <Address>Obere Str. 57</Address>\n"
+            + "    <City>Berlin</City>\n    <Email>dummy@gmail.com</Email>\n    <PostalCode>12209</PostalCode>\n"
+            + "    <Country>Germany</Country>\n    <Phone>030-0074321</Phone>\n  </Contact>\n</AddressBook>\n";
+
+    @Param({"PLATFORM_THREADS", "VIRTUAL_THREADS"})
+    public BatchConverter.ExecutionMode executionMode;
+
+    @Param({"8", "64"})
+    public int concurrency;
+
+    private Path workingDirectory;
+    private List<File> inputFiles;
+    private File outputDirectory;
+    private BatchConverter batchConverter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workingDirectory = Files.createTempDirectory("batch-benchmark");
+        Path inputDirectory = Files.createDirectory(workingDirectory.resolve("input"));
+        for(int i = 0; i < FILE_COUNT; i++){
+            Files.write(inputDirectory.resolve("addressBook" + i + ".xml"), TINY_ADDRESS_BOOK.getBytes(StandardCharsets.UTF_8));
+        }
+        inputFiles = BatchConverter.findAddressBooks(inputDirectory.toString());
+        outputDirectory = workingDirectory.resolve("output").toFile();
+        batchConverter = new BatchConverter(new AddressBookParser(), concurrency, executionMode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try(Stream<Path> paths = Files.walk(workingDirectory)){
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public int convertBatch() throws IOException {
+        return batchConverter.convert(inputFiles, outputDirectory).getSuccessCount();
+    }
+}
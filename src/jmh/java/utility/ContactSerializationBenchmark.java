@@ -0,0 +1,134 @@
+package utility;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of writing and reading 10 thousand contacts as JSON in memory, comparing the reflective
+ * Jackson databind path AddressBookParser used to take (an ObjectWriter/ObjectReader per contact)
+ * with the hand-written JsonContactWriter and JsonContactReader, in both output layouts.
+ * Run with the gc profiler (enabled in build.gradle, or -prof gc) to compare the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactSerializationBenchmark {
+    private static final int CONTACT_COUNT = 10000;
+
+    @Param({"INDENTED", "COMPACT"})
+    public AddressBookParser.OutputLayout outputLayout;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final List<Contact> contacts = new ArrayList<>();
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(8 * 1024 * 1024);
+    private ObjectWriter databindContactWriter;
+    private ObjectReader databindContactReader;
+    private byte[] jsonAddressBook;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonMapper jsonMapper = new JsonMapper();
+        if(outputLayout == AddressBookParser.OutputLayout.INDENTED){
+            jsonMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        }
+        databindContactWriter = jsonMapper.writerFor(Contact.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        databindContactReader = jsonMapper.readerFor(Contact.class);
+
+        AddressBookParser addressBookParser = new AddressBookParser(outputLayout);
+        File jsonFile = File.createTempFile("address-book", ".json");
+        try {
+            new AddressBookGenerator(addressBookParser, 0, 0.5, false).generate(jsonFile, CONTACT_COUNT);
+            try(ContactReader contactReader = addressBookParser.newContactReader(jsonFile)){
+                Contact contact;
+                while((contact = contactReader.nextContact()) != null){
+                    contacts.add(contact);
+                }
+            }
+        } finally {
+            jsonFile.delete();
+        }
+        jsonAddressBook = writeStreaming();
+    }
+
+    @Benchmark
+    public byte[] writeDatabind() throws IOException {
+        outputStream.reset();
+        try(JsonGenerator jsonGenerator = databindContactWriter.createGenerator(outputStream, JsonEncoding.UTF8)){
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeFieldName("Contact");
+            jsonGenerator.writeStartArray();
+            for(Contact contact : contacts){
+                databindContactWriter.writeValue(jsonGenerator, contact);
+            }
+            jsonGenerator.writeEndArray();
+            jsonGenerator.writeEndObject();
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeStreaming() throws IOException {
+        outputStream.reset();
+        JsonGenerator jsonGenerator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8);
+        if(outputLayout == AddressBookParser.OutputLayout.INDENTED){
+            jsonGenerator.useDefaultPrettyPrinter();
+        }
+        try(ContactWriter contactWriter = new JsonContactWriter(jsonGenerator)){
+            for(Contact contact : contacts){
+                contactWriter.writeContact(contact);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public void readDatabind(Blackhole blackhole) throws IOException {
+        try(JsonParser jsonParser = databindContactReader.createParser(jsonAddressBook)){
+            while(jsonParser.nextToken() != JsonToken.START_ARRAY){
+                //skip to the start of the "Contact" array
+            }
+            while(jsonParser.nextToken() == JsonToken.START_OBJECT){
+                blackhole.consume(databindContactReader.<Contact>readValue(jsonParser));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readStreaming(Blackhole blackhole) throws IOException {
+        try(ContactReader contactReader = new JsonContactReader(jsonFactory.createParser(jsonAddressBook))){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                blackhole.consume(contact);
+            }
+        }
+    }
+}
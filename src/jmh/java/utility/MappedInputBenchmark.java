@@ -0,0 +1,92 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of reading a large generated XML address book through a FileInputStream compared to
+ * a MappedFileInputStream, both on its own (readAll) and while converting it to JSON.
+ * The JSON is discarded, so only the cost of reading and converting the input is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MappedInputBenchmark {
+
+    @Param({"STREAM", "MAPPED"})
+    public String inputMode;
+
+    @Param({"1000000"})
+    public int contactCount;
+
+    private final AddressBookParser addressBookParser = new AddressBookParser();
+    private final byte[] buffer = new byte[8000];
+    private File xmlAddressBook;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        xmlAddressBook = File.createTempFile("address-book", ".xml");
+        new AddressBookGenerator(addressBookParser, 0, 0.5, false).generate(xmlAddressBook, contactCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        xmlAddressBook.delete();
+    }
+
+    @Benchmark
+    public long readAll() throws IOException {
+        long total = 0;
+        try(InputStream inputStream = openInputStream()){
+            int read;
+            while((read = inputStream.read(buffer)) != -1){
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void convertXmlAddressBookToJson() throws IOException {
+        try(InputStream inputStream = openInputStream()){
+            addressBookParser.convertXmlAddressBookToJson(inputStream, NullOutputStream.INSTANCE);
+        }
+    }
+
+    private InputStream openInputStream() throws IOException {
+        return inputMode.equals("MAPPED") ? new MappedFileInputStream(xmlAddressBook) : new FileInputStream(xmlAddressBook);
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        private static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+        }
+    }
+}
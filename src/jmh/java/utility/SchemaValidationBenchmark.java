@@ -0,0 +1,67 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the per-file latency of validating an XML address book.
+ * compileSchemaPerValidation is how AddressBookParser#isValidXmlAddressBook used to work, compiling ad.xsd
+ * for every file, and isValidXmlAddressBook uses the cached schema and pooled validators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaValidationBenchmark {
+    private final AddressBookParser addressBookParser = new AddressBookParser();
+    private File xmlAddressBook;
+
+    @Setup
+    public void setUp() throws IOException {
+        xmlAddressBook = File.createTempFile("address-book", ".xml");
+        try(InputStream inputStream = getClass().getResourceAsStream("/ad.xml")){
+            Files.copy(inputStream, xmlAddressBook.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        xmlAddressBook.delete();
+    }
+
+    @Benchmark
+    public boolean compileSchemaPerValidation() throws IOException, SAXException {
+        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        Schema addressBookSchema = schemaFactory.newSchema(getClass().getResource("/ad.xsd"));
+        addressBookSchema.newValidator().validate(new StreamSource(xmlAddressBook));
+        return true;
+    }
+
+    @Benchmark
+    public boolean isValidXmlAddressBook() {
+        return addressBookParser.isValidXmlAddressBook(xmlAddressBook);
+    }
+}
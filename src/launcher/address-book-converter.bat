@@ -0,0 +1,28 @@
+@echo off
+rem Launches the address book converter fat jar with the AppCDS archive created by 'gradlew appCds'.
+rem The archive is only valid for the JDK that created it and the jar it was trained on; if either has
+rem changed the JVM silently falls back to a normal start. Extra JVM options may be passed in JAVA_OPTS.
+
+setlocal
+set DIR=%~dp0
+set JAR=
+for %%f in ("%DIR%address-book-converter*-fat-jar.jar") do set JAR=%%f
+set ARCHIVE=%DIR%address-book-converter.jsa
+
+if "%JAR%"=="" (
+    echo Unable to find the address book converter fat jar in %DIR%. Run 'gradlew appCds' first. 1>&2
+    exit /b 1
+)
+
+if defined JAVA_HOME (
+    set JAVA="%JAVA_HOME%\bin\java"
+) else (
+    set JAVA=java
+)
+
+if exist "%ARCHIVE%" (
+    %JAVA% -XX:SharedArchiveFile="%ARCHIVE%" -Xshare:auto -Xlog:cds=off -Xlog:cds+dynamic=off %JAVA_OPTS% -jar "%JAR%" %*
+) else (
+    %JAVA% %JAVA_OPTS% -jar "%JAR%" %*
+)
+exit /b %ERRORLEVEL%
@@ -3,11 +3,17 @@ import utility.CommandLineHandler;
 /**
  * Main entry point for the application.
  * If there are no arguments passed in the main method, then it will launch in "interactive mode".
+ * If the first argument is --client, it will send the request to a running address book server.
  * Otherwise, it will launch in command line option mode.
  */
 public class Main {
 
     public static void main(String[] args){
+        if(args.length > 0 && args[0].equals("--client")){
+            CommandLineHandler.clientMode(args);
+            return;
+        }
+
         CommandLineHandler commandLineHandler = new CommandLineHandler();
         if(args.length == 0){
             commandLineHandler.interactiveMode();
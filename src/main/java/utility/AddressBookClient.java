@@ -0,0 +1,115 @@
+package utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Thin client for AddressBookServer. It only uses the JDK, so it starts much faster than
+ * loading Jackson and Woodstox to do the conversion in the calling JVM.
+ * File paths are sent to the server as absolute paths, so the client and server do not need the same working directory.
+ * Every request carries the token read from the server's token file, so the client must run as the same user as the server.
+ * @see utility.AddressBookServer
+ */
+public final class AddressBookClient {
+    private final String baseUrl;
+    private final String token;
+
+    /**
+     * Creates a client for a server whose token file is kept in AddressBookServer#DEFAULT_TOKEN_DIRECTORY.
+     * @param port int: port the AddressBookServer is listening on
+     * @throws IOException if the token file of the server could not be read
+     */
+    public AddressBookClient(int port) throws IOException {
+        this(port, AddressBookServer.DEFAULT_TOKEN_DIRECTORY);
+    }
+
+    /**
+     * @param port int: port the AddressBookServer is listening on
+     * @param tokenDirectory File: directory the server wrote its token file to
+     * @throws IOException if the token file of the server could not be read
+     */
+    public AddressBookClient(int port, File tokenDirectory) throws IOException {
+        this.baseUrl = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port;
+        File tokenFile = AddressBookServer.tokenFileFor(tokenDirectory, port);
+        if(!tokenFile.isFile()){
+            throw new IOException("No address book server is running on port " + port + ", its token file does not exist: " + tokenFile.getAbsolutePath());
+        }
+        this.token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.US_ASCII).trim();
+    }
+
+    /**
+     * Method to ask the server to convert an .xml, .json, .ndjson, .smile or .cbor address book to another of those formats.
+     * @param inputFile File: address book to convert
+     * @param outputFile File: output file for the conversion
+     * @return String: the message from the server
+     * @throws InvalidAddressBookException if the given input file is not a valid address book
+     * @throws IOException if the server could not be reached or the conversion failed
+     */
+    public String convert(File inputFile, File outputFile) throws IOException {
+        return post("/convert?input=" + encode(inputFile) + "&output=" + encode(outputFile));
+    }
+
+    /**
+     * Method to ask the server whether the given .xml, .json, .ndjson, .smile or .cbor file is a valid address book.
+     * @param inputFile File: file to validate the schema
+     * @return true if the file is a valid address book, otherwise false
+     * @throws IOException if the server could not be reached
+     */
+    public boolean validate(File inputFile) throws IOException {
+        return Boolean.parseBoolean(post("/validate?input=" + encode(inputFile)));
+    }
+
+    /**
+     * Method to ask the server to stop.
+     * @throws IOException if the server could not be reached
+     */
+    public void shutdown() throws IOException {
+        post("/shutdown");
+    }
+
+    private String post(String pathAndQuery) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + pathAndQuery).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty(AddressBookServer.TOKEN_HEADER, token);
+            int statusCode = connection.getResponseCode();
+            String responseBody = readAll((statusCode >= 400) ? connection.getErrorStream() : connection.getInputStream());
+            if(statusCode == 422){
+                throw new InvalidAddressBookException(responseBody);
+            }
+            if(statusCode != 200){
+                throw new IOException(responseBody);
+            }
+            return responseBody;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String encode(File file) throws IOException {
+        return URLEncoder.encode(file.getAbsolutePath(), "UTF-8");
+    }
+
+    private static String readAll(InputStream inputStream) throws IOException {
+        if(inputStream == null){
+            return "";
+        }
+        try(InputStream responseStream = inputStream){
+            ByteArrayOutputStream responseBytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while((read = responseStream.read(buffer)) != -1){
+                responseBytes.write(buffer, 0, read);
+            }
+            return new String(responseBytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package utility;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Class to find the contacts that were added, removed or modified between two address books, matched by CustomerID.
+ * The address books may be in any format AddressBookParser reads (e.g. yesterday's XML export and today's JSON).
+ *
+ * The old address book is read once into a compact ContactIndex, and the new address book is streamed past it
+ * one contact at a time, so memory use is proportional to the old address book only.
+ * Added and modified contacts are reported in the order of the new address book, followed by the removed contacts
+ * in the order of the old address book. CustomerIDs are expected to be unique; if one appears more than once in the
+ * old address book, its last contact is the one compared.
+ */
+public final class AddressBookDiff {
+    private final AddressBookParser addressBookParser;
+
+    /**
+     * Receives the differences found by AddressBookDiff, as they are found.
+     */
+    public interface Listener {
+        /**
+         * @param contact Contact: contact of the new address book whose CustomerID is not in the old one
+         * @throws IOException if the change could not be handled, which stops the diff
+         */
+        void added(Contact contact) throws IOException;
+
+        /**
+         * @param contact Contact: contact of the old address book whose CustomerID is not in the new one
+         * @throws IOException if the change could not be handled, which stops the diff
+         */
+        void removed(Contact contact) throws IOException;
+
+        /**
+         * @param oldContact Contact: the contact in the old address book
+         * @param newContact Contact: the contact with the same CustomerID in the new address book
+         * @param fieldChanges List of FieldChange: the fields that differ, in schema order
+         * @throws IOException if the change could not be handled, which stops the diff
+         */
+        void modified(Contact oldContact, Contact newContact, List<FieldChange> fieldChanges) throws IOException;
+    }
+
+    /**
+     * A field of a contact whose value differs between the two address books.
+     */
+    public static final class FieldChange {
+        private final String fieldName;
+        private final String oldValue;
+        private final String newValue;
+
+        FieldChange(String fieldName, String oldValue, String newValue){
+            this.fieldName = fieldName;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /**
+         * @return String: element name of the field, e.g. "Phone"
+         */
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        /**
+         * @return String: value in the old address book, null if the field was left out
+         */
+        public String getOldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return String: value in the new address book, null if the field is left out
+         */
+        public String getNewValue() {
+            return newValue;
+        }
+    }
+
+    /**
+     * Number of contacts of each kind of difference.
+     */
+    public static final class Summary {
+        private final long addedCount;
+        private final long removedCount;
+        private final long modifiedCount;
+        private final long unchangedCount;
+
+        Summary(long addedCount, long removedCount, long modifiedCount, long unchangedCount){
+            this.addedCount = addedCount;
+            this.removedCount = removedCount;
+            this.modifiedCount = modifiedCount;
+            this.unchangedCount = unchangedCount;
+        }
+
+        public long getAddedCount() {
+            return addedCount;
+        }
+
+        public long getRemovedCount() {
+            return removedCount;
+        }
+
+        public long getModifiedCount() {
+            return modifiedCount;
+        }
+
+        public long getUnchangedCount() {
+            return unchangedCount;
+        }
+
+        @Override
+        public String toString() {
+            return addedCount + " added, " + removedCount + " removed, " + modifiedCount + " modified, " + unchangedCount + " unchanged";
+        }
+    }
+
+    /**
+     * @param addressBookParser AddressBookParser: parser used to read both address books
+     */
+    public AddressBookDiff(AddressBookParser addressBookParser){
+        this.addressBookParser = addressBookParser;
+    }
+
+    /**
+     * Method to compare the given address books, passing every difference to the given listener.
+     * @param oldAddressBook File: the earlier address book, which is held in memory
+     * @param newAddressBook File: the later address book, which is streamed
+     * @param listener Listener: receives the added, removed and modified contacts
+     * @return Summary: the number of contacts of each kind
+     * @throws IOException if either address book could not be read or is invalid, or the listener failed
+     */
+    public Summary diff(File oldAddressBook, File newAddressBook, Listener listener) throws IOException {
+        ContactIndex oldContacts = new ContactIndex();
+        try(ContactReader contactReader = addressBookParser.newContactReader(oldAddressBook)){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                oldContacts.put(contact);
+            }
+        }
+
+        BitSet matchedEntries = new BitSet(oldContacts.size());
+        long addedCount = 0;
+        long modifiedCount = 0;
+        long unchangedCount = 0;
+        try(ContactReader contactReader = addressBookParser.newContactReader(newAddressBook)){
+            Contact newContact;
+            while((newContact = contactReader.nextContact()) != null){
+                int entry = oldContacts.indexOf(newContact.getCustomerID());
+                if(entry < 0){
+                    addedCount++;
+                    listener.added(newContact);
+                    continue;
+                }
+                matchedEntries.set(entry);
+                //Most contacts are usually unchanged, and are compared without decoding the old contact
+                if(oldContacts.isStored(entry, newContact)){
+                    unchangedCount++;
+                    continue;
+                }
+                Contact oldContact = oldContacts.get(entry);
+                modifiedCount++;
+                listener.modified(oldContact, newContact, compare(oldContact, newContact));
+            }
+        }
+
+        long removedCount = 0;
+        for(int entry = matchedEntries.nextClearBit(0); entry < oldContacts.size(); entry = matchedEntries.nextClearBit(entry + 1)){
+            removedCount++;
+            listener.removed(oldContacts.get(entry));
+        }
+        return new Summary(addedCount, removedCount, modifiedCount, unchangedCount);
+    }
+
+    /**
+     * Method to compare the given address books, writing every difference to the given stream as NDJSON,
+     * one change per line:
+     *      {"change":"added","CustomerID":"...","Contact":{...}}
+     *      {"change":"removed","CustomerID":"...","Contact":{...}}
+     *      {"change":"modified","CustomerID":"...","Fields":{"Phone":{"old":"...","new":"..."}}}
+     * A field that was added or left out has a null old or new value. The stream is not closed, but is flushed.
+     * @param oldAddressBook File: the earlier address book, which is held in memory
+     * @param newAddressBook File: the later address book, which is streamed
+     * @param outputStream OutputStream: destination of the changes
+     * @return Summary: the number of contacts of each kind
+     * @throws IOException if either address book could not be read or is invalid, or the changes could not be written
+     */
+    public Summary diff(File oldAddressBook, File newAddressBook, OutputStream outputStream) throws IOException {
+        try(NdjsonChangeWriter changeWriter = new NdjsonChangeWriter(NonClosingStreams.wrap(outputStream))){
+            return diff(oldAddressBook, newAddressBook, changeWriter);
+        }
+    }
+
+    /**
+     * Method to find the fields that differ between two contacts.
+     * @param oldContact Contact: contact of the old address book
+     * @param newContact Contact: contact of the new address book
+     * @return List of FieldChange: the differing fields in schema order
+     */
+    private static List<FieldChange> compare(Contact oldContact, Contact newContact){
+        List<FieldChange> fieldChanges = new ArrayList<>(2);
+        for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+            String oldValue = field.get(oldContact);
+            String newValue = field.get(newContact);
+            if(!Objects.equals(oldValue, newValue)){
+                fieldChanges.add(new FieldChange(field.getElementName(), oldValue, newValue));
+            }
+        }
+        return fieldChanges;
+    }
+
+    /**
+     * Listener that writes each change as a line of NDJSON.
+     */
+    private static final class NdjsonChangeWriter implements Listener, AutoCloseable {
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        private final JsonGenerator jsonGenerator;
+
+        private NdjsonChangeWriter(OutputStream outputStream) throws IOException {
+            jsonGenerator = JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8);
+            jsonGenerator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        public void added(Contact contact) throws IOException {
+            writeContactChange("added", contact);
+        }
+
+        @Override
+        public void removed(Contact contact) throws IOException {
+            writeContactChange("removed", contact);
+        }
+
+        @Override
+        public void modified(Contact oldContact, Contact newContact, List<FieldChange> fieldChanges) throws IOException {
+            writeChangeStart("modified", newContact);
+            jsonGenerator.writeObjectFieldStart("Fields");
+            for(FieldChange fieldChange : fieldChanges){
+                jsonGenerator.writeObjectFieldStart(fieldChange.getFieldName());
+                jsonGenerator.writeStringField("old", fieldChange.getOldValue());
+                jsonGenerator.writeStringField("new", fieldChange.getNewValue());
+                jsonGenerator.writeEndObject();
+            }
+            jsonGenerator.writeEndObject();
+            writeChangeEnd();
+        }
+
+        private void writeContactChange(String change, Contact contact) throws IOException {
+            writeChangeStart(change, contact);
+            jsonGenerator.writeFieldName("Contact");
+            JsonContactWriter.writeContact(jsonGenerator, contact);
+            writeChangeEnd();
+        }
+
+        private void writeChangeStart(String change, Contact contact) throws IOException {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeStringField("change", change);
+            jsonGenerator.writeStringField("CustomerID", contact.getCustomerID());
+        }
+
+        private void writeChangeEnd() throws IOException {
+            jsonGenerator.writeEndObject();
+            jsonGenerator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            jsonGenerator.close();
+        }
+    }
+}
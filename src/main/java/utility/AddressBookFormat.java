@@ -0,0 +1,49 @@
+package utility;
+
+/**
+ * Enum of the formats an address book can be stored in, chosen by the extension of its file name
+ * (ignoring any compression extension, e.g. "ad.ndjson.gz" is an NDJSON address book).
+ * The binary formats are smaller and faster to read than XML and JSON, for address books kept between steps of a pipeline.
+ */
+public enum AddressBookFormat {
+    /** A single &lt;AddressBook&gt; document following /src/main/resources/ad.xsd. */
+    XML(".xml"),
+    /** A single {"Contact":[...]} document. */
+    JSON(".json"),
+    /** Newline delimited JSON (JSON Lines): one Contact object per line, with no enclosing document. */
+    NDJSON(".ndjson", ".jsonl"),
+    /** The same document as JSON in Jackson's binary Smile encoding, with repeated names and short values written once. */
+    SMILE(".smile"),
+    /** The same document as JSON in the binary CBOR encoding (RFC 8949). */
+    CBOR(".cbor");
+
+    private final String[] extensions;
+
+    AddressBookFormat(String... extensions){
+        this.extensions = extensions;
+    }
+
+    /**
+     * Method to find the format of a file by its extension.
+     * @param fileName String: name of the file, e.g. "ad.xml" or "ad.ndjson.gz"
+     * @return AddressBookFormat: the format of the file, or null if the extension is not a known format
+     */
+    public static AddressBookFormat forFileName(String fileName){
+        String uncompressedFileName = Compression.stripExtension(fileName);
+        for(AddressBookFormat format : values()){
+            for(String extension : format.extensions){
+                if(uncompressedFileName.endsWith(extension)){
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return String: the extension files of this format are written with, e.g. ".xml"
+     */
+    public String getExtension() {
+        return extensions[0];
+    }
+}
@@ -0,0 +1,130 @@
+package utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Class to generate synthetic address books for load testing and benchmarks.
+ * Address books are written one contact at a time in XML, JSON, NDJSON, Smile or CBOR (chosen by the output file extension),
+ * so the memory used is constant no matter how many contacts are generated.
+ * The generated address books are always valid according to /src/main/resources/ad.xsd, and generating with the
+ * same seed, density and Unicode setting always produces the same contacts. The XML and JSON address books
+ * generated with the same settings convert to each other exactly.
+ */
+public final class AddressBookGenerator {
+    private static final String[] FIRST_NAMES = {"Maria", "Ana", "Antonio", "Thomas", "Christina", "Hanna", "Frédérique",
+            "Martín", "Laurence", "Elizabeth", "Victoria", "Patricio", "Francisco", "Yang", "Pedro"};
+    private static final String[] UNICODE_FIRST_NAMES = {"Zoë", "Søren", "Łukasz", "Ярослав", "Δημήτρης", "محمد", "李娜",
+            "さくら", "김민준", "Nguyễn", "Ọlálékan", "𠜎𠜱", "Ævar", "Şebnem", "דוד"};
+    private static final String[] LAST_NAMES = {"Anders", "Trujillo", "Moreno", "Hardy", "Berglund", "Moos", "Citeaux",
+            "Sommer", "Lebihan", "Lincoln", "Ashworth", "Simpson", "Chang", "Afonso", "Wong"};
+    private static final String[] UNICODE_LAST_NAMES = {"Müller", "Øvergård", "Wójcik", "Смирнов", "Παπαδόπουλος", "العلي",
+            "王", "佐藤", "박", "Trần", "Ìṣọ̀lá", "𡈽𡌛", "Þórsson", "Yılmaz", "כהן"};
+    private static final String[] COMPANY_WORDS = {"Alfreds", "Futterkiste", "Trading", "Handel", "Export", "Market",
+            "Delicatessen", "Foods", "Imports", "Supplies", "Emporium", "Wholesale"};
+    private static final String[] UNICODE_COMPANY_WORDS = {"Großhandel", "Épicerie", "Торговый дом", "Εταιρεία", "شركة",
+            "株式会社", "商贸", "회사", "Cửa hàng", "Ça va", "𠀋商店", "Søstrene"};
+    private static final String[] TITLES = {"Owner", "Sales Representative", "Marketing Manager", "Accounting Manager",
+            "Order Administrator", "Sales Agent", "Sales Associate", "Marketing Assistant"};
+    private static final String[] UNICODE_TITLES = {"Geschäftsführer", "Directeur général", "Директор", "Διευθυντής",
+            "مدير المبيعات", "営業担当", "销售经理", "영업 담당자"};
+    private static final String[] STREETS = {"Obere Str.", "Mataderos", "Berkeley Gardens", "Avda. de la Constitución",
+            "Walserweg", "Fauntleroy Circus", "Berguvsvägen", "Forsterstr.", "Keskuskatu"};
+    private static final String[] UNICODE_STREETS = {"Königsallee", "Rue de l’Église", "улица Ленина", "οδός Ερμού",
+            "شارع الملك", "銀座通り", "세종대로", "Đường Lê Lợi", "Å gata"};
+    private static final String[][] CITIES_AND_COUNTRIES = {{"Berlin", "Germany"}, {"México D.F.", "Mexico"},
+            {"London", "UK"}, {"Luleå", "Sweden"}, {"Mannheim", "Germany"}, {"Strasbourg", "France"},
+            {"Madrid", "Spain"}, {"Marseille", "France"}, {"Tsawassen", "Canada"}, {"Buenos Aires", "Argentina"}};
+    private static final String[][] UNICODE_CITIES_AND_COUNTRIES = {{"Zürich", "Schweiz"}, {"Москва", "Россия"},
+            {"Αθήνα", "Ελλάδα"}, {"القاهرة", "مصر"}, {"東京", "日本"}, {"서울", "대한민국"}, {"São Paulo", "Brasil"},
+            {"Hà Nội", "Việt Nam"}, {"Reykjavík", "Ísland"}, {"תל אביב", "ישראל"}};
+    private static final String[] REGIONS = {"BC", "SP", "RJ", "OR", "WA", "Isle of Wight", "Co. Cork", "NM"};
+    private static final String[] UNICODE_REGIONS = {"Île-de-France", "Bayern", "Québec", "Κρήτη", "Татарстан",
+            "北海道", "경기도", "Ñuble"};
+
+    private final AddressBookParser addressBookParser;
+    private final long seed;
+    private final double optionalFieldDensity;
+    private final boolean unicodeHeavy;
+
+    /**
+     * @param addressBookParser AddressBookParser: parser used to write (and, for XML, validate) the address book
+     * @param seed long: seed of the random generator, so the same address book can be generated again
+     * @param optionalFieldDensity double: probability (0 to 1) that each of the optional PostalCode, Fax and Region fields is present
+     * @param unicodeHeavy boolean: if true, names, addresses, cities and countries are drawn from many scripts,
+     *                     including characters outside the Basic Multilingual Plane
+     */
+    public AddressBookGenerator(AddressBookParser addressBookParser, long seed, double optionalFieldDensity, boolean unicodeHeavy){
+        if(optionalFieldDensity < 0 || optionalFieldDensity > 1){
+            throw new IllegalArgumentException("Optional field density must be between 0 and 1.");
+        }
+        this.addressBookParser = addressBookParser;
+        this.seed = seed;
+        this.optionalFieldDensity = optionalFieldDensity;
+        this.unicodeHeavy = unicodeHeavy;
+    }
+
+    /**
+     * Method to generate an address book with the given number of contacts.
+     * @param outputFile File: .xml, .json, .ndjson, .smile or .cbor file to write the address book to
+     * @param contactCount long: number of contacts to generate
+     * @throws IOException if the address book could not be written
+     */
+    public void generate(File outputFile, long contactCount) throws IOException {
+        if(contactCount < 0){
+            throw new IllegalArgumentException("Contact count must not be negative.");
+        }
+        Random random = new Random(seed);
+        try(ContactWriter contactWriter = addressBookParser.newContactWriter(outputFile)){
+            for(long i = 0; i < contactCount; i++){
+                contactWriter.writeContact(generateContact(random, i));
+            }
+        }
+    }
+
+    /**
+     * Method to generate the contact at the given position of the address book.
+     * @param random Random: source of the contact's values
+     * @param index long: position of the contact, used to give every contact a unique CustomerID
+     * @return Contact: the generated contact
+     */
+    private Contact generateContact(Random random, long index){
+        String[] cityAndCountry = pick(random, CITIES_AND_COUNTRIES, UNICODE_CITIES_AND_COUNTRIES);
+        String firstName = pick(random, FIRST_NAMES, UNICODE_FIRST_NAMES);
+
+        Contact contact = new Contact();
+        contact.setCustomerID(String.format("C%07d", index));
+        contact.setCompanyName(pick(random, COMPANY_WORDS, UNICODE_COMPANY_WORDS) + " " + pick(random, COMPANY_WORDS, UNICODE_COMPANY_WORDS));
+        contact.setContactName(firstName + " " + pick(random, LAST_NAMES, UNICODE_LAST_NAMES));
+        contact.setContactTitle(pick(random, TITLES, UNICODE_TITLES));
+        contact.setAddress(pick(random, STREETS, UNICODE_STREETS) + " " + (1 + random.nextInt(9999)));
+        contact.setCity(cityAndCountry[0]);
+        contact.setEmail("contact" + index + "@example.com");
+        if(random.nextDouble() < optionalFieldDensity){
+            contact.setPostalCode(digits(random, 5));
+        }
+        contact.setCountry(cityAndCountry[1]);
+        contact.setPhone("(" + digits(random, 3) + ") " + digits(random, 3) + "-" + digits(random, 4));
+        if(random.nextDouble() < optionalFieldDensity){
+            contact.setFax("(" + digits(random, 3) + ") " + digits(random, 3) + "-" + digits(random, 4));
+        }
+        if(random.nextDouble() < optionalFieldDensity){
+            contact.setRegion(pick(random, REGIONS, UNICODE_REGIONS));
+        }
+        return contact;
+    }
+
+    private <T> T pick(Random random, T[] values, T[] unicodeValues){
+        T[] pool = unicodeHeavy ? unicodeValues : values;
+        return pool[random.nextInt(pool.length)];
+    }
+
+    private static String digits(Random random, int count){
+        char[] digits = new char[count];
+        for(int i = 0; i < count; i++){
+            digits[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(digits);
+    }
+}
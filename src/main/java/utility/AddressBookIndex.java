@@ -0,0 +1,620 @@
+package utility;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sidecar index of a large address book, to look up single contacts without reading the whole file.
+ * build() reads the address book once and writes "[address book].idx" next to it, recording the byte range of every
+ * &lt;Contact&gt; element (or element of the "Contact" array, or line of NDJSON) keyed by its CustomerID, and by any other
+ * fields asked for, e.g. Country or City. open() memory-maps the index: a lookup binary searches the sorted keys,
+ * reads only the bytes of the matching contacts from the address book and parses each of them on its own.
+ * An XML contact is wrapped in everything before the first contact of the file and the &lt;/AddressBook&gt; end tag,
+ * so it is validated against the schema like a complete address book.
+ *
+ * The index records the size and modification time of the address book, and refuses to open once either has changed.
+ * Only uncompressed XML (in UTF-8), JSON and NDJSON address books can be indexed, as a compressed file cannot be read
+ * from an offset, and a Smile contact may refer back to strings earlier in the file.
+ * An open index can be used by several threads at once.
+ *
+ * The index file is big-endian:
+ *      header: magic, version, size and modification time of the address book, its format, the bytes every contact is wrapped in,
+ *          the number of contacts, and the start (long) and length (int) of every contact in file order
+ *      one key section per field: field name, number of distinct keys and of postings, key offsets and posting starts
+ *          (one more than the keys), postings (contact numbers grouped by key, in file order), and the keys as UTF-8 sorted by unsigned bytes
+ */
+public final class AddressBookIndex implements Closeable {
+    public static final String EXTENSION = ".idx";
+    private static final int MAGIC = 0x41424958;
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] XML_RECORD_SUFFIX = "</AddressBook>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_RECORD_PREFIX = "{\"Contact\":[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_RECORD_SUFFIX = "]}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final AddressBookParser addressBookParser;
+    private final File addressBook;
+    private final ByteBuffer index;
+    private final AddressBookFormat format;
+    private final byte[] recordPrefix;
+    private final byte[] recordSuffix;
+    private final int contactCount;
+    private final int recordsPosition;
+    private final Map<ContactField, KeySection> keySections = new LinkedHashMap<>();
+    private final FileChannel addressBookChannel;
+
+    private AddressBookIndex(AddressBookParser addressBookParser, File addressBook, File indexFile) throws IOException {
+        this.addressBookParser = addressBookParser;
+        this.addressBook = addressBook;
+        try(FileChannel indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)){
+            if(indexChannel.size() > Integer.MAX_VALUE){
+                throw new IOException("Address book index is too large to be mapped: " + indexFile.getPath());
+            }
+            index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+        }
+
+        try {
+            if(index.getInt() != MAGIC || index.getInt() != VERSION){
+                throw new IOException("Not an address book index: " + indexFile.getPath());
+            }
+            if(index.getLong() != addressBook.length() || index.getLong() != addressBook.lastModified()){
+                throw new IOException("Address book has changed since it was indexed, build its index again: " + addressBook.getPath());
+            }
+            format = AddressBookFormat.valueOf(new String(readBytes(index), StandardCharsets.UTF_8));
+            recordPrefix = readBytes(index);
+            recordSuffix = readBytes(index);
+            contactCount = index.getInt();
+            recordsPosition = index.position();
+            index.position(recordsPosition + RECORD_SIZE * contactCount);
+            int fieldCount = index.getInt();
+            for(int i = 0; i < fieldCount; i++){
+                String fieldName = new String(readBytes(index), StandardCharsets.UTF_8);
+                ContactField field = ContactField.forElementName(fieldName);
+                if(field == null){
+                    throw new IOException("Unknown field " + fieldName + " in address book index: " + indexFile.getPath());
+                }
+                keySections.put(field, new KeySection(index));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Invalid address book index: " + indexFile.getPath(), e);
+        }
+        addressBookChannel = FileChannel.open(addressBook.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Method to find the index file of an address book.
+     * @param addressBook File: address book
+     * @return File: the index file next to it, named after it with the .idx extension added
+     */
+    public static File indexFileFor(File addressBook){
+        return new File(addressBook.getPath() + EXTENSION);
+    }
+
+    /**
+     * Method to read the given address book and write its index next to it, replacing any index it already has.
+     * XML address books are validated against the schema as they are read, so only valid address books are indexed.
+     * @param addressBookParser AddressBookParser: parser used to read the address book
+     * @param addressBook File: uncompressed .xml, .json or .ndjson address book to index
+     * @param fieldNames List of String: element names of the fields to index besides CustomerID (e.g. Country and City), may be empty
+     * @return int: number of contacts indexed
+     * @throws IOException if the address book could not be read, is invalid or cannot be indexed, or the index could not be written
+     * @throws IllegalArgumentException if a field name is not part of a Contact
+     */
+    public static int build(AddressBookParser addressBookParser, File addressBook, List<String> fieldNames) throws IOException {
+        AddressBookFormat format = requireIndexableFormat(addressBook);
+        List<ContactField> fields = indexedFields(fieldNames);
+        List<String> indexedFieldNames = new ArrayList<>();
+        for(ContactField field : fields){
+            indexedFieldNames.add(field.getElementName());
+        }
+        long size = addressBook.length();
+        long lastModified = addressBook.lastModified();
+
+        //Start and end of every contact, and the values of its indexed fields
+        long[] offsets = new long[2 * 1024];
+        List<KeyCollector> keyCollectors = new ArrayList<>();
+        for(int f = 0; f < fields.size(); f++){
+            keyCollectors.add(new KeyCollector());
+        }
+        int contactCount = 0;
+        try(InputStream inputStream = addressBookParser.openInputStream(addressBook);
+            ContactReader contactReader = addressBookParser.newContactReader(inputStream, format, new ContactQuery(null, indexedFieldNames))){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                if(2 * contactCount == offsets.length){
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[2 * contactCount] = contactReader.getContactStart();
+                offsets[2 * contactCount + 1] = contactReader.getContactEnd();
+                if(offsets[2 * contactCount] < 0 || offsets[2 * contactCount + 1] < 0){
+                    throw new IOException("Could not find where the contacts of the address book are stored: " + addressBook.getPath());
+                }
+                for(int f = 0; f < fields.size(); f++){
+                    keyCollectors.get(f).add(contactCount, fields.get(f).get(contact));
+                }
+                contactCount++;
+            }
+        }
+
+        byte[] recordPrefix = new byte[0];
+        byte[] recordSuffix = new byte[0];
+        if(format == AddressBookFormat.XML){
+            toByteOffsets(addressBook, offsets, 2 * contactCount);
+            recordPrefix = readPrologue(addressBook, (contactCount == 0) ? 0 : offsets[0]);
+            recordSuffix = XML_RECORD_SUFFIX;
+        }
+        else if(format == AddressBookFormat.JSON){
+            recordPrefix = JSON_RECORD_PREFIX;
+            recordSuffix = JSON_RECORD_SUFFIX;
+        }
+        if(addressBook.length() != size || addressBook.lastModified() != lastModified){
+            throw new IOException("Address book changed while it was indexed: " + addressBook.getPath());
+        }
+
+        File indexFile = indexFileFor(addressBook);
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        try(DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE))){
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeLong(size);
+            outputStream.writeLong(lastModified);
+            writeBytes(outputStream, format.name().getBytes(StandardCharsets.UTF_8));
+            writeBytes(outputStream, recordPrefix);
+            writeBytes(outputStream, recordSuffix);
+            outputStream.writeInt(contactCount);
+            for(int i = 0; i < contactCount; i++){
+                outputStream.writeLong(offsets[2 * i]);
+                outputStream.writeInt(Math.toIntExact(offsets[2 * i + 1] - offsets[2 * i]));
+            }
+            outputStream.writeInt(fields.size());
+            for(int f = 0; f < fields.size(); f++){
+                writeBytes(outputStream, fields.get(f).getElementName().getBytes(StandardCharsets.UTF_8));
+                keyCollectors.get(f).write(outputStream, contactCount);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile.toPath());
+            throw e;
+        }
+        try {
+            Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return contactCount;
+    }
+
+    /**
+     * Method to open the index of the given address book, built by build().
+     * @param addressBookParser AddressBookParser: parser used to read the contacts that are looked up
+     * @param addressBook File: indexed address book
+     * @return AddressBookIndex: the open index, to be closed when no longer needed
+     * @throws IOException if there is no index, it could not be read, or the address book has changed since it was built
+     */
+    public static AddressBookIndex open(AddressBookParser addressBookParser, File addressBook) throws IOException {
+        File indexFile = indexFileFor(addressBook);
+        if(!indexFile.isFile()){
+            throw new IOException("Address book has not been indexed: " + addressBook.getPath());
+        }
+        return new AddressBookIndex(addressBookParser, addressBook, indexFile);
+    }
+
+    /**
+     * @return int: number of contacts in the address book
+     */
+    public int getContactCount() {
+        return contactCount;
+    }
+
+    /**
+     * @return List of String: element names of the indexed fields, starting with CustomerID
+     */
+    public List<String> getFieldNames() {
+        List<String> fieldNames = new ArrayList<>();
+        for(ContactField field : keySections.keySet()){
+            fieldNames.add(field.getElementName());
+        }
+        return fieldNames;
+    }
+
+    /**
+     * Method to look up a contact by its CustomerID.
+     * @param customerID String: CustomerID of the contact
+     * @return Contact: the contact, or the first one in the address book if several have the CustomerID, or null if there is none
+     * @throws IOException if the contact could not be read from the address book, or is invalid
+     */
+    public Contact lookup(String customerID) throws IOException {
+        List<Contact> contacts = lookup(ContactField.CUSTOMER_ID.getElementName(), customerID);
+        return contacts.isEmpty() ? null : contacts.get(0);
+    }
+
+    /**
+     * Method to look up every contact with the given value of an indexed field.
+     * @param fieldName String: element name of an indexed field, e.g. Country
+     * @param value String: value of the field to look for. A contact that leaves out the field is never found.
+     * @return List of Contact: the contacts with the value, in the order of the address book, empty if there are none
+     * @throws IOException if a contact could not be read from the address book, or is invalid
+     * @throws IllegalArgumentException if the field is not indexed
+     */
+    public List<Contact> lookup(String fieldName, String value) throws IOException {
+        ContactField field = ContactField.forElementName(fieldName);
+        KeySection keySection = (field == null) ? null : keySections.get(field);
+        if(keySection == null){
+            throw new IllegalArgumentException("Address book is not indexed by " + fieldName + ", only by " + String.join(", ", getFieldNames()));
+        }
+        List<Contact> contacts = new ArrayList<>();
+        int key = (value == null) ? -1 : keySection.find(ContactIndex.encode(value));
+        if(key < 0){
+            return contacts;
+        }
+        for(int posting = keySection.getPostingStart(key); posting < keySection.getPostingStart(key + 1); posting++){
+            Contact contact = readContact(keySection.getContactNumber(posting));
+            if(!value.equals(field.get(contact))){
+                throw new IOException("Address book index does not match the address book, build it again: " + addressBook.getPath());
+            }
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    /**
+     * Method to read a single contact from its byte range in the address book, wrapped so it can be parsed on its own.
+     * @param contactNumber int: position of the contact in the address book, from 0
+     * @return Contact: the contact
+     * @throws IOException if the contact could not be read, or is invalid
+     */
+    private Contact readContact(int contactNumber) throws IOException {
+        int recordPosition = recordsPosition + RECORD_SIZE * contactNumber;
+        long start = index.getLong(recordPosition);
+        int length = index.getInt(recordPosition + Long.BYTES);
+
+        byte[] record = new byte[recordPrefix.length + length + recordSuffix.length];
+        System.arraycopy(recordPrefix, 0, record, 0, recordPrefix.length);
+        System.arraycopy(recordSuffix, 0, record, recordPrefix.length + length, recordSuffix.length);
+        ByteBuffer buffer = ByteBuffer.wrap(record, recordPrefix.length, length);
+        while(buffer.hasRemaining()){
+            if(addressBookChannel.read(buffer, start + buffer.position() - recordPrefix.length) < 0){
+                throw new IOException("Address book ends before contact #" + (contactNumber + 1) + " of its index: " + addressBook.getPath());
+            }
+        }
+
+        try(ContactReader contactReader = addressBookParser.newContactReader(new ByteArrayInputStream(record), format)){
+            Contact contact = contactReader.nextContact();
+            if(contact == null){
+                throw new InvalidAddressBookException("No contact found at byte " + start + " of " + addressBook.getPath());
+            }
+            return contact;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        //The mapped index is released by the garbage collector
+        addressBookChannel.close();
+    }
+
+    private static AddressBookFormat requireIndexableFormat(File addressBook) throws IOException {
+        if(!addressBook.isFile()){
+            throw new IOException("Invalid address book given: " + addressBook.getAbsolutePath());
+        }
+        AddressBookFormat format = AddressBookFormat.forFileName(addressBook.getName());
+        if(Compression.forFileName(addressBook.getName()) != Compression.NONE
+                || (format != AddressBookFormat.XML && format != AddressBookFormat.JSON && format != AddressBookFormat.NDJSON)){
+            throw new IOException("Only uncompressed .xml, .json or .ndjson address books can be indexed: " + addressBook.getPath());
+        }
+        return format;
+    }
+
+    /**
+     * @param fieldNames List of String: element names of the fields to index besides CustomerID
+     * @return List of ContactField: CustomerID followed by the given fields, without duplicates
+     * @throws IllegalArgumentException if a field name is not part of a Contact
+     */
+    private static List<ContactField> indexedFields(List<String> fieldNames){
+        Set<ContactField> fields = new LinkedHashSet<>();
+        fields.add(ContactField.CUSTOMER_ID);
+        for(String fieldName : fieldNames){
+            ContactField field = ContactField.forElementName(fieldName.trim());
+            if(field == null){
+                throw new IllegalArgumentException("Unknown Contact field: " + fieldName);
+            }
+            fields.add(field);
+        }
+        return new ArrayList<>(fields);
+    }
+
+    /**
+     * Method to turn the character offsets Woodstox reports for the contacts of an XML address book into byte offsets,
+     * in one pass over the UTF-8 bytes of the file. A character outside the Basic Multilingual Plane takes 4 bytes and
+     * counts as 2 UTF-16 units, and a byte order mark is not counted. Every start offset must point at a '&lt;',
+     * and every end offset just past a '&gt;', which also catches an address book that is not UTF-8.
+     * @param xmlFile File: XML address book the offsets were read from
+     * @param offsets long[]: start and end character offsets of the contacts in ascending order, replaced by their byte offsets
+     * @param count int: number of offsets
+     * @throws IOException if the file could not be read, or the offsets do not point at the contacts
+     */
+    private static void toByteOffsets(File xmlFile, long[] offsets, int count) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long bytePosition = 0;
+        long characterPosition = 0;
+        byte previous = 0;
+        int next = 0;
+        try(InputStream inputStream = new FileInputStream(xmlFile)){
+            int read;
+            while(next < count && (read = inputStream.read(buffer)) != -1){
+                int i = (bytePosition == 0 && startsWith(buffer, read, BYTE_ORDER_MARK)) ? BYTE_ORDER_MARK.length : 0;
+                long target = (next < count) ? offsets[next] : -1;
+                while(i < read){
+                    //No byte adds more than one character, so the bytes up to the next offset can be counted without looking for it
+                    long gap = (target < 0) ? read - i : target - characterPosition;
+                    if(gap > 0){
+                        int end = (int) Math.min(read, i + gap);
+                        characterPosition += countCharacters(buffer, i, end);
+                        previous = buffer[end - 1];
+                        i = end;
+                        continue;
+                    }
+                    byte b = buffer[i];
+                    //Continuation bytes (10xxxxxx) do not start a character
+                    if((b & 0xC0) != 0x80){
+                        while(target == characterPosition){
+                            if(((next & 1) == 0) ? b != '<' : previous != '>'){
+                                throw new IOException("Could not find where the contacts are stored, only UTF-8 XML address books can be indexed: " + xmlFile.getPath());
+                            }
+                            offsets[next++] = bytePosition + i;
+                            target = (next < count) ? offsets[next] : -1;
+                        }
+                        characterPosition += ((b & 0xF8) == 0xF0) ? 2 : 1;
+                    }
+                    previous = b;
+                    i++;
+                }
+                bytePosition += read;
+            }
+        }
+        if(next < count){
+            throw new IOException("Could not find where the contacts are stored, only UTF-8 XML address books can be indexed: " + xmlFile.getPath());
+        }
+    }
+
+    /**
+     * @param bytes byte[]: UTF-8 bytes
+     * @param from int: first byte to count, which must not be in the middle of a character
+     * @param to int: end of the bytes to count
+     * @return int: number of UTF-16 units the bytes decode to, a character outside the Basic Multilingual Plane counting as 2
+     */
+    private static int countCharacters(byte[] bytes, int from, int to){
+        int characters = 0;
+        for(int i = from; i < to; i++){
+            int b = bytes[i];
+            characters += (((b & 0xC0) != 0x80) ? 1 : 0) + (((b & 0xF8) == 0xF0) ? 1 : 0);
+        }
+        return characters;
+    }
+
+    /**
+     * @param xmlFile File: XML address book
+     * @param length long: byte offset of its first contact
+     * @return byte[]: everything before the first contact, i.e. the XML declaration, any DOCTYPE and the &lt;AddressBook&gt; start tag
+     * @throws IOException if the file could not be read
+     */
+    private static byte[] readPrologue(File xmlFile, long length) throws IOException {
+        if(length > BUFFER_SIZE){
+            throw new IOException("XML before the first contact is too large to be indexed: " + xmlFile.getPath());
+        }
+        byte[] prologue = new byte[(int) length];
+        try(InputStream inputStream = new FileInputStream(xmlFile)){
+            int position = 0;
+            int read;
+            while(position < prologue.length && (read = inputStream.read(prologue, position, prologue.length - position)) != -1){
+                position += read;
+            }
+        }
+        return prologue;
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix){
+        if(length < prefix.length){
+            return false;
+        }
+        for(int i = 0; i < prefix.length; i++){
+            if(bytes[i] != prefix[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeBytes(DataOutputStream outputStream, byte[] bytes) throws IOException {
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer){
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Distinct values of one indexed field, numbered in the order they are first seen, and the value number of every contact.
+     * A field with few distinct values, like Country, only keeps one String per value while the address book is read.
+     */
+    private static final class KeyCollector {
+        private final Map<String, Integer> keyNumbers = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        //Number of the value of every contact, -1 where a contact leaves the field out
+        private int[] contactKeys = new int[1024];
+
+        private void add(int contactNumber, String key){
+            if(contactNumber == contactKeys.length){
+                contactKeys = Arrays.copyOf(contactKeys, contactKeys.length * 2);
+            }
+            if(key == null){
+                contactKeys[contactNumber] = -1;
+                return;
+            }
+            Integer keyNumber = keyNumbers.get(key);
+            if(keyNumber == null){
+                keyNumber = keys.size();
+                keyNumbers.put(key, keyNumber);
+                keys.add(key);
+            }
+            contactKeys[contactNumber] = keyNumber;
+        }
+
+        /**
+         * Method to write the distinct values sorted, each followed by the contacts that have it, in file order.
+         * @param outputStream DataOutputStream: the index file
+         * @param contactCount int: number of contacts
+         * @throws IOException if the index could not be written
+         */
+        private void write(DataOutputStream outputStream, int contactCount) throws IOException {
+            //Code point order is the order of the UTF-8 bytes the lookups compare
+            String[] sortedKeys = keys.toArray(new String[0]);
+            Arrays.sort(sortedKeys, ContactIndex::compareKeys);
+            int[] ranks = new int[sortedKeys.length];
+            for(int rank = 0; rank < sortedKeys.length; rank++){
+                ranks[keyNumbers.get(sortedKeys[rank])] = rank;
+            }
+
+            //Counting sort of the contacts by the rank of their value, which keeps the contacts of each value in file order
+            int[] postingStarts = new int[sortedKeys.length + 1];
+            for(int contactNumber = 0; contactNumber < contactCount; contactNumber++){
+                if(contactKeys[contactNumber] >= 0){
+                    postingStarts[ranks[contactKeys[contactNumber]] + 1]++;
+                }
+            }
+            for(int rank = 0; rank < sortedKeys.length; rank++){
+                postingStarts[rank + 1] += postingStarts[rank];
+            }
+            int[] postings = new int[postingStarts[sortedKeys.length]];
+            int[] nextPostings = Arrays.copyOf(postingStarts, sortedKeys.length);
+            for(int contactNumber = 0; contactNumber < contactCount; contactNumber++){
+                if(contactKeys[contactNumber] >= 0){
+                    postings[nextPostings[ranks[contactKeys[contactNumber]]]++] = contactNumber;
+                }
+            }
+
+            ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+            outputStream.writeInt(sortedKeys.length);
+            outputStream.writeInt(postings.length);
+            for(String key : sortedKeys){
+                outputStream.writeInt(keyBytes.size());
+                byte[] encodedKey = ContactIndex.encode(key);
+                keyBytes.write(encodedKey, 0, encodedKey.length);
+            }
+            outputStream.writeInt(keyBytes.size());
+            for(int postingStart : postingStarts){
+                outputStream.writeInt(postingStart);
+            }
+            for(int posting : postings){
+                outputStream.writeInt(posting);
+            }
+            outputStream.writeInt(keyBytes.size());
+            keyBytes.writeTo(outputStream);
+        }
+    }
+
+    /**
+     * Positions of the sorted keys of one field in the mapped index, and of the contacts that have each key.
+     * Only absolute reads are used once the section has been located, so lookups can run concurrently.
+     */
+    private static final class KeySection {
+        private final ByteBuffer index;
+        private final int keyCount;
+        private final int keyOffsetsPosition;
+        private final int postingStartsPosition;
+        private final int postingsPosition;
+        private final int keysPosition;
+
+        /**
+         * @param index ByteBuffer: the index, positioned on the start of the section. Left positioned after its end.
+         */
+        private KeySection(ByteBuffer index){
+            this.index = index;
+            this.keyCount = index.getInt();
+            int postingCount = index.getInt();
+            this.keyOffsetsPosition = index.position();
+            this.postingStartsPosition = keyOffsetsPosition + Integer.BYTES * (keyCount + 1);
+            this.postingsPosition = postingStartsPosition + Integer.BYTES * (keyCount + 1);
+            index.position(postingsPosition + Integer.BYTES * postingCount);
+            int keysLength = index.getInt();
+            this.keysPosition = index.position();
+            index.position(keysPosition + keysLength);
+        }
+
+        /**
+         * Method to binary search the keys for the given one.
+         * @param key byte[]: UTF-8 bytes of the key
+         * @return int: number of the key, or -1 if no contact has it
+         */
+        private int find(byte[] key){
+            int low = 0;
+            int high = keyCount - 1;
+            while(low <= high){
+                int middle = (low + high) >>> 1;
+                int comparison = compareKey(middle, key);
+                if(comparison < 0){
+                    low = middle + 1;
+                }
+                else if(comparison > 0){
+                    high = middle - 1;
+                }
+                else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        private int compareKey(int keyNumber, byte[] key){
+            int start = keysPosition + index.getInt(keyOffsetsPosition + Integer.BYTES * keyNumber);
+            int length = keysPosition + index.getInt(keyOffsetsPosition + Integer.BYTES * (keyNumber + 1)) - start;
+            for(int i = 0; i < Math.min(length, key.length); i++){
+                int comparison = (index.get(start + i) & 0xFF) - (key[i] & 0xFF);
+                if(comparison != 0){
+                    return comparison;
+                }
+            }
+            return length - key.length;
+        }
+
+        /**
+         * @param keyNumber int: number of a key, or the key count for the end of the postings
+         * @return int: position of the first contact with the key in the postings
+         */
+        private int getPostingStart(int keyNumber){
+            return index.getInt(postingStartsPosition + Integer.BYTES * keyNumber);
+        }
+
+        private int getContactNumber(int posting){
+            return index.getInt(postingsPosition + Integer.BYTES * posting);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Class to merge any number of address books (of any formats) into one, keeping one contact per CustomerID.
+ * When the same CustomerID appears more than once, the ConflictPolicy decides which contact, or which fields, are kept,
+ * taking the address books in the order they are given and the contacts in the order they appear.
+ * The merged address book is written with its contacts ordered by CustomerID.
+ *
+ * Contacts are collected in a compact ContactIndex. When it grows past the memory limit it is sorted and spilled to a
+ * temporary run file next to the output, and the runs are merged at the end, so address books with more contacts
+ * than fit in memory can still be merged. At most MAX_MERGE_FAN_IN runs are open at once: with more runs than that,
+ * consecutive runs are first merged into longer ones, in as many passes as needed.
+ * The output is the same whether or not anything was spilled.
+ */
+public final class AddressBookMerger {
+    /** Memory limit of the contacts collected before they are spilled, by default a quarter of the maximum heap. */
+    public static final long DEFAULT_MEMORY_LIMIT = Runtime.getRuntime().maxMemory() / 4;
+    /** Smallest memory limit accepted, so that a run holds more than a handful of contacts. */
+    public static final long MIN_MEMORY_LIMIT = 256 * 1024;
+    /** Largest number of runs merged at once, each of which holds a file open and a read buffer. */
+    static final int MAX_MERGE_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_PAGE_SIZE = 16 * 1024;
+
+    /**
+     * Enum of the ways contacts with the same CustomerID are combined.
+     */
+    public enum ConflictPolicy {
+        /** The first contact with the CustomerID is kept. */
+        FIRST_WINS,
+        /** The last contact with the CustomerID is kept. */
+        LAST_WINS,
+        /** Each field is taken from the last contact that has a (non-empty) value for it, so later address books
+         * update the fields they have and keep the fields they leave out. */
+        COALESCE
+    }
+
+    private final AddressBookParser addressBookParser;
+    private final ConflictPolicy conflictPolicy;
+    private final long memoryLimit;
+    private final int pageSize;
+    private final int maxMergeFanIn;
+
+    /**
+     * Number of contacts read and written by a merge.
+     */
+    public static final class Summary {
+        private final long inputCount;
+        private final long outputCount;
+        private final int spilledRunCount;
+
+        Summary(long inputCount, long outputCount, int spilledRunCount){
+            this.inputCount = inputCount;
+            this.outputCount = outputCount;
+            this.spilledRunCount = spilledRunCount;
+        }
+
+        /**
+         * @return long: number of contacts read from every address book
+         */
+        public long getInputCount() {
+            return inputCount;
+        }
+
+        /**
+         * @return long: number of contacts written, one per CustomerID
+         */
+        public long getOutputCount() {
+            return outputCount;
+        }
+
+        /**
+         * @return long: number of contacts combined with another contact of the same CustomerID
+         */
+        public long getDuplicateCount() {
+            return inputCount - outputCount;
+        }
+
+        /**
+         * @return int: number of temporary run files the contacts were spilled to, 0 if they fit in memory
+         */
+        public int getSpilledRunCount() {
+            return spilledRunCount;
+        }
+
+        @Override
+        public String toString() {
+            String summary = inputCount + " contacts read, " + outputCount + " written, " + getDuplicateCount() + " duplicates merged";
+            return (spilledRunCount == 0) ? summary : summary + " (spilled to " + spilledRunCount + " runs)";
+        }
+    }
+
+    /**
+     * @param addressBookParser AddressBookParser: parser used to read the address books and write the merged one
+     * @param conflictPolicy ConflictPolicy: how contacts with the same CustomerID are combined
+     */
+    public AddressBookMerger(AddressBookParser addressBookParser, ConflictPolicy conflictPolicy){
+        this(addressBookParser, conflictPolicy, DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * @param addressBookParser AddressBookParser: parser used to read the address books and write the merged one
+     * @param conflictPolicy ConflictPolicy: how contacts with the same CustomerID are combined
+     * @param memoryLimit long: number of bytes the collected contacts may take before they are spilled to disk, at least MIN_MEMORY_LIMIT
+     */
+    public AddressBookMerger(AddressBookParser addressBookParser, ConflictPolicy conflictPolicy, long memoryLimit){
+        this(addressBookParser, conflictPolicy, memoryLimit, MAX_MERGE_FAN_IN);
+    }
+
+    /**
+     * @param addressBookParser AddressBookParser: parser used to read the address books and write the merged one
+     * @param conflictPolicy ConflictPolicy: how contacts with the same CustomerID are combined
+     * @param memoryLimit long: number of bytes the collected contacts may take before they are spilled to disk, at least MIN_MEMORY_LIMIT
+     * @param maxMergeFanIn int: largest number of runs merged at once, at least 2
+     */
+    AddressBookMerger(AddressBookParser addressBookParser, ConflictPolicy conflictPolicy, long memoryLimit, int maxMergeFanIn){
+        if(maxMergeFanIn < 2){
+            throw new IllegalArgumentException("Merge fan-in must be at least 2, was " + maxMergeFanIn);
+        }
+        if(memoryLimit < MIN_MEMORY_LIMIT){
+            throw new IllegalArgumentException("Memory limit must be at least " + MIN_MEMORY_LIMIT + " bytes, was " + memoryLimit);
+        }
+        this.addressBookParser = addressBookParser;
+        this.conflictPolicy = conflictPolicy;
+        this.memoryLimit = memoryLimit;
+        this.maxMergeFanIn = maxMergeFanIn;
+        //The pages of the index are allocated whole, so they are kept to an eighth of the limit to fill it before spilling
+        this.pageSize = (int) Math.max(MIN_PAGE_SIZE, Math.min(ContactIndex.DEFAULT_PAGE_SIZE, Long.highestOneBit(memoryLimit / 8)));
+    }
+
+    /**
+     * Method to merge the given address books into one. The output is only written once every input has been read,
+     * to a temporary file that replaces it once the merge is complete, so neither an invalid input nor a failure while
+     * writing leaves a partial output behind.
+     * @param inputFiles List of File: address books to merge, in order of precedence for the conflict policy
+     * @param outputFile File: merged address book, in the format of its extension
+     * @return Summary: the number of contacts read and written
+     * @throws IOException if an address book could not be read or is invalid, or the output could not be written
+     */
+    public Summary merge(List<File> inputFiles, File outputFile) throws IOException {
+        File spillDirectory = outputFile.getAbsoluteFile().getParentFile();
+        List<File> temporaryFiles = new ArrayList<>();
+        List<ContactSource> contactSources = new ArrayList<>();
+        try {
+            List<File> runFiles = new ArrayList<>();
+            ContactIndex contactIndex = new ContactIndex(pageSize);
+            long inputCount = 0;
+            for(File inputFile : inputFiles){
+                try(ContactReader contactReader = addressBookParser.newContactReader(inputFile)){
+                    Contact contact;
+                    while((contact = contactReader.nextContact()) != null){
+                        inputCount++;
+                        add(contactIndex, contact);
+                        if(contactIndex.getMemoryUsage() > memoryLimit){
+                            runFiles.add(spill(contactIndex, spillDirectory, temporaryFiles));
+                            contactIndex = new ContactIndex(pageSize);
+                        }
+                    }
+                }
+            }
+            int spilledRunCount = runFiles.size();
+
+            //Leave room for the contacts still in memory, which are merged with the last runs
+            while(runFiles.size() >= maxMergeFanIn){
+                runFiles = mergeRuns(runFiles, spillDirectory, temporaryFiles);
+            }
+
+            //Runs are opened in the order they were spilled, and the contacts still in memory come last
+            for(File runFile : runFiles){
+                contactSources.add(new RunFileSource(runFile));
+            }
+            contactSources.add(new IndexSource(contactIndex));
+            long outputCount = AddressBookParser.writeAtomically(outputFile, temporaryFile -> {
+                try(ContactWriter contactWriter = addressBookParser.newContactWriter(temporaryFile)){
+                    return mergeSources(contactSources, contactWriter);
+                }
+            });
+            return new Summary(inputCount, outputCount, spilledRunCount);
+        } finally {
+            for(ContactSource contactSource : contactSources){
+                contactSource.close();
+            }
+            for(File temporaryFile : temporaryFiles){
+                Files.deleteIfExists(temporaryFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * Method to merge contacts ordered by CustomerID from several sources, writing one contact per CustomerID.
+     * @param contactSources List of ContactSource: sources to merge, in order of precedence for the conflict policy
+     * @param contactWriter ContactWriter: destination of the merged contacts
+     * @return long: number of contacts written
+     * @throws IOException if a source could not be read, or a contact could not be written
+     */
+    private long mergeSources(List<ContactSource> contactSources, ContactWriter contactWriter) throws IOException {
+        PriorityQueue<ContactSource> queue = new PriorityQueue<>(contactSources.size(), (first, second) -> {
+            int comparison = ContactIndex.compareKeys(first.current.getCustomerID(), second.current.getCustomerID());
+            return (comparison != 0) ? comparison : Integer.compare(first.order, second.order);
+        });
+        for(int i = 0; i < contactSources.size(); i++){
+            ContactSource contactSource = contactSources.get(i);
+            contactSource.order = i;
+            if(contactSource.advance()){
+                queue.add(contactSource);
+            }
+        }
+        long outputCount = 0;
+        while(!queue.isEmpty()){
+            ContactSource contactSource = queue.poll();
+            Contact merged = contactSource.current;
+            requeue(queue, contactSource);
+            //Sources with the same CustomerID come out of the queue in the order their contacts were read
+            while(!queue.isEmpty() && ContactIndex.compareKeys(queue.peek().current.getCustomerID(), merged.getCustomerID()) == 0){
+                contactSource = queue.poll();
+                merged = resolve(merged, contactSource.current);
+                requeue(queue, contactSource);
+            }
+            contactWriter.writeContact(merged);
+            outputCount++;
+        }
+        return outputCount;
+    }
+
+    /**
+     * Method to merge each group of maxMergeFanIn consecutive runs into one longer run. As the groups are consecutive,
+     * the contacts of a CustomerID are still combined in the order they were read, so the conflict policy gives the same result.
+     * The merged runs are deleted as soon as they have been read.
+     * @param runFiles List of File: runs in the order they were spilled
+     * @param spillDirectory File: directory to create the new runs in
+     * @param temporaryFiles List of File: every temporary file of the merge, to add the new runs to
+     * @return List of File: the new runs, in the same order
+     * @throws IOException if a run could not be read or written
+     */
+    private List<File> mergeRuns(List<File> runFiles, File spillDirectory, List<File> temporaryFiles) throws IOException {
+        List<File> mergedRunFiles = new ArrayList<>();
+        for(int start = 0; start < runFiles.size(); start += maxMergeFanIn){
+            List<File> group = runFiles.subList(start, Math.min(start + maxMergeFanIn, runFiles.size()));
+            if(group.size() == 1){
+                mergedRunFiles.add(group.get(0));
+                continue;
+            }
+            File mergedRunFile = newRunFile(spillDirectory, temporaryFiles);
+            List<ContactSource> contactSources = new ArrayList<>();
+            try(RunFileWriter runFileWriter = new RunFileWriter(mergedRunFile)){
+                for(File runFile : group){
+                    contactSources.add(new RunFileSource(runFile));
+                }
+                mergeSources(contactSources, runFileWriter);
+            } finally {
+                for(ContactSource contactSource : contactSources){
+                    contactSource.close();
+                }
+            }
+            for(File runFile : group){
+                Files.deleteIfExists(runFile.toPath());
+            }
+            mergedRunFiles.add(mergedRunFile);
+        }
+        return mergedRunFiles;
+    }
+
+    /**
+     * Method to add a contact to the index, combining it with any contact of the same CustomerID already in it.
+     * @param contactIndex ContactIndex: contacts collected so far
+     * @param contact Contact: contact read from an address book
+     */
+    private void add(ContactIndex contactIndex, Contact contact){
+        int entry = contactIndex.indexOf(contact.getCustomerID());
+        if(entry < 0){
+            contactIndex.put(contact);
+        }
+        else if(conflictPolicy == ConflictPolicy.LAST_WINS){
+            contactIndex.put(contact);
+        }
+        else if(conflictPolicy == ConflictPolicy.COALESCE && !contactIndex.isStored(entry, contact)){
+            contactIndex.put(resolve(contactIndex.get(entry), contact));
+        }
+    }
+
+    /**
+     * Method to combine two contacts with the same CustomerID according to the conflict policy.
+     * @param earlier Contact: contact read first, which may be changed
+     * @param later Contact: contact read afterwards
+     * @return Contact: the contact to keep
+     */
+    private Contact resolve(Contact earlier, Contact later){
+        switch(conflictPolicy){
+            case FIRST_WINS:
+                return earlier;
+            case LAST_WINS:
+                return later;
+            default:
+                for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+                    String value = field.get(later);
+                    if(value != null && !value.isEmpty()){
+                        field.set(earlier, value);
+                    }
+                }
+                return earlier;
+        }
+    }
+
+    private static void requeue(PriorityQueue<ContactSource> queue, ContactSource contactSource) throws IOException {
+        if(contactSource.advance()){
+            queue.add(contactSource);
+        }
+    }
+
+    /**
+     * Method to write the contacts of the index to a new temporary run file, ordered by CustomerID.
+     * @param contactIndex ContactIndex: contacts collected since the last run
+     * @param spillDirectory File: directory to create the run file in
+     * @param temporaryFiles List of File: every temporary file of the merge, to add the run file to
+     * @return File: the run file
+     * @throws IOException if the run file could not be written
+     */
+    private static File spill(ContactIndex contactIndex, File spillDirectory, List<File> temporaryFiles) throws IOException {
+        File runFile = newRunFile(spillDirectory, temporaryFiles);
+        try(OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(runFile.toPath()), BUFFER_SIZE)){
+            for(int entry : contactIndex.sortedEntries()){
+                contactIndex.write(entry, outputStream);
+            }
+        }
+        return runFile;
+    }
+
+    private static File newRunFile(File spillDirectory, List<File> temporaryFiles) throws IOException {
+        File runFile = File.createTempFile(".address-book-merge", ".run", spillDirectory);
+        temporaryFiles.add(runFile);
+        return runFile;
+    }
+
+    /**
+     * Contacts ordered by CustomerID, read one at a time during the merge.
+     */
+    private abstract static class ContactSource implements Closeable {
+        private Contact current;
+        private int order;
+
+        /**
+         * Method to move to the next contact.
+         * @return true if there is a next contact, false at the end of the source
+         * @throws IOException if the next contact could not be read
+         */
+        private boolean advance() throws IOException {
+            current = next();
+            return current != null;
+        }
+
+        abstract Contact next() throws IOException;
+    }
+
+    private static final class IndexSource extends ContactSource {
+        private final ContactIndex contactIndex;
+        private final int[] sortedEntries;
+        private int position = 0;
+
+        private IndexSource(ContactIndex contactIndex){
+            this.contactIndex = contactIndex;
+            this.sortedEntries = contactIndex.sortedEntries();
+        }
+
+        @Override
+        Contact next() {
+            return (position < sortedEntries.length) ? contactIndex.get(sortedEntries[position++]) : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Writes merged contacts to a run file, encoded the same way as the contacts spilled from a ContactIndex.
+     */
+    private static final class RunFileWriter implements ContactWriter {
+        private final ContactIndex encoder = new ContactIndex();
+        private final OutputStream outputStream;
+
+        private RunFileWriter(File runFile) throws IOException {
+            outputStream = new BufferedOutputStream(Files.newOutputStream(runFile.toPath()), BUFFER_SIZE);
+        }
+
+        @Override
+        public void writeContact(Contact contact) throws IOException {
+            encoder.write(contact, outputStream);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            outputStream.close();
+        }
+    }
+
+    private static final class RunFileSource extends ContactSource {
+        private final DataInputStream inputStream;
+
+        private RunFileSource(File runFile) throws IOException {
+            inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), BUFFER_SIZE));
+        }
+
+        @Override
+        Contact next() throws IOException {
+            return ContactIndex.read(inputStream);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+}
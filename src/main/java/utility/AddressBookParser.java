@@ -1,18 +1,30 @@
 package utility;
 
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.xml.XmlFactory;
 import org.xml.sax.SAXException;
 
-import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 import java.io.File;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,33 +32,168 @@ import java.util.logging.Logger;
  * Class to handle the conversion of XML address books to JSON, JSON to XML, and validate the schema
  * (either in JSON or XML format) of a given address book
  * in accordance to the schema in /src/main/resources/ad.xsd
+ *
+ * An AddressBookParser is thread-safe and is meant to be created once and reused: every field is either immutable
+ * (the configured StAX and Jackson factories) or a thread-safe pool (the schema validators),
+ * and all per-conversion state lives in the readers and writers created for that conversion.
+ * Conversions to a file are written to a temporary file next to it, which is only moved into place once the whole
+ * address book has been converted, so an invalid input never leaves a partial output file behind.
+ *
+ * Contacts are read and written field by field by hand-written streaming readers and writers rather than through
+ * Jackson databind, and the output is either indented (the default) or compact, see OutputLayout.
+ * Every conversion and validation can also work on streams or channels instead of files, e.g. to sit in a pipeline.
+ * Files ending in .gz or .zst (e.g. "ad.xml.gz") are decompressed and compressed on the fly, see Compression.
+ * Address books can also be stored as NDJSON, one Contact object per line, or in the binary Smile and CBOR encodings
+ * of the JSON document, see AddressBookFormat.
  */
 public final class AddressBookParser {
-    private final XmlMapper xmlMapper = (XmlMapper) new XmlMapper().enable(SerializationFeature.INDENT_OUTPUT);
-    private final JsonMapper jsonMapper = (JsonMapper) new JsonMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    /**
+     * Layout of the XML and JSON address books written by a parser.
+     */
+    public enum OutputLayout {
+        /** Every element on its own line, indented the same way as Jackson's INDENT_OUTPUT. */
+        INDENTED,
+        /** No whitespace between elements, for the smallest output and the fastest writes. */
+        COMPACT
+    }
+
+    /**
+     * How a parser reads the address book files it is given.
+     */
+    public enum InputMode {
+        /** Files are read with a FileInputStream. */
+        STREAMED,
+        /**
+         * Files are read through memory-mapped segments, see MappedFileInputStream. This saves the read() system calls,
+         * but a conversion is bound by parsing and validation, so it is rarely faster end to end. The mapping is only
+         * released by the garbage collector, so on Windows an input file stays locked for a while after it has been read,
+         * and a file truncated while it is read fails with an InternalError rather than an IOException.
+         */
+        MEMORY_MAPPED
+    }
+
+    private final XMLInputFactory xmlInputFactory;
+    private final XMLOutputFactory xmlOutputFactory;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    //Shared string values let Smile write repeated short values (e.g. Country and City) once, as back-references
+    private final JsonFactory smileFactory = SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+    private final JsonFactory cborFactory = new CBORFactory();
+    private final OutputLayout outputLayout;
+    private final InputMode inputMode;
+    private final SchemaValidatorPool schemaValidatorPool;
+    private final String schemaHash;
+    private final JsonAddressBookValidator jsonAddressBookValidator = new JsonAddressBookValidator();
     private final Logger LOGGER = Logger.getLogger(getClass().getName());
 
+    /**
+     * Creates a parser that validates address books against the schema in /src/main/resources/ad.xsd.
+     */
     public AddressBookParser(){
+        this(loadDefaultSchema(), OutputLayout.INDENTED, InputMode.STREAMED);
+    }
+
+    /**
+     * Creates a parser that validates address books against the schema in /src/main/resources/ad.xsd
+     * and writes them in the given layout.
+     * @param outputLayout OutputLayout: layout of the converted address books
+     */
+    public AddressBookParser(OutputLayout outputLayout){
+        this(loadDefaultSchema(), outputLayout, InputMode.STREAMED);
+    }
+
+    /**
+     * Creates a parser that validates address books against the schema in /src/main/resources/ad.xsd,
+     * writes them in the given layout and reads them in the given mode.
+     * @param outputLayout OutputLayout: layout of the converted address books
+     * @param inputMode InputMode: how address book files are read
+     */
+    public AddressBookParser(OutputLayout outputLayout, InputMode inputMode){
+        this(loadDefaultSchema(), outputLayout, inputMode);
+    }
+
+    /**
+     * Creates a parser that validates address books against the given schema file instead of /src/main/resources/ad.xsd.
+     * The compiled schema is cached, so creating several parsers for the same schema file only compiles it once.
+     * @param schemaFile File: XSD file to validate address books against
+     * @throws IOException if the schema file could not be read or compiled
+     */
+    public AddressBookParser(File schemaFile) throws IOException {
+        this(schemaFile, OutputLayout.INDENTED);
+    }
+
+    /**
+     * Creates a parser that validates address books against the given schema file and writes them in the given layout.
+     * @param schemaFile File: XSD file to validate address books against
+     * @param outputLayout OutputLayout: layout of the converted address books
+     * @throws IOException if the schema file could not be read or compiled
+     */
+    public AddressBookParser(File schemaFile, OutputLayout outputLayout) throws IOException {
+        this(schemaFile, outputLayout, InputMode.STREAMED);
+    }
+
+    /**
+     * Creates a parser that validates address books against the given schema file, writes them in the given layout
+     * and reads them in the given mode.
+     * @param schemaFile File: XSD file to validate address books against
+     * @param outputLayout OutputLayout: layout of the converted address books
+     * @param inputMode InputMode: how address book files are read
+     * @throws IOException if the schema file could not be read or compiled
+     */
+    public AddressBookParser(File schemaFile, OutputLayout outputLayout, InputMode inputMode) throws IOException {
+        this(SchemaCache.getSchema(ensureInputFileExits(schemaFile).toURI().toURL()), outputLayout, inputMode);
+    }
+
+    private AddressBookParser(SchemaCache.CompiledSchema addressBookSchema, OutputLayout outputLayout, InputMode inputMode){
         LOGGER.setLevel(Level.SEVERE);
+        XmlFactory xmlFactory = new XmlFactory();
+        xmlInputFactory = xmlFactory.getXMLInputFactory();
+        xmlOutputFactory = xmlFactory.getXMLOutputFactory();
+        this.outputLayout = outputLayout;
+        this.inputMode = inputMode;
+        schemaValidatorPool = new SchemaValidatorPool(addressBookSchema.getSchema());
+        schemaHash = addressBookSchema.getHash();
+    }
+
+    private static SchemaCache.CompiledSchema loadDefaultSchema(){
+        try {
+            return SchemaCache.getSchema(AddressBookParser.class.getResource("/ad.xsd"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load address book schema /ad.xsd", e);
+        }
+    }
+
+    /**
+     * @return String: hex encoded SHA-256 hash of the schema this parser validates address books against
+     */
+    String getSchemaHash() {
+        return schemaHash;
+    }
+
+    OutputLayout getOutputLayout() {
+        return outputLayout;
     }
 
     /**
      * Method to ensure that the given input file exists.
      * Will throw an IOException if the file does not exist.
      * @param inputFile File: input file to ensure existence
+     * @return File: the given input file
      * @throws IOException if the File does not exist
      */
-    private void ensureInputFileExits(File inputFile) throws IOException {
+    private static File ensureInputFileExits(File inputFile) throws IOException {
         if(inputFile == null){
             throw new IOException("Address book must be specified.");
         }
         if(!inputFile.exists()){
             throw new IOException("Invalid address book given: " + inputFile.getAbsolutePath());
         }
+        return inputFile;
     }
 
     /**
      * Method to convert the given XML address book to its JSON equivalent.
+     * The address book is streamed one contact at a time, so memory use does not grow with the size of the file,
+     * and is validated against the schema in the same pass that reads it.
      * @param xmlInputFile File: XML address book to convert
      * @param jsonOutputFile File: JSON output file for the conversion.
      * @throws IOException if the input file does not exists
@@ -55,17 +202,48 @@ public final class AddressBookParser {
     public void convertXmlAddressBookToJson(File xmlInputFile, File jsonOutputFile) throws IOException, InvalidAddressBookException {
         ensureInputFileExits(xmlInputFile);
 
-        if(!isValidXmlAddressBook(xmlInputFile)){
-            throw new InvalidAddressBookException("Invalid XML address book given!");
-        }
+        writeAtomically(jsonOutputFile, temporaryFile -> {
+            try(InputStream xmlInputStream = openInputStream(xmlInputFile);
+                ContactReader contactReader = newXmlContactReader(xmlInputStream);
+                ContactWriter contactWriter = newJsonContactWriter(temporaryFile)){
+                return copyContacts(contactReader, contactWriter);
+            }
+        });
+    }
 
-        AddressBook addressBook = getAddressBookFromXmlFile(xmlInputFile);
-        jsonMapper.writeValue(jsonOutputFile, addressBook);
+    /**
+     * Method to convert the XML address book read from the given stream to its JSON equivalent, written to the given stream.
+     * Works the same way as the File version, so nothing is written to disk. The streams are not closed,
+     * but the output stream is flushed once the address book has been written.
+     * @param xmlInputStream InputStream: XML address book to convert
+     * @param jsonOutputStream OutputStream: destination of the JSON address book
+     * @throws IOException if the address book could not be read or written
+     * @throws InvalidAddressBookException if the given address book is not a valid address book
+     */
+    public void convertXmlAddressBookToJson(InputStream xmlInputStream, OutputStream jsonOutputStream) throws IOException, InvalidAddressBookException {
+        try(ContactReader contactReader = newXmlContactReader(NonClosingStreams.wrap(xmlInputStream));
+            ContactWriter contactWriter = newJsonContactWriter(NonClosingStreams.wrap(jsonOutputStream))){
+            copyContacts(contactReader, contactWriter);
+        }
+    }
 
+    /**
+     * Method to convert the XML address book read from the given channel to its JSON equivalent, written to the given channel.
+     * The channels are not closed.
+     * @param xmlInputChannel ReadableByteChannel: XML address book to convert
+     * @param jsonOutputChannel WritableByteChannel: destination of the JSON address book
+     * @throws IOException if the address book could not be read or written
+     * @throws InvalidAddressBookException if the given address book is not a valid address book
+     * @see AddressBookParser#convertXmlAddressBookToJson(InputStream, OutputStream)
+     */
+    public void convertXmlAddressBookToJson(ReadableByteChannel xmlInputChannel, WritableByteChannel jsonOutputChannel) throws IOException, InvalidAddressBookException {
+        convertXmlAddressBookToJson(Channels.newInputStream(xmlInputChannel), Channels.newOutputStream(jsonOutputChannel));
     }
 
     /**
-     * Method to convert the given XML address book to its JSON equivalent.
+     * Method to convert the given JSON address book to its XML equivalent.
+     * Each contact is written to the output as soon as it is read, so memory use does not grow with the size of the file.
+     * The XML is validated against the schema as it is written, so the output does not have to be read back.
      * @param jsonInputFile File: JSON address book to convert
      * @param xmlOutputFile File: XML output file for the conversion.
      * @throws IOException if the input file does not exists
@@ -74,67 +252,507 @@ public final class AddressBookParser {
     public void convertJsonAddressBookToXml(File jsonInputFile, File xmlOutputFile) throws IOException {
         ensureInputFileExits(jsonInputFile);
 
-        AddressBook addressBook = getAddressBookFromJson(jsonInputFile);
-        xmlMapper.writeValue(xmlOutputFile, addressBook);
+        writeAtomically(xmlOutputFile, temporaryFile -> {
+            try(InputStream jsonInputStream = openInputStream(jsonInputFile);
+                ContactReader contactReader = newJsonContactReader(jsonInputStream);
+                ContactWriter contactWriter = newXmlContactWriter(temporaryFile)){
+                return copyContacts(contactReader, contactWriter);
+            }
+        });
+    }
 
-        if(!isValidXmlAddressBook(xmlOutputFile)){
-            throw new InvalidAddressBookException("Invalid XML address book conversion!");
+    /**
+     * Method to convert the JSON address book read from the given stream to its XML equivalent, written to the given stream.
+     * Works the same way as the File version, so nothing is written to disk. The streams are not closed,
+     * but the output stream is flushed once the address book has been written.
+     * @param jsonInputStream InputStream: JSON address book to convert
+     * @param xmlOutputStream OutputStream: destination of the XML address book
+     * @throws IOException if the address book could not be read or written
+     * @throws InvalidAddressBookException if the given address book is not a valid address book
+     */
+    public void convertJsonAddressBookToXml(InputStream jsonInputStream, OutputStream xmlOutputStream) throws IOException {
+        try(ContactReader contactReader = newJsonContactReader(NonClosingStreams.wrap(jsonInputStream));
+            ContactWriter contactWriter = newXmlContactWriter(NonClosingStreams.wrap(xmlOutputStream))){
+            copyContacts(contactReader, contactWriter);
+        }
+    }
+
+    /**
+     * Method to convert the JSON address book read from the given channel to its XML equivalent, written to the given channel.
+     * The channels are not closed.
+     * @param jsonInputChannel ReadableByteChannel: JSON address book to convert
+     * @param xmlOutputChannel WritableByteChannel: destination of the XML address book
+     * @throws IOException if the address book could not be read or written
+     * @throws InvalidAddressBookException if the given address book is not a valid address book
+     * @see AddressBookParser#convertJsonAddressBookToXml(InputStream, OutputStream)
+     */
+    public void convertJsonAddressBookToXml(ReadableByteChannel jsonInputChannel, WritableByteChannel xmlOutputChannel) throws IOException {
+        convertJsonAddressBookToXml(Channels.newInputStream(jsonInputChannel), Channels.newOutputStream(xmlOutputChannel));
+    }
+
+    /**
+     * Method to convert the given address book to the format of the output file, choosing both formats by their extensions.
+     * Any of XML, JSON, NDJSON (one Contact object per line), Smile and CBOR can be converted to any other,
+     * streaming one contact at a time. XML is validated against the schema as it is read or written.
+     * @param inputFile File: .xml, .json, .ndjson, .smile or .cbor address book to convert
+     * @param outputFile File: .xml, .json, .ndjson, .smile or .cbor output file for the conversion
+     * @throws IOException if the input file does not exist, or either file does not have a known extension
+     * @throws InvalidAddressBookException if the given input file is not a valid address book
+     * @see AddressBookFormat
+     */
+    public void convertAddressBook(File inputFile, File outputFile) throws IOException {
+        writeAtomically(outputFile, temporaryFile -> {
+            try(ContactReader contactReader = newContactReader(inputFile);
+                ContactWriter contactWriter = newContactWriter(temporaryFile)){
+                return copyContacts(contactReader, contactWriter);
+            }
+        });
+    }
+
+    /**
+     * Method to convert the address book read from the given stream to the given format, written to the given stream.
+     * The streams are not closed, but the output stream is flushed once the address book has been written.
+     * @param inputStream InputStream: address book to convert
+     * @param inputFormat AddressBookFormat: format of the address book read
+     * @param outputStream OutputStream: destination of the converted address book
+     * @param outputFormat AddressBookFormat: format to write the address book in
+     * @throws IOException if the address book could not be read or written
+     * @throws InvalidAddressBookException if the given address book is not a valid address book
+     * @see AddressBookParser#convertAddressBook(File, File)
+     */
+    public void convertAddressBook(InputStream inputStream, AddressBookFormat inputFormat, OutputStream outputStream, AddressBookFormat outputFormat) throws IOException {
+        try(ContactReader contactReader = newContactReader(NonClosingStreams.wrap(inputStream), inputFormat);
+            ContactWriter contactWriter = newContactWriter(NonClosingStreams.wrap(outputStream), outputFormat)){
+            copyContacts(contactReader, contactWriter);
+        }
+    }
+
+    /**
+     * Method to convert only the contacts, and fields, of the given address book selected by a query, choosing both formats by their extensions.
+     * The query is applied while the address book is read, so contacts that do not match are never written.
+     * XML is still validated against the schema as it is read or written.
+     * @param inputFile File: .xml, .json, .ndjson, .smile or .cbor address book to convert
+     * @param outputFile File: .xml, .json, .ndjson, .smile or .cbor output file for the conversion
+     * @param contactQuery ContactQuery: filter and projection of the contacts to write, or null to write every contact
+     * @return long: number of contacts written
+     * @throws IOException if the input file does not exist, or either file does not have a known extension
+     * @throws InvalidAddressBookException if the given input file is not a valid address book
+     * @throws IllegalArgumentException if the output is XML and the projection leaves out a field the schema requires
+     * @see ContactQuery
+     */
+    public long convertAddressBook(File inputFile, File outputFile, ContactQuery contactQuery) throws IOException {
+        requireSchemaFields(requireFormat(outputFile), contactQuery);
+        ensureInputFileExits(inputFile);
+        AddressBookFormat inputFormat = requireFormat(inputFile);
+        return writeAtomically(outputFile, temporaryFile -> {
+            try(InputStream inputStream = openInputStream(inputFile);
+                ContactReader contactReader = newContactReader(inputStream, inputFormat, contactQuery);
+                ContactWriter contactWriter = newContactWriter(temporaryFile)){
+                return copyContacts(contactReader, contactWriter);
+            }
+        });
+    }
+
+    /**
+     * Method to convert only the contacts, and fields, of the address book read from the given stream selected by a query.
+     * The streams are not closed, but the output stream is flushed once the address book has been written.
+     * @param inputStream InputStream: address book to convert
+     * @param inputFormat AddressBookFormat: format of the address book read
+     * @param outputStream OutputStream: destination of the converted address book
+     * @param outputFormat AddressBookFormat: format to write the address book in
+     * @param contactQuery ContactQuery: filter and projection of the contacts to write, or null to write every contact
+     * @return long: number of contacts written
+     * @throws IOException if the address book could not be read or written
+     * @throws InvalidAddressBookException if the given address book is not a valid address book
+     * @throws IllegalArgumentException if the output is XML and the projection leaves out a field the schema requires
+     * @see AddressBookParser#convertAddressBook(File, File, ContactQuery)
+     */
+    public long convertAddressBook(InputStream inputStream, AddressBookFormat inputFormat, OutputStream outputStream, AddressBookFormat outputFormat, ContactQuery contactQuery) throws IOException {
+        requireSchemaFields(outputFormat, contactQuery);
+        try(ContactReader contactReader = newContactReader(NonClosingStreams.wrap(inputStream), inputFormat, contactQuery);
+            ContactWriter contactWriter = newContactWriter(NonClosingStreams.wrap(outputStream), outputFormat)){
+            return copyContacts(contactReader, contactWriter);
+        }
+    }
+
+    /**
+     * Method to validate if the given file is a valid address book, choosing its format by its extension.
+     * @param inputFile File: .xml, .json, .ndjson, .smile or .cbor file to validate the schema
+     * @return true if the file is a valid address book, otherwise false
+     */
+    public boolean isValidAddressBook(File inputFile){
+        AddressBookFormat format = AddressBookFormat.forFileName(inputFile.getName());
+        if(format == AddressBookFormat.XML){
+            return isValidXmlAddressBook(inputFile);
+        }
+        try(InputStream inputStream = openInputStream(inputFile)) {
+            return isValidAddressBook(inputStream, format == null ? AddressBookFormat.JSON : format);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not validate given file.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Method to validate if the address book read from the given stream is valid. The stream is not closed.
+     * @param inputStream InputStream: address book to validate
+     * @param format AddressBookFormat: format of the address book
+     * @return true if the address book is valid, otherwise false
+     */
+    public boolean isValidAddressBook(InputStream inputStream, AddressBookFormat format){
+        switch(format){
+            case XML:
+                return isValidXmlAddressBook(inputStream);
+            case JSON:
+                return isValidJsonAddressBook(inputStream);
+            default:
+                try(JsonParser jsonParser = jsonFactoryFor(format).createParser(NonClosingStreams.wrap(inputStream))) {
+                    if(format == AddressBookFormat.NDJSON){
+                        jsonAddressBookValidator.validateNdjson(jsonParser);
+                    } else {
+                        jsonAddressBookValidator.validate(jsonParser);
+                    }
+                    return true;
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not validate given " + format + " address book.", e);
+                    return false;
+                }
         }
     }
 
     /**
      * Method to validate if the given JSON file is a valid address book.
+     * The JSON is checked directly against the rules of the schema in a single pass, without converting it to XML.
      * @param jsonInputFile File: file to validate the schema
      * @return true if the file is a valid address book, otherwise false
+     * @see utility.JsonAddressBookValidator
      */
     public boolean isValidJsonAddressBook(File jsonInputFile){
-        String tempFileName = "./" + UUID.randomUUID() + ".json";
-        File tempOutputFile = new File(tempFileName);
-        tempOutputFile.deleteOnExit();
-        try {
-            convertJsonAddressBookToXml(jsonInputFile, tempOutputFile);
+        try(InputStream inputStream = openInputStream(jsonInputFile)) {
+            return isValidJsonAddressBook(inputStream);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not validate given JSON file.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Method to validate if the JSON read from the given stream is a valid address book. The stream is not closed.
+     * @param jsonInputStream InputStream: JSON to validate
+     * @return true if the JSON is a valid address book, otherwise false
+     * @see AddressBookParser#isValidJsonAddressBook(File)
+     */
+    public boolean isValidJsonAddressBook(InputStream jsonInputStream){
+        try(JsonParser jsonParser = jsonFactory.createParser(NonClosingStreams.wrap(jsonInputStream))) {
+            jsonAddressBookValidator.validate(jsonParser);
             return true;
         } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not validate given JSON.", e);
             return false;
         }
     }
 
+    /**
+     * Method to validate if the JSON read from the given channel is a valid address book. The channel is not closed.
+     * @param jsonInputChannel ReadableByteChannel: JSON to validate
+     * @return true if the JSON is a valid address book, otherwise false
+     */
+    public boolean isValidJsonAddressBook(ReadableByteChannel jsonInputChannel){
+        return isValidJsonAddressBook(Channels.newInputStream(jsonInputChannel));
+    }
+
     /**
      * Method to validate if the given XML file is a valid address book.
      * @param xmlInputFile File: file to validate the schema
      * @return true if the file is a valid address book, otherwise false
      */
     public boolean isValidXmlAddressBook(File xmlInputFile){
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        Schema addressBookSchema;
+        try(InputStream inputStream = openInputStream(xmlInputFile)) {
+            return isValidXmlAddressBook(new StreamSource(inputStream, xmlInputFile.toURI().toString()));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not validate given XML file.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Method to validate if the XML read from the given stream is a valid address book. The stream is not closed.
+     * @param xmlInputStream InputStream: XML to validate
+     * @return true if the XML is a valid address book, otherwise false
+     */
+    public boolean isValidXmlAddressBook(InputStream xmlInputStream){
+        return isValidXmlAddressBook(new StreamSource(NonClosingStreams.wrap(xmlInputStream)));
+    }
+
+    /**
+     * Method to validate if the XML read from the given channel is a valid address book. The channel is not closed.
+     * @param xmlInputChannel ReadableByteChannel: XML to validate
+     * @return true if the XML is a valid address book, otherwise false
+     */
+    public boolean isValidXmlAddressBook(ReadableByteChannel xmlInputChannel){
+        return isValidXmlAddressBook(Channels.newInputStream(xmlInputChannel));
+    }
+
+    private boolean isValidXmlAddressBook(StreamSource xmlSource){
         try {
-            addressBookSchema = schemaFactory.newSchema(getClass().getResource("/ad.xsd"));
-            Validator addressBookValidator = addressBookSchema.newValidator();
-            addressBookValidator.validate(new StreamSource(xmlInputFile));
+            Validator addressBookValidator = schemaValidatorPool.getValidator();
+            addressBookValidator.validate(xmlSource);
             return true;
         } catch (SAXException | IOException e) {
-            LOGGER.log(Level.WARNING, "Could not validate given XML file.", e);
+            LOGGER.log(Level.WARNING, "Could not validate given XML.", e);
             return false;
         }
     }
 
     /**
-     * Method to deserialize the given XML file to an AddressBook POJO.
-     * @param xmlInputFile File: given XML address book to deserialize
-     * @return AddressBook: The XML file represented as the AddressBook POJO
-     * @throws IOException if their was a problem deserializing the XML file to an AddressBook POJO.
+     * Method to open a streaming reader over the contacts of the given address book, choosing the format by its extension.
+     * XML address books are validated against the schema as they are read.
+     * @param inputFile File: .xml, .json, .ndjson, .smile or .cbor address book to read
+     * @return ContactReader: reader positioned before the first contact
+     * @throws IOException if the file could not be opened or is not an .xml, .json, .ndjson, .smile or .cbor file
      */
-    private AddressBook getAddressBookFromXmlFile(File xmlInputFile) throws IOException {
-        return xmlMapper.readValue(xmlInputFile, AddressBook.class);
+    ContactReader newContactReader(File inputFile) throws IOException {
+        ensureInputFileExits(inputFile);
+        AddressBookFormat format = requireFormat(inputFile);
+        InputStream inputStream = openInputStream(inputFile);
+        try {
+            return newContactReader(inputStream, format);
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method to open a streaming reader over the contacts of the address book read from the given stream.
+     * @param inputStream InputStream: address book to read. Closed when the reader is closed.
+     * @param format AddressBookFormat: format of the address book
+     * @return ContactReader: reader positioned before the first contact
+     * @throws IOException if the reader could not be created
+     */
+    ContactReader newContactReader(InputStream inputStream, AddressBookFormat format) throws IOException {
+        return newContactReader(inputStream, format, null);
+    }
+
+    /**
+     * Method to open a streaming reader over the contacts of the address book read from the given stream
+     * that match the given query, with only the fields it projects.
+     * @param inputStream InputStream: address book to read. Closed when the reader is closed.
+     * @param format AddressBookFormat: format of the address book
+     * @param contactQuery ContactQuery: filter and projection pushed down into the reader, or null to read every contact
+     * @return ContactReader: reader positioned before the first contact
+     * @throws IOException if the reader could not be created
+     */
+    ContactReader newContactReader(InputStream inputStream, AddressBookFormat format, ContactQuery contactQuery) throws IOException {
+        switch(format){
+            case XML:
+                return new XmlContactReader(xmlInputFactory, inputStream, schemaValidatorPool.borrowStreamingValidator(), contactQuery);
+            case NDJSON:
+                return new NdjsonContactReader(jsonFactory.createParser(inputStream), contactQuery);
+            default:
+                return new JsonContactReader(jsonFactoryFor(format).createParser(inputStream), contactQuery);
+        }
+    }
+
+    /**
+     * Method to open a streaming writer for an address book, choosing the format by the extension of the output file.
+     * XML address books are validated against the schema as they are written.
+     * @param outputFile File: .xml, .json, .ndjson, .smile or .cbor file to write the address book to
+     * @return ContactWriter: writer for the contacts of the address book
+     * @throws IOException if the file could not be created or is not an .xml, .json, .ndjson, .smile or .cbor file
+     */
+    ContactWriter newContactWriter(File outputFile) throws IOException {
+        AddressBookFormat format = requireFormat(outputFile);
+        OutputStream outputStream = Compression.openOutputStream(outputFile);
+        try {
+            return newContactWriter(outputStream, format);
+        } catch (IOException | RuntimeException e) {
+            outputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method to open a streaming writer that writes an address book to the given stream.
+     * @param outputStream OutputStream: destination of the address book. Closed when the writer is closed.
+     * @param format AddressBookFormat: format to write the address book in
+     * @return ContactWriter: writer for the contacts of the address book
+     * @throws IOException if the writer could not be created
+     */
+    ContactWriter newContactWriter(OutputStream outputStream, AddressBookFormat format) throws IOException {
+        switch(format){
+            case XML:
+                return newXmlContactWriter(outputStream);
+            case JSON:
+                return newJsonContactWriter(outputStream);
+            case NDJSON:
+                return new NdjsonContactWriter(jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8));
+            default:
+                return new JsonContactWriter(jsonFactoryFor(format).createGenerator(outputStream, JsonEncoding.UTF8));
+        }
+    }
+
+    /**
+     * Method to find the Jackson factory for a format that stores the same document as JSON.
+     * @param format AddressBookFormat: JSON, NDJSON, SMILE or CBOR
+     * @return JsonFactory: factory for parsers and generators of the format
+     */
+    private JsonFactory jsonFactoryFor(AddressBookFormat format){
+        switch(format){
+            case SMILE:
+                return smileFactory;
+            case CBOR:
+                return cborFactory;
+            default:
+                return jsonFactory;
+        }
     }
 
     /**
-     * Method to deserialize the given JSON file to an AddressBook POJO.
-     * @param jsonInputFile File: given JSON address book to deserialize
-     * @return AddressBook: The XML file represented as the AddressBook POJO
-     * @throws IOException if their was a problem deserializing the JSON file to an AddressBook POJO.
+     * Method to check that a query keeps every field the schema requires when the output is XML,
+     * as the XML is validated against the schema as it is written.
+     * @param outputFormat AddressBookFormat: format of the output
+     * @param contactQuery ContactQuery: query applied to the contacts, or null
+     * @throws IllegalArgumentException if the output is XML and the projection leaves out a required field
      */
-    private AddressBook getAddressBookFromJson(File jsonInputFile) throws IOException {
-        return jsonMapper.readValue(jsonInputFile, AddressBook.class);
+    private static void requireSchemaFields(AddressBookFormat outputFormat, ContactQuery contactQuery){
+        if(contactQuery == null || outputFormat != AddressBookFormat.XML){
+            return;
+        }
+        List<String> droppedRequiredFields = contactQuery.getDroppedRequiredFields();
+        if(!droppedRequiredFields.isEmpty()){
+            throw new IllegalArgumentException("XML address books must keep the fields the schema requires: " + String.join(", ", droppedRequiredFields));
+        }
+    }
+
+    private static AddressBookFormat requireFormat(File file) throws IOException {
+        AddressBookFormat format = AddressBookFormat.forFileName(file.getName());
+        if(format == null){
+            throw new IOException("Accepted file types are .xml, .json, .ndjson, .smile or .cbor: " + file.getPath());
+        }
+        return format;
+    }
+
+    /**
+     * Method to copy every contact from the given reader to the given writer, one contact at a time.
+     * @param contactReader ContactReader: source of the contacts
+     * @param contactWriter ContactWriter: destination of the contacts
+     * @return long: number of contacts copied
+     * @throws IOException if a contact could not be read or written
+     */
+    private long copyContacts(ContactReader contactReader, ContactWriter contactWriter) throws IOException {
+        long contactCount = 0;
+        Contact contact;
+        while((contact = contactReader.nextContact()) != null){
+            contactWriter.writeContact(contact);
+            contactCount++;
+        }
+        return contactCount;
+    }
+
+    /**
+     * Method to open the given address book file for reading in the input mode of this parser,
+     * decompressing it according to its extension.
+     * @param inputFile File: address book to read
+     * @return InputStream: the decompressed contents of the file
+     * @throws IOException if the file could not be opened or does not start with a valid header for its codec
+     */
+    InputStream openInputStream(File inputFile) throws IOException {
+        return Compression.openInputStream(inputFile, inputMode == InputMode.MEMORY_MAPPED);
+    }
+
+    /**
+     * Method to write an output file by way of a temporary file in the same directory, named so that it keeps the
+     * extensions of the output file (and so its format and compression). The temporary file replaces the output file
+     * only once it has been written completely, and is deleted if writing it fails,
+     * so the output file is never left holding part of an address book.
+     * @param outputFile File: file to write
+     * @param fileWrite FileWrite: writes the whole output to the temporary file it is given
+     * @param <T> type of the result of the write
+     * @return T: the result of the write
+     * @throws IOException if the output file is a directory, the output could not be written, or the temporary file could not be moved into place
+     */
+    static <T> T writeAtomically(File outputFile, FileWrite<T> fileWrite) throws IOException {
+        if(outputFile.getName().isEmpty() || outputFile.isDirectory()){
+            throw new IOException("Invalid output file given: " + outputFile.getAbsolutePath());
+        }
+        File temporaryFile = File.createTempFile(".address-book-convert", "." + outputFile.getName(), outputFile.getAbsoluteFile().getParentFile());
+        try {
+            T result = fileWrite.writeTo(temporaryFile);
+            try {
+                Files.move(temporaryFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return result;
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    /**
+     * Writes the whole of an output to the given file, see AddressBookParser#writeAtomically.
+     * @param <T> type of the result of the write
+     */
+    interface FileWrite<T> {
+        T writeTo(File file) throws IOException;
+    }
+
+    /**
+     * Method to open a streaming reader over the contacts of the XML read from the given stream, validating it as it is read.
+     * @param xmlInputStream InputStream: XML address book to read. Closed when the reader is closed.
+     * @return ContactReader: reader positioned before the first contact
+     * @throws IOException if the stream reader could not be created
+     */
+    ContactReader newXmlContactReader(InputStream xmlInputStream) throws IOException {
+        return new XmlContactReader(xmlInputFactory, xmlInputStream, schemaValidatorPool.borrowStreamingValidator());
+    }
+
+    /**
+     * Method to open a streaming writer that writes a JSON address book to the given file.
+     * @param jsonOutputFile File: JSON output file
+     * @return ContactWriter: writer for the contacts of the address book
+     * @throws IOException if the file could not be created
+     */
+    private ContactWriter newJsonContactWriter(File jsonOutputFile) throws IOException {
+        OutputStream jsonOutputStream = Compression.openOutputStream(jsonOutputFile);
+        try {
+            return newJsonContactWriter(jsonOutputStream);
+        } catch (IOException | RuntimeException e) {
+            jsonOutputStream.close();
+            throw e;
+        }
+    }
+
+    private ContactWriter newJsonContactWriter(OutputStream jsonOutputStream) throws IOException {
+        JsonGenerator jsonGenerator = jsonFactory.createGenerator(jsonOutputStream, JsonEncoding.UTF8);
+        if(outputLayout == OutputLayout.INDENTED){
+            jsonGenerator.useDefaultPrettyPrinter();
+        }
+        return new JsonContactWriter(jsonGenerator);
+    }
+
+    private ContactReader newJsonContactReader(InputStream jsonInputStream) throws IOException {
+        return new JsonContactReader(jsonFactory.createParser(jsonInputStream));
+    }
+
+    /**
+     * Method to open a streaming writer that writes an XML address book to the given file, validating it as it is written.
+     * @param xmlOutputFile File: XML output file
+     * @return ContactWriter: writer for the contacts of the address book
+     * @throws IOException if the file could not be created
+     */
+    private ContactWriter newXmlContactWriter(File xmlOutputFile) throws IOException {
+        OutputStream xmlOutputStream = Compression.openOutputStream(xmlOutputFile);
+        try {
+            return newXmlContactWriter(xmlOutputStream);
+        } catch (IOException | RuntimeException e) {
+            xmlOutputStream.close();
+            throw e;
+        }
+    }
+
+    private ContactWriter newXmlContactWriter(OutputStream xmlOutputStream) throws IOException {
+        return new XmlContactWriter(xmlOutputFactory, xmlOutputStream, schemaValidatorPool.borrowStreamingValidator(), outputLayout == OutputLayout.INDENTED);
     }
 }
@@ -0,0 +1,351 @@
+package utility;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Long-running HTTP server that keeps a warmed up AddressBookParser, so that converting or validating an
+ * address book does not pay for JVM startup and loading Jackson and Woodstox every time.
+ * The server only listens on the loopback address, and works on file paths, so the client and server must
+ * share a filesystem.
+ *
+ * As any local user, or a web page through the browser, can reach the loopback address, every request must carry the
+ * random token the server writes on start up to a file only the user running it can read (see #getTokenFile),
+ * in the TOKEN_HEADER header. Requests whose Host or Origin header is not the loopback address are rejected as well,
+ * so a page served from another origin (or a DNS name rebound to 127.0.0.1) cannot use the server. The endpoints are:
+ *      POST /convert?input=<file>&output=<file>    converts an .xml, .json, .ndjson, .smile or .cbor address book to another of those formats
+ *      POST /validate?input=<file>                 responds "true" if the .xml, .json, .ndjson, .smile or .cbor file is a valid address book, otherwise "false"
+ *      POST /shutdown                              stops the server
+ * A successful request gets a 200 response, an invalid address book a 422, a bad request a 400,
+ * and a request without the token, or from another origin, a 403.
+ * @see utility.AddressBookClient
+ */
+public final class AddressBookServer {
+    public static final int DEFAULT_PORT = 7390;
+    public static final String TOKEN_HEADER = "X-Address-Book-Token";
+    public static final File DEFAULT_TOKEN_DIRECTORY = new File(System.getProperty("user.home"), ".address-book-server");
+    private static final int WARM_UP_ITERATIONS = 20;
+    private static final int TOKEN_LENGTH = 32;
+
+    private final AddressBookParser addressBookParser;
+    private final HttpServer httpServer;
+    private final File tokenFile;
+    private final byte[] token;
+    private final ExecutorService executorService;
+    private final Logger LOGGER = Logger.getLogger(getClass().getName());
+
+    /**
+     * Creates a server whose token file is kept in DEFAULT_TOKEN_DIRECTORY.
+     * @param addressBookParser AddressBookParser: parser shared by every request
+     * @param port int: port to listen on, or 0 to pick a free port
+     * @throws IOException if the server could not bind to the port, or the token file could not be written
+     */
+    public AddressBookServer(AddressBookParser addressBookParser, int port) throws IOException {
+        this(addressBookParser, port, DEFAULT_TOKEN_DIRECTORY);
+    }
+
+    /**
+     * @param addressBookParser AddressBookParser: parser shared by every request
+     * @param port int: port to listen on, or 0 to pick a free port
+     * @param tokenDirectory File: directory to write the token file to, created readable by the current user only if it does not exist
+     * @throws IOException if the server could not bind to the port, or the token file could not be written
+     */
+    public AddressBookServer(AddressBookParser addressBookParser, int port, File tokenDirectory) throws IOException {
+        LOGGER.setLevel(Level.SEVERE);
+        this.addressBookParser = addressBookParser;
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.token = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(token);
+        try {
+            this.tokenFile = tokenFileFor(tokenDirectory, getPort());
+            writeToken(tokenFile, encodeToken(token));
+        } catch (IOException | RuntimeException e) {
+            httpServer.stop(0);
+            throw e;
+        }
+        this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        httpServer.setExecutor(executorService);
+        httpServer.createContext("/convert", exchange -> handle(exchange, this::convert));
+        httpServer.createContext("/validate", exchange -> handle(exchange, this::validate));
+        httpServer.createContext("/shutdown", exchange -> handle(exchange, parameters -> {
+            new Thread(this::stop, "address-book-server-shutdown").start();
+            return "Shutting down.";
+        }));
+    }
+
+    public void start(){
+        httpServer.start();
+    }
+
+    /**
+     * Method to run a few conversions and validations of the bundled /ad.xml before serving requests,
+     * so that the classes are loaded and the hot paths are compiled by the time the first request arrives.
+     * @throws IOException if the warm up conversions could not be written to temporary files
+     */
+    public void warmUp() throws IOException {
+        File xmlFile = File.createTempFile("address-book-warm-up", ".xml");
+        File jsonFile = File.createTempFile("address-book-warm-up", ".json");
+        try(InputStream inputStream = getClass().getResourceAsStream("/ad.xml")){
+            if(inputStream == null){
+                return;
+            }
+            Files.copy(inputStream, xmlFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            for(int i = 0; i < WARM_UP_ITERATIONS; i++){
+                addressBookParser.convertXmlAddressBookToJson(xmlFile, jsonFile);
+                addressBookParser.convertJsonAddressBookToXml(jsonFile, xmlFile);
+                addressBookParser.isValidXmlAddressBook(xmlFile);
+                addressBookParser.isValidJsonAddressBook(jsonFile);
+            }
+        } finally {
+            xmlFile.delete();
+            jsonFile.delete();
+        }
+    }
+
+    public void stop(){
+        httpServer.stop(0);
+        executorService.shutdown();
+        tokenFile.delete();
+    }
+
+    /**
+     * @return int: the port the server is listening on
+     */
+    public int getPort(){
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return File: the file holding the token requests must carry, deleted when the server stops
+     */
+    public File getTokenFile(){
+        return tokenFile;
+    }
+
+    /**
+     * Method to find the token file of the server listening on the given port.
+     * @param tokenDirectory File: directory the server writes its token file to
+     * @param port int: port the server is listening on
+     * @return File: the token file
+     */
+    public static File tokenFileFor(File tokenDirectory, int port){
+        return new File(tokenDirectory, port + ".token");
+    }
+
+    /**
+     * Method to write the token to a file that only the current user can read. The file is written under a temporary
+     * name, created with those permissions, and moved into place, so it is never readable by anyone else, even briefly.
+     * On filesystems without POSIX permissions the file is restricted to its owner as far as java.io.File allows.
+     * @param tokenFile File: file to write the token to
+     * @param encodedToken String: the token
+     * @throws IOException if the file could not be written
+     */
+    private static void writeToken(File tokenFile, String encodedToken) throws IOException {
+        Path tokenDirectory = tokenFile.getAbsoluteFile().getParentFile().toPath();
+        boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if(!Files.isDirectory(tokenDirectory)){
+            if(isPosix){
+                Files.createDirectories(tokenDirectory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            }
+            else{
+                Files.createDirectories(tokenDirectory);
+            }
+        }
+
+        Path temporaryFile = isPosix
+                ? Files.createTempFile(tokenDirectory, ".token", ".tmp", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+                : Files.createTempFile(tokenDirectory, ".token", ".tmp");
+        try {
+            if(!isPosix){
+                File file = temporaryFile.toFile();
+                file.setReadable(false, false);
+                file.setWritable(false, false);
+                file.setReadable(true, true);
+                file.setWritable(true, true);
+            }
+            Files.write(temporaryFile, encodedToken.getBytes(StandardCharsets.US_ASCII));
+            try {
+                Files.move(temporaryFile, tokenFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, tokenFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    static String encodeToken(byte[] token){
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    private String convert(Map<String, String> parameters) throws IOException {
+        File inputFile = new File(requireParameter(parameters, "input"));
+        File outputFile = new File(requireParameter(parameters, "output"));
+        AddressBookFormat inputFormat = AddressBookFormat.forFileName(inputFile.getName());
+        AddressBookFormat outputFormat = AddressBookFormat.forFileName(outputFile.getName());
+        if(inputFormat == null || outputFormat == null || inputFormat == outputFormat){
+            throw new BadRequestException("Accepted file types are .xml, .json, .ndjson, .smile or .cbor, and the output must be a different format.");
+        }
+        addressBookParser.convertAddressBook(inputFile, outputFile);
+        return "Successfully converted address book!";
+    }
+
+    private String validate(Map<String, String> parameters) throws IOException {
+        File inputFile = new File(requireParameter(parameters, "input"));
+        boolean isValidAddressBook = addressBookParser.isValidAddressBook(inputFile);
+        return String.valueOf(isValidAddressBook);
+    }
+
+    /**
+     * Method to run a request handler and send its result, or the error it threw, back to the client.
+     * @param exchange HttpExchange: the request and response
+     * @param requestHandler RequestHandler: handler for the endpoint
+     */
+    private void handle(HttpExchange exchange, RequestHandler requestHandler) throws IOException {
+        int statusCode = 200;
+        String responseBody;
+        try {
+            if(!isLocalRequest(exchange) || !hasToken(exchange)){
+                throw new ForbiddenException("Requests must come from the loopback address and carry the server's token in the " + TOKEN_HEADER + " header.");
+            }
+            if(!"POST".equals(exchange.getRequestMethod())){
+                throw new BadRequestException("Only POST requests are accepted.");
+            }
+            responseBody = requestHandler.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (ForbiddenException e) {
+            statusCode = 403;
+            responseBody = e.getMessage();
+        } catch (BadRequestException e) {
+            statusCode = 400;
+            responseBody = e.getMessage();
+        } catch (InvalidAddressBookException e) {
+            statusCode = 422;
+            responseBody = e.getMessage();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not handle request " + exchange.getRequestURI(), e);
+            statusCode = 500;
+            responseBody = String.valueOf(e.getMessage());
+        }
+
+        byte[] responseBytes = responseBody.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, responseBytes.length);
+        try(OutputStream responseStream = exchange.getResponseBody()){
+            responseStream.write(responseBytes);
+        }
+    }
+
+    /**
+     * Method to check that the request was addressed to the loopback address, and, if it was sent by a web page,
+     * that the page was served from it, so other sites cannot reach the server through the browser.
+     * @param exchange HttpExchange: the request
+     * @return true if the Host header, and the Origin header if there is one, name the loopback address
+     */
+    private static boolean isLocalRequest(HttpExchange exchange){
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        String origin = exchange.getRequestHeaders().getFirst("Origin");
+        return host != null && isLoopbackHost(hostOf("http://" + host)) && (origin == null || isLoopbackHost(hostOf(origin)));
+    }
+
+    private static String hostOf(String uri){
+        try {
+            return new URI(uri).getHost();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static boolean isLoopbackHost(String host){
+        if(host == null){
+            return false;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        return host.equals("localhost") || host.equals("127.0.0.1") || host.equals("[::1]");
+    }
+
+    private boolean hasToken(HttpExchange exchange){
+        String requestToken = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        //Compared in constant time, so the response time does not give away how much of a guess was right
+        return requestToken != null && MessageDigest.isEqual(encodeToken(token).getBytes(StandardCharsets.US_ASCII), requestToken.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if(rawQuery == null || rawQuery.isEmpty()){
+            return parameters;
+        }
+        for(String parameter : rawQuery.split("&")){
+            int separator = parameter.indexOf('=');
+            if(separator > 0){
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static String requireParameter(Map<String, String> parameters, String name) throws BadRequestException {
+        String value = parameters.get(name);
+        if(value == null || value.isEmpty()){
+            throw new BadRequestException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Handler for a single endpoint, given the query parameters of the request.
+     */
+    private interface RequestHandler {
+        String handle(Map<String, String> parameters) throws IOException;
+    }
+
+    /**
+     * Thrown when a request is missing parameters or asks for an unsupported conversion.
+     */
+    private static final class BadRequestException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequestException(String errorMessage){
+            super(errorMessage);
+        }
+    }
+
+    /**
+     * Thrown when a request does not carry the token, or does not come from the loopback address.
+     */
+    private static final class ForbiddenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ForbiddenException(String errorMessage){
+            super(errorMessage);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Class to convert many address books at once, using worker threads that share one AddressBookParser.
+ * XML address books are converted to JSON and JSON address books are converted to XML.
+ * Each output file is written to the output directory with the same name as its input file and the new extension,
+ * compressed with the same codec as its input file (e.g. "ad.xml.gz" is converted to "ad.json.gz").
+ * At most the given number of files are converted at the same time, on either a fixed pool of platform threads
+ * or one virtual thread per file (see ExecutionMode).
+ * An incremental batch skips the files that have not changed since they were last converted into the same
+ * output directory with the same schema, see BatchManifest.
+ */
+public final class BatchConverter {
+    private static final String XML_EXTENSION = ".xml";
+    private static final String JSON_EXTENSION = ".json";
+
+    /**
+     * How the files of a batch are scheduled.
+     */
+    public enum ExecutionMode {
+        /**
+         * A fixed pool of platform threads, one per file being converted at the same time.
+         * Best suited to large, CPU-bound address books.
+         */
+        PLATFORM_THREADS,
+        /**
+         * One virtual thread per file, so that many small, I/O-bound conversions can overlap cheaply.
+         * On JVMs without virtual threads (before Java 21) a fixed pool of daemon platform threads is used instead.
+         */
+        VIRTUAL_THREADS
+    }
+
+    private final AddressBookParser addressBookParser;
+    private final int concurrency;
+    private final ExecutionMode executionMode;
+
+    /**
+     * Creates a converter that uses a fixed pool of platform threads.
+     * @param addressBookParser AddressBookParser: parser shared by all worker threads
+     * @param threadCount int: number of files to convert at the same time
+     */
+    public BatchConverter(AddressBookParser addressBookParser, int threadCount){
+        this(addressBookParser, threadCount, ExecutionMode.PLATFORM_THREADS);
+    }
+
+    /**
+     * @param addressBookParser AddressBookParser: parser shared by all worker threads
+     * @param concurrency int: maximum number of files to convert at the same time
+     * @param executionMode ExecutionMode: whether to use platform or virtual threads
+     */
+    public BatchConverter(AddressBookParser addressBookParser, int concurrency, ExecutionMode executionMode){
+        if(concurrency < 1){
+            throw new IllegalArgumentException("Concurrency must be at least 1.");
+        }
+        this.addressBookParser = addressBookParser;
+        this.concurrency = concurrency;
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * @return boolean: true if this JVM supports virtual threads (Java 21 or later)
+     */
+    public static boolean isVirtualThreadSupported(){
+        return virtualThreadExecutorFactory() != null;
+    }
+
+    /**
+     * Method to find the address books to convert.
+     * If the input is a directory, every .xml and .json file directly inside it is returned.
+     * Otherwise the last part of the input is treated as a glob pattern (e.g. "exports/*.xml") over its parent directory.
+     * @param input String: directory or glob pattern of the address books
+     * @return List of File: the .xml and .json files found, sorted by name
+     * @throws IOException if the directory could not be read
+     */
+    public static List<File> findAddressBooks(String input) throws IOException {
+        Path inputPath = Paths.get(input);
+        Path directory = inputPath;
+        String glob = "*";
+        if(!Files.isDirectory(inputPath)){
+            directory = (inputPath.getParent() == null) ? Paths.get(".") : inputPath.getParent();
+            glob = inputPath.getFileName().toString();
+        }
+        if(!Files.isDirectory(directory)){
+            throw new IOException("Invalid input directory given: " + directory.toAbsolutePath());
+        }
+
+        List<File> addressBooks = new ArrayList<>();
+        try(DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, glob)){
+            for(Path path : directoryStream){
+                String fileName = Compression.stripExtension(path.getFileName().toString());
+                if(Files.isRegularFile(path) && (fileName.endsWith(XML_EXTENSION) || fileName.endsWith(JSON_EXTENSION))){
+                    addressBooks.add(path.toFile());
+                }
+            }
+        }
+        addressBooks.sort(null);
+        return addressBooks;
+    }
+
+    /**
+     * Method to convert every given address book into the output directory.
+     * A file that fails to convert does not stop the rest of the batch; its error is recorded in the report.
+     * No more than the configured number of conversions are in flight at once, which also bounds the
+     * number of virtual threads alive at the same time.
+     * @param inputFiles List of File: .xml and .json address books to convert
+     * @param outputDirectory File: directory to write the converted address books to. Created if it does not exist.
+     * @return BatchReport: the result of each conversion and the throughput of the batch
+     * @throws IOException if the output directory could not be created
+     */
+    public BatchReport convert(List<File> inputFiles, File outputDirectory) throws IOException {
+        createOutputDirectory(outputDirectory);
+        return convert(inputFiles, outputDirectory, null);
+    }
+
+    /**
+     * Method to convert the given address books into the output directory, skipping those that are unchanged since
+     * the last incremental batch into the same directory. The manifest of the batch (in the output directory) records
+     * the hash of each input file and of the schema, so nothing is converted or validated again unless the input,
+     * the schema, or the output file has changed. Files that fail to convert are converted again by the next batch.
+     * @param inputFiles List of File: .xml and .json address books to convert
+     * @param outputDirectory File: directory to write the converted address books to. Created if it does not exist.
+     * @return BatchReport: the result of each conversion, with the skipped files marked as up to date
+     * @throws IOException if the output directory could not be created, or the manifest could not be read or written
+     */
+    public BatchReport convertIncrementally(List<File> inputFiles, File outputDirectory) throws IOException {
+        createOutputDirectory(outputDirectory);
+        BatchManifest batchManifest = BatchManifest.load(outputDirectory, addressBookParser);
+        BatchReport batchReport = convert(inputFiles, outputDirectory, batchManifest);
+        batchManifest.save();
+        return batchReport;
+    }
+
+    private static void createOutputDirectory(File outputDirectory) throws IOException {
+        if(!outputDirectory.isDirectory() && !outputDirectory.mkdirs()){
+            throw new IOException("Could not create output directory: " + outputDirectory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Method to convert the given address books on the executor of this converter.
+     * @param inputFiles List of File: .xml and .json address books to convert
+     * @param outputDirectory File: existing directory to write the converted address books to
+     * @param batchManifest BatchManifest: manifest of an incremental batch, or null to convert every file
+     * @return BatchReport: the result of each conversion and the throughput of the batch
+     * @throws IOException if the batch was interrupted
+     */
+    private BatchReport convert(List<File> inputFiles, File outputDirectory, BatchManifest batchManifest) throws IOException {
+        long startTime = System.nanoTime();
+        ExecutorService executorService = newExecutorService();
+        Semaphore conversionPermits = new Semaphore(concurrency);
+        try {
+            List<Future<BatchReport.FileResult>> futures = new ArrayList<>(inputFiles.size());
+            for(File inputFile : inputFiles){
+                acquire(conversionPermits);
+                Callable<BatchReport.FileResult> conversionTask = conversionTask(inputFile, outputDirectory, batchManifest);
+                futures.add(executorService.submit(() -> {
+                    try {
+                        return conversionTask.call();
+                    } finally {
+                        conversionPermits.release();
+                    }
+                }));
+            }
+
+            List<BatchReport.FileResult> fileResults = new ArrayList<>(inputFiles.size());
+            for(Future<BatchReport.FileResult> future : futures){
+                fileResults.add(getResult(future));
+            }
+            return new BatchReport(fileResults, System.nanoTime() - startTime);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to create the task that converts a single address book.
+     * @param inputFile File: address book to convert
+     * @param outputDirectory File: directory to write the converted address book to
+     * @param batchManifest BatchManifest: manifest of an incremental batch, or null to always convert the file
+     * @return Callable: task returning the result of the conversion
+     */
+    private Callable<BatchReport.FileResult> conversionTask(File inputFile, File outputDirectory, BatchManifest batchManifest){
+        return () -> {
+            long startTime = System.nanoTime();
+            File outputFile = null;
+            try {
+                String inputFileName = Compression.stripExtension(inputFile.getName());
+                String compressionExtension = Compression.forFileName(inputFile.getName()).getExtension();
+                boolean isXml = inputFileName.endsWith(XML_EXTENSION);
+                if(isXml){
+                    outputFile = new File(outputDirectory, changeExtension(inputFileName, XML_EXTENSION, JSON_EXTENSION) + compressionExtension);
+                }
+                else if(inputFileName.endsWith(JSON_EXTENSION)){
+                    outputFile = new File(outputDirectory, changeExtension(inputFileName, JSON_EXTENSION, XML_EXTENSION) + compressionExtension);
+                }
+                else {
+                    throw new IOException("Accepted file types are .xml or .json.");
+                }
+
+                BatchManifest.Snapshot input = null;
+                if(batchManifest != null){
+                    input = batchManifest.snapshot(inputFile);
+                    if(batchManifest.isUpToDate(inputFile, input, outputFile)){
+                        return new BatchReport.FileResult(inputFile, outputFile, null, System.nanoTime() - startTime, true);
+                    }
+                }
+
+                if(isXml){
+                    addressBookParser.convertXmlAddressBookToJson(inputFile, outputFile);
+                }
+                else {
+                    addressBookParser.convertJsonAddressBookToXml(inputFile, outputFile);
+                }
+                if(batchManifest != null){
+                    batchManifest.record(inputFile, input, outputFile);
+                }
+                return new BatchReport.FileResult(inputFile, outputFile, null, System.nanoTime() - startTime, false);
+            } catch (IOException | RuntimeException | InternalError e) {
+                //InternalError is how the JVM reports a memory-mapped input file that was truncated while it was read
+                if(batchManifest != null){
+                    batchManifest.remove(inputFile);
+                }
+                String errorMessage = (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage();
+                return new BatchReport.FileResult(inputFile, outputFile, errorMessage, System.nanoTime() - startTime, false);
+            }
+        };
+    }
+
+    /**
+     * Method to create the executor for a batch, according to the execution mode.
+     * @return ExecutorService: executor to run the conversions on
+     */
+    private ExecutorService newExecutorService(){
+        if(executionMode == ExecutionMode.VIRTUAL_THREADS){
+            Method virtualThreadExecutorFactory = virtualThreadExecutorFactory();
+            if(virtualThreadExecutorFactory != null){
+                try {
+                    return (ExecutorService) virtualThreadExecutorFactory.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Could not create virtual thread executor.", e);
+                }
+            }
+            return Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "address-book-converter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return Executors.newFixedThreadPool(concurrency);
+    }
+
+    /**
+     * Method to look up Executors#newVirtualThreadPerTaskExecutor(), which only exists on Java 21 and later.
+     * It is looked up reflectively so the application still compiles and runs on older JVMs.
+     * @return Method: the factory method, or null if virtual threads are not supported
+     */
+    private static Method virtualThreadExecutorFactory(){
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) throws IOException {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch conversion was interrupted.", e);
+        }
+    }
+
+    private static BatchReport.FileResult getResult(Future<BatchReport.FileResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch conversion was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch conversion failed.", e.getCause());
+        }
+    }
+
+    private static String changeExtension(String fileName, String oldExtension, String newExtension){
+        return fileName.substring(0, fileName.length() - oldExtension.length()) + newExtension;
+    }
+}
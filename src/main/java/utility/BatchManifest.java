@@ -0,0 +1,214 @@
+package utility;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifest of an incremental batch conversion, kept in the output directory as a small tab separated text file.
+ * For every input file that was converted successfully it records the size, modification time and SHA-256 hash
+ * of the input, and the name and size of the output it was converted to. The manifest also records the hash of the
+ * schema and the output layout the files were converted with, and is discarded as a whole when either changes.
+ *
+ * An input file is only hashed again when its size or modification time differ from the manifest, so a rerun over
+ * unchanged files only has to stat them. A file that was touched but not changed is hashed, found to be the same,
+ * and still skipped. Entries are updated from the worker threads of a batch and written once it has finished.
+ */
+final class BatchManifest {
+    static final String FILE_NAME = ".address-book-manifest";
+    private static final String HEADER = "# address book batch manifest v1";
+    private static final String CONFIGURATION = "configuration";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File manifestFile;
+    private final String configuration;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private BatchManifest(File manifestFile, String configuration){
+        this.manifestFile = manifestFile;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Method to read the manifest of the given output directory.
+     * A missing manifest, or one written with a different schema or output layout, gives an empty manifest,
+     * so every file is converted again.
+     * @param outputDirectory File: output directory of the batch
+     * @param addressBookParser AddressBookParser: parser the batch is converted with
+     * @return BatchManifest: the entries of the previous runs that are still valid for this parser
+     * @throws IOException if the manifest exists but could not be read
+     */
+    static BatchManifest load(File outputDirectory, AddressBookParser addressBookParser) throws IOException {
+        String configuration = addressBookParser.getSchemaHash() + '\t' + addressBookParser.getOutputLayout();
+        BatchManifest batchManifest = new BatchManifest(new File(outputDirectory, FILE_NAME), configuration);
+        if(!batchManifest.manifestFile.isFile()){
+            return batchManifest;
+        }
+
+        try(BufferedReader reader = Files.newBufferedReader(batchManifest.manifestFile.toPath(), StandardCharsets.UTF_8)){
+            if(!HEADER.equals(reader.readLine()) || !(CONFIGURATION + '\t' + configuration).equals(reader.readLine())){
+                return batchManifest;
+            }
+            String line;
+            while((line = reader.readLine()) != null){
+                String[] fields = line.split("\t", 6);
+                if(fields.length != 6){
+                    throw new IOException("Invalid line in batch manifest " + batchManifest.manifestFile.getPath() + ": " + line);
+                }
+                try {
+                    Snapshot input = new Snapshot(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]);
+                    batchManifest.entries.put(fields[5], new Entry(input, fields[3], Long.parseLong(fields[4])));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid line in batch manifest " + batchManifest.manifestFile.getPath() + ": " + line, e);
+                }
+            }
+        }
+        return batchManifest;
+    }
+
+    /**
+     * Method to take a snapshot of the given input file before it is converted.
+     * The hash recorded in the manifest is reused if the size and modification time of the file have not changed,
+     * otherwise the file is read and hashed.
+     * @param inputFile File: input file of the batch
+     * @return Snapshot: size, modification time and hash of the file
+     * @throws IOException if the file could not be read
+     */
+    Snapshot snapshot(File inputFile) throws IOException {
+        long size = inputFile.length();
+        long lastModified = inputFile.lastModified();
+        Entry entry = entries.get(key(inputFile));
+        if(entry != null && entry.input.size == size && entry.input.lastModified == lastModified){
+            return entry.input;
+        }
+        return new Snapshot(size, lastModified, sha256(inputFile));
+    }
+
+    /**
+     * Method to check whether the given input has already been converted to the given output file.
+     * @param inputFile File: input file of the batch
+     * @param input Snapshot: snapshot of the input file taken before the check
+     * @param outputFile File: output file the input would be converted to
+     * @return true if the manifest has the same hash for the input, and the output still exists unchanged in size
+     */
+    boolean isUpToDate(File inputFile, Snapshot input, File outputFile){
+        Entry entry = entries.get(key(inputFile));
+        return entry != null && entry.input.hash.equals(input.hash) && entry.outputFileName.equals(outputFile.getName())
+                && outputFile.isFile() && outputFile.length() == entry.outputSize;
+    }
+
+    /**
+     * Method to record that the given input was converted to the given output file.
+     * The snapshot taken before the conversion is recorded, so a file that changes while it is converted is converted again next time.
+     * @param inputFile File: input file of the batch
+     * @param input Snapshot: snapshot of the input file taken before the conversion
+     * @param outputFile File: output file the input was converted to
+     */
+    void record(File inputFile, Snapshot input, File outputFile){
+        entries.put(key(inputFile), new Entry(input, outputFile.getName(), outputFile.length()));
+    }
+
+    /**
+     * Method to forget the given input file, e.g. because its conversion failed, so it is converted again next time.
+     * @param inputFile File: input file of the batch
+     */
+    void remove(File inputFile){
+        entries.remove(key(inputFile));
+    }
+
+    /**
+     * Method to write the manifest to the output directory. The manifest is written to a temporary file first
+     * and moved into place, so an interrupted batch never leaves a truncated manifest behind.
+     * @throws IOException if the manifest could not be written
+     */
+    void save() throws IOException {
+        File temporaryFile = new File(manifestFile.getParentFile(), FILE_NAME + ".tmp");
+        try(BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8)){
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(CONFIGURATION + '\t' + configuration);
+            writer.newLine();
+            for(Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()){
+                Entry value = entry.getValue();
+                writer.write(value.input.size + "\t" + value.input.lastModified + "\t" + value.input.hash + "\t"
+                        + value.outputFileName + "\t" + value.outputSize + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(temporaryFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String key(File inputFile){
+        return inputFile.getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    /**
+     * Method to hash the raw bytes of the given file, so compressed files are not decompressed to be hashed.
+     * @param file File: file to hash
+     * @return String: hex encoded SHA-256 hash of the file
+     * @throws IOException if the file could not be read
+     */
+    private static String sha256(File file) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        try(InputStream inputStream = new FileInputStream(file)){
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while((read = inputStream.read(buffer)) != -1){
+                messageDigest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        for(byte b : messageDigest.digest()){
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Size, modification time and content hash of an input file at one point in time.
+     */
+    static final class Snapshot {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private Snapshot(long size, long lastModified, String hash){
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private static final class Entry {
+        private final Snapshot input;
+        private final String outputFileName;
+        private final long outputSize;
+
+        private Entry(Snapshot input, String outputFileName, long outputSize){
+            this.input = input;
+            this.outputFileName = outputFileName;
+            this.outputSize = outputSize;
+        }
+    }
+}
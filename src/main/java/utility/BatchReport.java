@@ -0,0 +1,134 @@
+package utility;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of converting a batch of address books with BatchConverter:
+ * whether each file was converted, and the total throughput of the batch.
+ */
+public final class BatchReport {
+    private final List<FileResult> fileResults;
+    private final long elapsedNanos;
+
+    BatchReport(List<FileResult> fileResults, long elapsedNanos){
+        this.fileResults = Collections.unmodifiableList(new ArrayList<>(fileResults));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return List of FileResult: the result of each file, in the order the files were given
+     */
+    public List<FileResult> getFileResults() {
+        return fileResults;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getSuccessCount(){
+        int successCount = 0;
+        for(FileResult fileResult : fileResults){
+            if(fileResult.isSuccess()){
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
+    public int getFailureCount(){
+        return fileResults.size() - getSuccessCount();
+    }
+
+    /**
+     * @return int: number of files skipped by an incremental batch because they had not changed
+     */
+    public int getUpToDateCount(){
+        int upToDateCount = 0;
+        for(FileResult fileResult : fileResults){
+            if(fileResult.isUpToDate()){
+                upToDateCount++;
+            }
+        }
+        return upToDateCount;
+    }
+
+    /**
+     * @return long: total size in bytes of the input files that were converted successfully, not counting skipped files
+     */
+    public long getConvertedBytes(){
+        long convertedBytes = 0;
+        for(FileResult fileResult : fileResults){
+            if(fileResult.isSuccess() && !fileResult.isUpToDate()){
+                convertedBytes += fileResult.getInputFile().length();
+            }
+        }
+        return convertedBytes;
+    }
+
+    /**
+     * @return double: number of files (converted or not) processed per second
+     */
+    public double getFilesPerSecond(){
+        return (elapsedNanos == 0) ? 0 : fileResults.size() / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * @return double: number of input megabytes converted per second
+     */
+    public double getMegabytesPerSecond(){
+        return (elapsedNanos == 0) ? 0 : (getConvertedBytes() / (1024.0 * 1024.0)) / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Result of converting a single address book in a batch.
+     */
+    public static final class FileResult {
+        private final File inputFile;
+        private final File outputFile;
+        private final String errorMessage;
+        private final long elapsedNanos;
+        private final boolean upToDate;
+
+        FileResult(File inputFile, File outputFile, String errorMessage, long elapsedNanos, boolean upToDate){
+            this.inputFile = inputFile;
+            this.outputFile = outputFile;
+            this.errorMessage = errorMessage;
+            this.elapsedNanos = elapsedNanos;
+            this.upToDate = upToDate;
+        }
+
+        public File getInputFile() {
+            return inputFile;
+        }
+
+        public File getOutputFile() {
+            return outputFile;
+        }
+
+        /**
+         * @return String: why the conversion failed, or null if it succeeded
+         */
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public boolean isSuccess(){
+            return errorMessage == null;
+        }
+
+        /**
+         * @return true if an incremental batch skipped the file because its output was already up to date
+         */
+        public boolean isUpToDate(){
+            return upToDate;
+        }
+    }
+}
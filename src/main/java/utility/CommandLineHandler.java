@@ -1,7 +1,15 @@
 package utility;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,13 +21,31 @@ import java.util.logging.Logger;
  * When passed command line arguments, it should be in the form:
  *      To convert a address book:
  *          java -jar [jarFileName].jar <input file> <output file>
+ *          Either file may be "-" to read from standard input or write to standard output.
+ *      To convert a large XML address book using several cores:
+ *          java -jar [jarFileName].jar <input xml file> <output file> --parallel [threads]
  *      To validate an address book:
  *          java -jar [jarFileName].jar <input file> --validate
  *          java -jar [jarFileName].jar <input file> -v
+ *      To convert every address book in a directory:
+ *          java -jar [jarFileName].jar --batch <input directory or glob> <output directory> [concurrency] [--virtual-threads] [--incremental]
+ *      To index a large address book, and look up contacts in it without reading the whole file:
+ *          java -jar [jarFileName].jar --index <address book> [--fields <field,field,...>]
+ *          java -jar [jarFileName].jar --lookup <address book> [field] <value>
+ *      To generate a synthetic address book:
+ *          java -jar [jarFileName].jar --generate <output file> <contact count> [--seed N] [--density D] [--unicode]
+ *      To keep a warmed up converter running, and send it conversions from a thin client:
+ *          java -jar [jarFileName].jar --server [port]
+ *          java -jar [jarFileName].jar --client <port> <input file> <output file>
+ *          java -jar [jarFileName].jar --client <port> <input file> --validate
+ *      Any of the above can be given --mmap to read the input files through memory-mapped segments.
  */
 public class CommandLineHandler {
+    private static final String STANDARD_STREAM = "-";
+    private static final int STANDARD_INPUT_BUFFER_SIZE = 64 * 1024;
+    private static final String MEMORY_MAPPED_OPTION = "--mmap";
 
-    private final AddressBookParser addressBookParser = new AddressBookParser();
+    private AddressBookParser addressBookParser = new AddressBookParser();
     private final Logger LOGGER = Logger.getLogger(getClass().getName());
 
     public CommandLineHandler(){
@@ -65,7 +91,7 @@ public class CommandLineHandler {
                     convertJsonAddressBookToXml(inputFile, outputFile);
                     break;
                 case 3:
-                    System.out.println("Please enter the filepath for the XML or JSON document to be validated: ");
+                    System.out.println("Please enter the filepath for the address book document to be validated: ");
                     inputFile = new File(scanner.nextLine());
                     validateAddressBookSchema(inputFile);
                     break;
@@ -85,13 +111,82 @@ public class CommandLineHandler {
      * Will exit and display the command line arguments usage.
      *       To convert a address book:
      *           java -jar [jarFileName].jar <input file> <output file>
+     *           Either file may be "-" to read from standard input or write to standard output.
+     *       To convert only the contacts matching a filter, and only some of their fields:
+     *           java -jar [jarFileName].jar <input file> <output file> [--filter <expression>] [--fields <field,field,...>]
+     *       To convert a large XML address book using several cores:
+     *           java -jar [jarFileName].jar <input xml file> <output file> --parallel [threads]
      *       To validate an address book:
      *           java -jar [jarFileName].jar <input file> --validate
      *           java -jar [jarFileName].jar <input file> -v
+     *       To convert every address book in a directory:
+     *           java -jar [jarFileName].jar --batch <input directory or glob> <output directory> [concurrency] [--virtual-threads] [--incremental]
+     *       To find the contacts added, removed and modified between two address books:
+     *           java -jar [jarFileName].jar --diff <old address book> <new address book> [output file]
+     *       To merge address books, keeping one contact per CustomerID:
+     *           java -jar [jarFileName].jar --merge <output file> <input file>... [--policy first-wins|last-wins|coalesce] [--memory-limit MB]
+     *       To index a large address book by CustomerID (and other fields), and look up contacts in it without reading the whole file:
+     *           java -jar [jarFileName].jar --index <address book> [--fields <field,field,...>]
+     *           java -jar [jarFileName].jar --lookup <address book> [field] <value>
+     *       To generate a synthetic address book:
+     *           java -jar [jarFileName].jar --generate <output file> <contact count> [--seed N] [--density D] [--unicode]
+     *       To keep a warmed up converter running:
+     *           java -jar [jarFileName].jar --server [port]
+     *       Any of the above can be given --mmap to read the input files through memory-mapped segments instead of a FileInputStream.
      * @param args String[]: array of command line options.
      * @see CommandLineHandler#printCommandLineArgumentUsage()
      */
     public void commandLineArgumentsMode(String[] args){
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if(arguments.remove(MEMORY_MAPPED_OPTION)){
+            addressBookParser = new AddressBookParser(AddressBookParser.OutputLayout.INDENTED, AddressBookParser.InputMode.MEMORY_MAPPED);
+            args = arguments.toArray(new String[0]);
+        }
+
+        if(args.length > 0 && (args[0].equals("-b") || args[0].equals("--batch"))){
+            batchMode(args);
+            return;
+        }
+
+        if(args.length > 0 && args[0].equals("--diff")){
+            diffMode(args);
+            return;
+        }
+
+        if(args.length > 0 && args[0].equals("--merge")){
+            mergeMode(args);
+            return;
+        }
+
+        if(args.length > 0 && args[0].equals("--index")){
+            indexMode(args);
+            return;
+        }
+
+        if(args.length > 0 && args[0].equals("--lookup")){
+            lookupMode(args);
+            return;
+        }
+
+        if(args.length > 0 && (args[0].equals("-g") || args[0].equals("--generate"))){
+            generateMode(args);
+            return;
+        }
+
+        if(args.length > 0 && args[0].equals("--server")){
+            serverMode(args);
+            return;
+        }
+
+        if(args.length >= 3 && args[2].equals("--parallel")){
+            parallelMode(args);
+            return;
+        }
+
+        if(args.length > 2 && (args[2].equals("--filter") || args[2].equals("--fields"))){
+            queryMode(args);
+            return;
+        }
 
         if(args.length != 2){
             System.out.println("Invalid number of arguments passed.");
@@ -103,25 +198,42 @@ public class CommandLineHandler {
         String argumentTwo = args[1];
 
         if(argumentTwo.equals("-v") || argumentTwo.equals("--validate")){
+            if(argumentOne.equals(STANDARD_STREAM)){
+                validateStandardInput();
+                return;
+            }
             File inputFile = new File(argumentOne);
             validateAddressBookSchema(inputFile);
             return;
         }
 
+        if(argumentOne.equals(STANDARD_STREAM) || argumentTwo.equals(STANDARD_STREAM)){
+            convertStandardStreams(argumentOne, argumentTwo, null);
+            return;
+        }
+
         File inputFile = new File(argumentOne);
         File outputFile = new File(argumentTwo);
 
-        if(inputFile.getName().endsWith(".xml") && outputFile.getName().endsWith(".json")){
+        AddressBookFormat inputFormat = AddressBookFormat.forFileName(inputFile.getName());
+        AddressBookFormat outputFormat = AddressBookFormat.forFileName(outputFile.getName());
+
+        if(inputFormat == AddressBookFormat.XML && outputFormat == AddressBookFormat.JSON){
             convertXmlAddressBookToJson(inputFile, outputFile);
             return;
         }
 
-        if(inputFile.getName().endsWith(".json") && outputFile.getName().endsWith(".xml")){
+        if(inputFormat == AddressBookFormat.JSON && outputFormat == AddressBookFormat.XML){
             convertJsonAddressBookToXml(inputFile, outputFile);
             return;
         }
 
-        System.out.println("Invalid arguments passed. Accepted file types are .xml or .json.");
+        if(inputFormat != null && outputFormat != null && inputFormat != outputFormat){
+            convertAddressBook(inputFile, outputFile);
+            return;
+        }
+
+        System.out.println("Invalid arguments passed. Accepted file types are .xml, .json, .ndjson, .smile or .cbor, optionally compressed as .gz or .zst.");
         printCommandLineArgumentUsage();
     }
 
@@ -163,15 +275,562 @@ public class CommandLineHandler {
         }
     }
 
+    /**
+     * Wrapper method for AddressBookParser#convertAddressBook().
+     * Will convert the given address book to the format of the output file, e.g. XML to NDJSON.
+     * Displays to the user upon successful conversion, or prints the error message.
+     * @param inputFile File: .xml, .json, .ndjson, .smile or .cbor address book to convert
+     * @param outputFile File: .xml, .json, .ndjson, .smile or .cbor output file for the conversion. Note: It does not have to exist.
+     * @see utility.AddressBookParser#convertAddressBook(File, File)
+     */
+    private void convertAddressBook(File inputFile, File outputFile){
+        try {
+            addressBookParser.convertAddressBook(inputFile, outputFile);
+            System.out.println("Successfully converted address book!");
+        } catch (IOException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not convert address book", e);
+        }
+    }
+
+    /**
+     * Method to convert only the contacts of an address book that match a filter expression, keeping only the given fields.
+     * Expects the arguments: <input file> <output file> [--filter <expression>] [--fields <field,field,...>]
+     * Either file may be "-" for standard input or output, and the input and output may be in the same format.
+     * @param args String[]: array of command line options
+     * @see utility.ContactQuery
+     */
+    private void queryMode(String[] args){
+        String filterExpression = null;
+        List<String> fieldNames = null;
+        ContactQuery contactQuery;
+        try {
+            for(int i = 2; i < args.length; i++){
+                if(args[i].equals("--filter") && i + 1 < args.length){
+                    filterExpression = args[++i];
+                }
+                else if(args[i].equals("--fields") && i + 1 < args.length){
+                    fieldNames = Arrays.asList(args[++i].split(","));
+                }
+                else{
+                    throw new IllegalArgumentException("Invalid argument passed: " + args[i]);
+                }
+            }
+            contactQuery = new ContactQuery(filterExpression, fieldNames);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        if(args[0].equals(STANDARD_STREAM) || args[1].equals(STANDARD_STREAM)){
+            convertStandardStreams(args[0], args[1], contactQuery);
+            return;
+        }
+        try {
+            long contactCount = addressBookParser.convertAddressBook(new File(args[0]), new File(args[1]), contactQuery);
+            System.out.println("Successfully converted " + contactCount + " matching contacts!");
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not convert address book", e);
+        }
+    }
+
+    /**
+     * Method to convert a single large XML address book using several cores.
+     * Expects the arguments: <input xml file> <output file> --parallel [threads]
+     * The number of threads defaults to the number of available processors.
+     * @param args String[]: array of command line options
+     * @see utility.ParallelXmlConverter
+     */
+    private void parallelMode(String[] args){
+        if(args.length > 4){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        if(args.length == 4){
+            try {
+                parallelism = Integer.parseInt(args[3]);
+            } catch (NumberFormatException e) {
+                parallelism = 0;
+            }
+            if(parallelism < 1){
+                System.out.println("Invalid number of threads given: " + args[3]);
+                printCommandLineArgumentUsage();
+                return;
+            }
+        }
+
+        try {
+            new ParallelXmlConverter(addressBookParser, parallelism).convert(new File(args[0]), new File(args[1]));
+            System.out.println("Successfully converted XML address book!");
+        } catch (IOException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not convert XML address book in parallel", e);
+        }
+    }
+
+    /**
+     * Method to convert every address book matching the given directory or glob into the given output directory.
+     * Expects the arguments: --batch <input directory or glob> <output directory> [concurrency] [--virtual-threads] [--incremental]
+     * The concurrency defaults to the number of available processors. With --virtual-threads each file is converted
+     * on its own virtual thread, which suits many small address books whose conversion is mostly file I/O.
+     * With --incremental the files that have not changed since the last incremental batch into the same output directory
+     * are skipped, see BatchConverter#convertIncrementally(List, File).
+     * Prints the result of each file, followed by the total throughput of the batch.
+     * @param args String[]: array of command line options, starting with the batch flag
+     * @see utility.BatchConverter
+     */
+    private void batchMode(String[] args){
+        if(args.length < 3 || args.length > 6){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        BatchConverter.ExecutionMode executionMode = BatchConverter.ExecutionMode.PLATFORM_THREADS;
+        boolean incremental = false;
+        for(int i = 3; i < args.length; i++){
+            if(args[i].equals("--virtual-threads")){
+                executionMode = BatchConverter.ExecutionMode.VIRTUAL_THREADS;
+                continue;
+            }
+            if(args[i].equals("--incremental")){
+                incremental = true;
+                continue;
+            }
+            try {
+                concurrency = Integer.parseInt(args[i]);
+            } catch (NumberFormatException e) {
+                concurrency = 0;
+            }
+            if(concurrency < 1){
+                System.out.println("Invalid concurrency given: " + args[i]);
+                printCommandLineArgumentUsage();
+                return;
+            }
+        }
+
+        if(executionMode == BatchConverter.ExecutionMode.VIRTUAL_THREADS && !BatchConverter.isVirtualThreadSupported()){
+            System.out.println("Virtual threads require Java 21 or later, using a pool of " + concurrency + " threads instead.");
+        }
+
+        try {
+            List<File> inputFiles = BatchConverter.findAddressBooks(args[1]);
+            BatchConverter batchConverter = new BatchConverter(addressBookParser, concurrency, executionMode);
+            File outputDirectory = new File(args[2]);
+            BatchReport batchReport = incremental ? batchConverter.convertIncrementally(inputFiles, outputDirectory) : batchConverter.convert(inputFiles, outputDirectory);
+            printBatchReport(batchReport);
+        } catch (IOException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not convert batch of address books", e);
+        }
+    }
+
+    /**
+     * Method to write the contacts added, removed and modified between two address books as NDJSON, one change per line.
+     * Expects the arguments: --diff <old address book> <new address book> [output file]
+     * The changes are written to standard output when no output file (or "-") is given, and the summary is then printed to standard error.
+     * An output file is only replaced once every change has been written, so a failed comparison leaves no partial output.
+     * @param args String[]: array of command line options, starting with the diff flag
+     * @see utility.AddressBookDiff
+     */
+    private void diffMode(String[] args){
+        if(args.length < 3 || args.length > 4){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        String outputArgument = (args.length == 4) ? args[3] : STANDARD_STREAM;
+        PrintStream messageStream = outputArgument.equals(STANDARD_STREAM) ? System.err : System.out;
+        File oldAddressBook = new File(args[1]);
+        File newAddressBook = new File(args[2]);
+        try {
+            AddressBookDiff.Summary summary;
+            if(outputArgument.equals(STANDARD_STREAM)){
+                summary = new AddressBookDiff(addressBookParser).diff(oldAddressBook, newAddressBook, System.out);
+            } else {
+                summary = AddressBookParser.writeAtomically(new File(outputArgument), temporaryFile -> {
+                    try(OutputStream outputStream = Compression.openOutputStream(temporaryFile)){
+                        return new AddressBookDiff(addressBookParser).diff(oldAddressBook, newAddressBook, outputStream);
+                    }
+                });
+            }
+            messageStream.println("Contacts: " + summary);
+        } catch (IOException e) {
+            messageStream.println("Something went wrong!");
+            messageStream.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not compare address books", e);
+        }
+    }
+
+    /**
+     * Method to write the index of an address book next to it, so contacts can be looked up without reading the whole file.
+     * Expects the arguments: --index <address book> [--fields <field,field,...>]
+     * The address book is always indexed by CustomerID, and also by the given fields.
+     * @param args String[]: array of command line options, starting with the index flag
+     * @see utility.AddressBookIndex
+     */
+    private void indexMode(String[] args){
+        if(args.length != 2 && !(args.length == 4 && args[2].equals("--fields"))){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        List<String> fieldNames = (args.length == 4) ? Arrays.asList(args[3].split(",")) : new ArrayList<>();
+        File addressBook = new File(args[1]);
+        try {
+            int contactCount = AddressBookIndex.build(addressBookParser, addressBook, fieldNames);
+            System.out.println("Successfully indexed " + contactCount + " contacts in " + AddressBookIndex.indexFileFor(addressBook).getPath());
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not index address book", e);
+        }
+    }
+
+    /**
+     * Method to look up contacts in an indexed address book, writing them to standard output as NDJSON.
+     * Expects the arguments: --lookup <address book> [field] <value>
+     * Without a field the value is a CustomerID. The number of contacts found is printed to standard error.
+     * @param args String[]: array of command line options, starting with the lookup flag
+     * @see utility.AddressBookIndex
+     */
+    private void lookupMode(String[] args){
+        if(args.length < 3 || args.length > 4){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        String fieldName = (args.length == 4) ? args[2] : ContactField.CUSTOMER_ID.getElementName();
+        try(AddressBookIndex addressBookIndex = AddressBookIndex.open(addressBookParser, new File(args[1]));
+            ContactWriter contactWriter = addressBookParser.newContactWriter(NonClosingStreams.wrap(System.out), AddressBookFormat.NDJSON)){
+            List<Contact> contacts = addressBookIndex.lookup(fieldName, args[args.length - 1]);
+            for(Contact contact : contacts){
+                contactWriter.writeContact(contact);
+            }
+            System.err.println("Found " + contacts.size() + " contacts with " + fieldName + " " + args[args.length - 1]);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Something went wrong!");
+            System.err.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not look up contacts", e);
+        }
+    }
+
+    /**
+     * Method to merge any number of address books into one, keeping one contact per CustomerID.
+     * Expects the arguments: --merge <output file> <input file>... [--policy first-wins|last-wins|coalesce] [--memory-limit MB]
+     * The policy defaults to last-wins, and the memory limit to a quarter of the maximum heap.
+     * @param args String[]: array of command line options, starting with the merge flag
+     * @see utility.AddressBookMerger
+     */
+    private void mergeMode(String[] args){
+        AddressBookMerger.ConflictPolicy conflictPolicy = AddressBookMerger.ConflictPolicy.LAST_WINS;
+        long memoryLimit = AddressBookMerger.DEFAULT_MEMORY_LIMIT;
+        List<File> inputFiles = new ArrayList<>();
+        try {
+            for(int i = 2; i < args.length; i++){
+                if(args[i].equals("--policy") && i + 1 < args.length){
+                    conflictPolicy = AddressBookMerger.ConflictPolicy.valueOf(args[++i].toUpperCase(Locale.ROOT).replace('-', '_'));
+                }
+                else if(args[i].equals("--memory-limit") && i + 1 < args.length){
+                    memoryLimit = Long.parseLong(args[++i]) * 1024 * 1024;
+                }
+                else{
+                    inputFiles.add(new File(args[i]));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid argument passed: " + e.getMessage());
+            printCommandLineArgumentUsage();
+            return;
+        }
+        if(inputFiles.isEmpty()){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        try {
+            AddressBookMerger.Summary summary = new AddressBookMerger(addressBookParser, conflictPolicy, memoryLimit).merge(inputFiles, new File(args[1]));
+            System.out.println("Successfully merged address books: " + summary);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not merge address books", e);
+        }
+    }
+
+    /**
+     * Method to generate a synthetic address book with the given number of contacts.
+     * Expects the arguments: --generate <output file> <contact count> [--seed N] [--density D] [--unicode]
+     * The seed defaults to 0, and the density of the optional PostalCode, Fax and Region fields defaults to 0.5.
+     * @param args String[]: array of command line options, starting with the generate flag
+     * @see utility.AddressBookGenerator
+     */
+    private void generateMode(String[] args){
+        if(args.length < 3){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        long seed = 0;
+        double optionalFieldDensity = 0.5;
+        boolean unicodeHeavy = false;
+        long contactCount;
+        try {
+            contactCount = Long.parseLong(args[2]);
+            for(int i = 3; i < args.length; i++){
+                if(args[i].equals("--unicode")){
+                    unicodeHeavy = true;
+                }
+                else if(args[i].equals("--seed") && i + 1 < args.length){
+                    seed = Long.parseLong(args[++i]);
+                }
+                else if(args[i].equals("--density") && i + 1 < args.length){
+                    optionalFieldDensity = Double.parseDouble(args[++i]);
+                }
+                else{
+                    System.out.println("Invalid argument passed: " + args[i]);
+                    printCommandLineArgumentUsage();
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number given: " + e.getMessage());
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        try {
+            File outputFile = new File(args[1]);
+            new AddressBookGenerator(addressBookParser, seed, optionalFieldDensity, unicodeHeavy).generate(outputFile, contactCount);
+            System.out.println("Successfully generated address book with " + contactCount + " contacts!");
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not generate address book", e);
+        }
+    }
+
+    /**
+     * Method to start an AddressBookServer that keeps this handler's parser warmed up and serves conversions
+     * and validations until it is shut down.
+     * Expects the arguments: --server [port]
+     * @param args String[]: array of command line options, starting with the server flag
+     * @see utility.AddressBookServer
+     */
+    private void serverMode(String[] args){
+        if(args.length > 2){
+            System.out.println("Invalid number of arguments passed.");
+            printCommandLineArgumentUsage();
+            return;
+        }
+
+        try {
+            int port = (args.length == 2) ? Integer.parseInt(args[1]) : AddressBookServer.DEFAULT_PORT;
+            AddressBookServer addressBookServer = new AddressBookServer(addressBookParser, port);
+            addressBookServer.warmUp();
+            addressBookServer.start();
+            System.out.println("Address book server listening on 127.0.0.1:" + addressBookServer.getPort());
+            System.out.println("Requests must send the token in " + addressBookServer.getTokenFile().getAbsolutePath()
+                    + " in the " + AddressBookServer.TOKEN_HEADER + " header.");
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid port given: " + args[1]);
+            printCommandLineArgumentUsage();
+        } catch (IOException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not start address book server", e);
+        }
+    }
+
+    /**
+     * Method to send a conversion or validation to a running AddressBookServer.
+     * This is static so that the client does not create an AddressBookParser, keeping its startup fast.
+     * Expects the arguments:
+     *      --client <port> <input file> <output file>
+     *      --client <port> <input file> --validate
+     *      --client <port> --shutdown
+     * @param args String[]: array of command line options, starting with the client flag
+     * @see utility.AddressBookClient
+     */
+    public static void clientMode(String[] args){
+        boolean isShutdown = args.length == 3 && args[2].equals("--shutdown");
+        if(args.length != 4 && !isShutdown){
+            System.out.println("Invalid number of arguments passed.");
+            System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --client <port> <input file> <output file>");
+            System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --client <port> <input file> --validate");
+            System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --client <port> --shutdown");
+            return;
+        }
+
+        try {
+            AddressBookClient addressBookClient = new AddressBookClient(Integer.parseInt(args[1]));
+            if(isShutdown){
+                addressBookClient.shutdown();
+                System.out.println("Address book server is shutting down.");
+            }
+            else if(args[3].equals("-v") || args[3].equals("--validate")){
+                boolean isValidAddressBook = addressBookClient.validate(new File(args[2]));
+                System.out.println(isValidAddressBook ? "This document is a valid address book." : "This document is not a valid address book.");
+            }
+            else{
+                System.out.println(addressBookClient.convert(new File(args[2]), new File(args[3])));
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid port given: " + args[1]);
+        } catch (IOException e) {
+            System.out.println("Something went wrong!");
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Method to print the result of each file in a batch, followed by the totals for the batch.
+     * @param batchReport BatchReport: result of the batch conversion
+     */
+    private void printBatchReport(BatchReport batchReport){
+        for(BatchReport.FileResult fileResult : batchReport.getFileResults()){
+            if(fileResult.isUpToDate()){
+                System.out.println("Unchanged " + fileResult.getInputFile().getPath() + " -> " + fileResult.getOutputFile().getPath());
+            }
+            else if(fileResult.isSuccess()){
+                System.out.println("Converted " + fileResult.getInputFile().getPath() + " -> " + fileResult.getOutputFile().getPath());
+            }
+            else{
+                System.out.println("Failed    " + fileResult.getInputFile().getPath() + ": " + fileResult.getErrorMessage());
+            }
+        }
+        System.out.printf("Converted %d of %d address books (%d failed, %d unchanged) in %.1f ms: %.1f files/s, %.2f MB/s%n",
+                batchReport.getSuccessCount() - batchReport.getUpToDateCount(), batchReport.getFileResults().size(),
+                batchReport.getFailureCount(), batchReport.getUpToDateCount(),
+                batchReport.getElapsedNanos() / 1_000_000.0, batchReport.getFilesPerSecond(), batchReport.getMegabytesPerSecond());
+    }
+
+    /**
+     * Method to convert an address book where the input or the output (or both) is "-", meaning standard input or output.
+     * The format of standard input is detected from its first character, and standard output is written in the opposite format
+     * of the input. An output file is written by way of a temporary file, so it is not left holding part of an address book
+     * if the conversion fails. Messages are printed to standard error when the address book is written to standard output,
+     * so they do not end up in the converted address book.
+     * @param inputArgument String: input file, or "-" for standard input
+     * @param outputArgument String: output file, or "-" for standard output
+     * @param contactQuery ContactQuery: filter and projection of the contacts to convert, or null to convert every contact
+     */
+    private void convertStandardStreams(String inputArgument, String outputArgument, ContactQuery contactQuery){
+        PrintStream messageStream = outputArgument.equals(STANDARD_STREAM) ? System.err : System.out;
+        try(InputStream inputStream = inputArgument.equals(STANDARD_STREAM)
+                ? new BufferedInputStream(System.in, STANDARD_INPUT_BUFFER_SIZE) : addressBookParser.openInputStream(new File(inputArgument))){
+            AddressBookFormat inputFormat;
+            if(inputArgument.equals(STANDARD_STREAM)){
+                inputFormat = isXml(inputStream) ? AddressBookFormat.XML : AddressBookFormat.JSON;
+            } else {
+                inputFormat = formatOf(inputArgument);
+            }
+            AddressBookFormat outputFormat = outputArgument.equals(STANDARD_STREAM) ? oppositeFormat(inputFormat) : formatOf(outputArgument);
+
+            long contactCount;
+            if(outputArgument.equals(STANDARD_STREAM)){
+                contactCount = addressBookParser.convertAddressBook(inputStream, inputFormat, System.out, outputFormat, contactQuery);
+            } else {
+                contactCount = AddressBookParser.writeAtomically(new File(outputArgument), temporaryFile -> {
+                    try(OutputStream outputStream = Compression.openOutputStream(temporaryFile)){
+                        return addressBookParser.convertAddressBook(inputStream, inputFormat, outputStream, outputFormat, contactQuery);
+                    }
+                });
+            }
+            if(contactQuery == null){
+                messageStream.println("Successfully converted address book!");
+            } else {
+                messageStream.println("Successfully converted " + contactCount + " matching contacts!");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            messageStream.println("Something went wrong!");
+            messageStream.println(e.getMessage());
+            LOGGER.log(Level.WARNING, "Could not convert address book", e);
+        }
+    }
+
+    /**
+     * Will print out whether the address book read from standard input is valid, detecting its format from its first character.
+     */
+    private void validateStandardInput(){
+        InputStream inputStream = new BufferedInputStream(System.in, STANDARD_INPUT_BUFFER_SIZE);
+        boolean isValidAddressBook;
+        try {
+            isValidAddressBook = isXml(inputStream) ? addressBookParser.isValidXmlAddressBook(inputStream) : addressBookParser.isValidJsonAddressBook(inputStream);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read standard input", e);
+            isValidAddressBook = false;
+        }
+        System.out.println(isValidAddressBook ? "This document is a valid address book." : "This document is not a valid address book.");
+    }
+
+    /**
+     * Method to find the format of the given file by its extension, ignoring any compression extension.
+     * @param fileName String: name of the file, e.g. "ad.xml.gz"
+     * @return AddressBookFormat: the format of the file, JSON if the extension is not a known format
+     */
+    private static AddressBookFormat formatOf(String fileName){
+        AddressBookFormat format = AddressBookFormat.forFileName(fileName);
+        return (format == null) ? AddressBookFormat.JSON : format;
+    }
+
+    /**
+     * Method to find the format standard input or output is in when the other side of the conversion is the given format.
+     * @param format AddressBookFormat: format of the other side
+     * @return AddressBookFormat: JSON for XML, otherwise XML
+     */
+    private static AddressBookFormat oppositeFormat(AddressBookFormat format){
+        return (format == AddressBookFormat.XML) ? AddressBookFormat.JSON : AddressBookFormat.XML;
+    }
+
+    /**
+     * Method to detect whether the given stream holds XML or JSON by peeking at its first character that is not
+     * whitespace or a byte order mark. The stream is reset to where it was, so nothing is consumed.
+     * @param inputStream InputStream: stream supporting mark and reset
+     * @return true if the stream starts with '&lt;', false otherwise (e.g. '{' for JSON)
+     * @throws IOException if the stream could not be read
+     */
+    private static boolean isXml(InputStream inputStream) throws IOException {
+        inputStream.mark(STANDARD_INPUT_BUFFER_SIZE);
+        try {
+            for(int i = 0; i < STANDARD_INPUT_BUFFER_SIZE; i++){
+                int character = inputStream.read();
+                if(character == -1){
+                    return false;
+                }
+                if(!Character.isWhitespace(character) && character != 0xEF && character != 0xBB && character != 0xBF){
+                    return character == '<';
+                }
+            }
+            return false;
+        } finally {
+            inputStream.reset();
+        }
+    }
+
     /**
      * Will print out whether the passed input file is a
-     * valid address book (defined in src/main/resources/ad.xsd) in either JSON or XML format.
+     * valid address book (defined in src/main/resources/ad.xsd) in XML, JSON, NDJSON, Smile or CBOR format.
      * @param inputFile File: file to validate the schema
-     * @see utility.AddressBookParser#isValidJsonAddressBook(File)
-     * @see utility.AddressBookParser#isValidXmlAddressBook(File)
+     * @see utility.AddressBookParser#isValidAddressBook(File)
      */
     private void validateAddressBookSchema(File inputFile){
-        boolean isValidXMLAddressBook = (inputFile.getName().endsWith(".xml")) ? addressBookParser.isValidXmlAddressBook(inputFile) : addressBookParser.isValidJsonAddressBook(inputFile);
+        boolean isValidXMLAddressBook = addressBookParser.isValidAddressBook(inputFile);
         if(isValidXMLAddressBook){
             System.out.println("This document is a valid address book.");
         }
@@ -186,9 +845,39 @@ public class CommandLineHandler {
     private void printCommandLineArgumentUsage(){
         System.out.println("To convert an address book:");
         System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar <input file> <output file>");
+        System.out.println("Use - as the input or output file to read from standard input or write to standard output.");
+
+        System.out.println("To convert only the contacts matching a filter (e.g. \"Country == 'Germany' && PostalCode startsWith '1'\"), and only some of their fields:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar <input file> <output file> [--filter <expression>] [--fields <field,field,...>]");
+
+        System.out.println("To convert a large XML address book using several cores:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar <input xml file> <output file> --parallel [threads]");
 
         System.out.println("To validate a given XML document is following the AddressBook schema");
         System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar <input file> --validate");
         System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar <input file> -v");
+
+        System.out.println("To convert every address book in a directory:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --batch <input directory or glob> <output directory> [concurrency] [--virtual-threads] [--incremental]");
+
+        System.out.println("To write the contacts added, removed and modified between two address books as NDJSON:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --diff <old address book> <new address book> [output file]");
+
+        System.out.println("To merge address books, keeping one contact per CustomerID:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --merge <output file> <input file>... [--policy first-wins|last-wins|coalesce] [--memory-limit MB]");
+
+        System.out.println("To index a large address book by CustomerID (and other fields), and look up contacts in it as NDJSON without reading the whole file:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --index <address book> [--fields <field,field,...>]");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --lookup <address book> [field] <value>");
+
+        System.out.println("To generate a synthetic address book for load testing:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --generate <output file> <contact count> [--seed N] [--density D] [--unicode]");
+
+        System.out.println("To keep a warmed up converter running and send it conversions:");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --server [port]");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --client <port> <input file> <output file>");
+        System.out.println("Usage: java -jar XmlandJsonCLIUtility.jar --client <port> <input file> --validate");
+
+        System.out.println("Add --mmap to any of the above to read the input files through memory-mapped segments.");
     }
 }
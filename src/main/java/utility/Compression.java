@@ -0,0 +1,139 @@
+package utility;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import io.airlift.compress.zstd.ZstdOutputStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Enum of the compression codecs an address book file may be stored with, chosen by the last extension of its name,
+ * e.g. "ad.xml.gz" is a gzip compressed XML address book and "ad.json.zst" a zstd compressed JSON address book.
+ * The codecs are streamed, so a compressed address book is converted without first being decompressed to disk.
+ * Zstd uses the pure-Java codec from aircompressor, so no native library is needed.
+ */
+enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    Compression(String extension){
+        this.extension = extension;
+    }
+
+    /**
+     * Method to find the codec of a file by the last extension of its name.
+     * @param fileName String: name of the file, e.g. "ad.xml.gz"
+     * @return Compression: the codec of the file, NONE if it is not compressed
+     */
+    static Compression forFileName(String fileName){
+        for(Compression compression : values()){
+            if(compression != NONE && fileName.endsWith(compression.extension)){
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Method to remove the compression extension from the name of a file, leaving the extension of its format.
+     * @param fileName String: name of the file, e.g. "ad.xml.gz"
+     * @return String: the name without the compression extension, e.g. "ad.xml"
+     */
+    static String stripExtension(String fileName){
+        return fileName.substring(0, fileName.length() - forFileName(fileName).extension.length());
+    }
+
+    /**
+     * Method to open the given file for reading, decompressing it according to its extension.
+     * @param file File: file to read
+     * @return InputStream: the decompressed contents of the file
+     * @throws IOException if the file could not be opened or does not start with a valid header for its codec
+     */
+    static InputStream openInputStream(File file) throws IOException {
+        return openInputStream(file, false);
+    }
+
+    /**
+     * Method to open the given file for reading, decompressing it according to its extension.
+     * @param file File: file to read
+     * @param memoryMapped boolean: whether to read the file through memory-mapped segments, see MappedFileInputStream,
+     *                     instead of a FileInputStream
+     * @return InputStream: the decompressed contents of the file
+     * @throws IOException if the file could not be opened or does not start with a valid header for its codec
+     */
+    static InputStream openInputStream(File file, boolean memoryMapped) throws IOException {
+        InputStream fileInputStream = memoryMapped ? new MappedFileInputStream(file) : new FileInputStream(file);
+        try {
+            return forFileName(file.getName()).decompress(fileInputStream);
+        } catch (IOException | RuntimeException e) {
+            fileInputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method to create the given file for writing, compressing it according to its extension.
+     * @param file File: file to write
+     * @return OutputStream: stream that compresses everything written to it into the file
+     * @throws IOException if the file could not be created
+     */
+    static OutputStream openOutputStream(File file) throws IOException {
+        FileOutputStream fileOutputStream = new FileOutputStream(file);
+        try {
+            return forFileName(file.getName()).compress(fileOutputStream);
+        } catch (IOException | RuntimeException e) {
+            fileOutputStream.close();
+            throw e;
+        }
+    }
+
+    String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Method to wrap the given stream so that reading from it decompresses the data.
+     * @param inputStream InputStream: compressed data
+     * @return InputStream: the decompressed data, or the given stream for NONE
+     * @throws IOException if the header of the compressed data could not be read
+     */
+    InputStream decompress(InputStream inputStream) throws IOException {
+        switch(this){
+            case GZIP:
+                return new GZIPInputStream(inputStream, BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdInputStream(inputStream);
+            default:
+                return inputStream;
+        }
+    }
+
+    /**
+     * Method to wrap the given stream so that the data written to it is compressed.
+     * The compressed data is only complete once the returned stream is closed.
+     * @param outputStream OutputStream: destination of the compressed data
+     * @return OutputStream: stream to write the uncompressed data to, or the given stream for NONE
+     * @throws IOException if the header of the compressed data could not be written
+     */
+    OutputStream compress(OutputStream outputStream) throws IOException {
+        switch(this){
+            case GZIP:
+                return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdOutputStream(outputStream);
+            default:
+                return outputStream;
+        }
+    }
+}
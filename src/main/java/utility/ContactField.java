@@ -0,0 +1,87 @@
+package utility;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Enum of the elements of a Contact, in the order they are defined in /src/main/resources/ad.xsd,
+ * along with whether the schema allows them to be left out (minOccurs="0").
+ * Used by the streaming readers and writers to get and set the fields of a Contact without reflection.
+ * The JSON property name of every field is pre-encoded once, so it is copied straight into the output instead of
+ * being quoted and escaped for every contact.
+ */
+enum ContactField {
+    CUSTOMER_ID("CustomerID", Contact::getCustomerID, Contact::setCustomerID, false),
+    COMPANY_NAME("CompanyName", Contact::getCompanyName, Contact::setCompanyName, false),
+    CONTACT_NAME("ContactName", Contact::getContactName, Contact::setContactName, false),
+    CONTACT_TITLE("ContactTitle", Contact::getContactTitle, Contact::setContactTitle, false),
+    ADDRESS("Address", Contact::getAddress, Contact::setAddress, false),
+    CITY("City", Contact::getCity, Contact::setCity, false),
+    EMAIL("Email", Contact::getEmail, Contact::setEmail, false),
+    POSTAL_CODE("PostalCode", Contact::getPostalCode, Contact::setPostalCode, true),
+    COUNTRY("Country", Contact::getCountry, Contact::setCountry, false),
+    PHONE("Phone", Contact::getPhone, Contact::setPhone, false),
+    FAX("Fax", Contact::getFax, Contact::setFax, true),
+    REGION("Region", Contact::getRegion, Contact::setRegion, true);
+
+    /**
+     * Every field in schema order. Shared so the writers do not copy values() for every contact; must not be modified.
+     */
+    static final ContactField[] IN_SCHEMA_ORDER = values();
+
+    private static final Map<String, ContactField> FIELDS_BY_ELEMENT_NAME = new HashMap<>();
+
+    static {
+        for(ContactField field : IN_SCHEMA_ORDER){
+            FIELDS_BY_ELEMENT_NAME.put(field.elementName, field);
+        }
+    }
+
+    private final String elementName;
+    private final SerializableString serializedName;
+    private final Function<Contact, String> getter;
+    private final BiConsumer<Contact, String> setter;
+    private final boolean optional;
+
+    ContactField(String elementName, Function<Contact, String> getter, BiConsumer<Contact, String> setter, boolean optional){
+        this.elementName = elementName;
+        this.serializedName = new SerializedString(elementName);
+        this.getter = getter;
+        this.setter = setter;
+        this.optional = optional;
+    }
+
+    /**
+     * Method to look up a field by its XML element (or JSON property) name.
+     * @param elementName String: name of the element, e.g. "CustomerID"
+     * @return ContactField: the matching field, or null if the name is not part of a Contact
+     */
+    static ContactField forElementName(String elementName){
+        return FIELDS_BY_ELEMENT_NAME.get(elementName);
+    }
+
+    String getElementName() {
+        return elementName;
+    }
+
+    SerializableString getSerializedName() {
+        return serializedName;
+    }
+
+    boolean isOptional() {
+        return optional;
+    }
+
+    String get(Contact contact){
+        return getter.apply(contact);
+    }
+
+    void set(Contact contact, String value){
+        setter.accept(contact, value);
+    }
+}
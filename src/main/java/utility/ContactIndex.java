@@ -0,0 +1,562 @@
+package utility;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact in-memory index of contacts by CustomerID, used to compare or combine address books without holding
+ * every Contact object (and its twelve Strings) in memory.
+ * Each contact is encoded as the UTF-8 bytes of its fields, each preceded by a variable length size, into large
+ * shared pages, and the CustomerIDs are looked up in an open addressing hash table of int entry numbers.
+ * A million contacts take a few objects rather than tens of millions, which keeps both the heap and the garbage
+ * collector's work proportional to the size of the data itself.
+ *
+ * Entries are numbered in the order their CustomerID was first added. Adding a contact whose CustomerID is already
+ * in the index replaces the stored contact but keeps its entry number. This class is not thread-safe.
+ */
+final class ContactIndex {
+    static final int DEFAULT_PAGE_SIZE = 1 << 20;
+    private static final float MAX_LOAD_FACTOR = 0.5f;
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Number of bytes the hash table of an empty index takes, see getMemoryUsage(). */
+    static final long INITIAL_TABLE_MEMORY_USAGE = (8L + 4L + 4L * 2) * INITIAL_CAPACITY;
+
+    private final int pageSize;
+    private byte[][] pages = new byte[16][];
+    private int pageCount = 0;
+    private int pagePosition;
+    private long pageBytes = 0;
+
+    //Address (page << 32 | offset) and key hash of each entry, by entry number
+    private long[] addresses = new long[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    //Open addressing table of entry number + 1, 0 for an empty slot
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    //Reused to encode each contact before it is copied into a page, and each CustomerID that is looked up
+    private byte[] encodeBuffer = new byte[1024];
+
+    ContactIndex(){
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param pageSize int: number of bytes allocated at a time for the encoded contacts. Smaller pages waste less memory
+     *                 when only a few contacts are stored, larger pages take fewer allocations.
+     */
+    ContactIndex(int pageSize){
+        if(pageSize < 1){
+            throw new IllegalArgumentException("Page size must be positive, was " + pageSize);
+        }
+        this.pageSize = pageSize;
+        this.pagePosition = pageSize;
+    }
+
+    /**
+     * @return int: number of distinct CustomerIDs in the index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return long: number of bytes allocated for the encoded contacts and the hash table
+     */
+    long getMemoryUsage() {
+        return pageBytes + 8L * addresses.length + 4L * hashes.length + 4L * slots.length;
+    }
+
+    /**
+     * Method to add the given contact, replacing any contact with the same CustomerID.
+     * @param contact Contact: contact to add
+     * @return int: entry number of the contact
+     */
+    int put(Contact contact){
+        int length = encode(contact);
+        int hash = hash(contact.getCustomerID());
+        int slot = findSlot(encodeBuffer, keyLength(encodeBuffer), hash);
+        long address = append(encodeBuffer, length);
+        if(slots[slot] != 0){
+            int entry = slots[slot] - 1;
+            addresses[entry] = address;
+            return entry;
+        }
+
+        if(size == addresses.length){
+            addresses = Arrays.copyOf(addresses, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        addresses[size] = address;
+        hashes[size] = hash;
+        slots[slot] = ++size;
+        if(size > slots.length * MAX_LOAD_FACTOR){
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Method to find the entry of the contact with the given CustomerID.
+     * @param customerId String: CustomerID to look up, may be null
+     * @return int: entry number of the contact, or -1 if there is none
+     */
+    int indexOf(String customerId){
+        byte[] key = encodeKey(customerId);
+        int slot = findSlot(key, keyLength(key), hash(customerId));
+        return slots[slot] - 1;
+    }
+
+    /**
+     * Method to decode the contact of the given entry into a new Contact.
+     * @param entry int: entry number, from 0 to size() - 1
+     * @return Contact: the stored contact
+     */
+    Contact get(int entry){
+        if(entry < 0 || entry >= size){
+            throw new IndexOutOfBoundsException("Entry " + entry + " of " + size);
+        }
+        long address = addresses[entry];
+        byte[] page = pages[(int) (address >>> 32)];
+        int position = (int) address;
+
+        Contact contact = new Contact();
+        for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+            int value = readVarint(page, position);
+            position += varintSize(value);
+            if(value != 0){
+                field.set(contact, decode(page, position, value - 1));
+                position += value - 1;
+            }
+        }
+        return contact;
+    }
+
+    /**
+     * Method to sort the entries by CustomerID, in Unicode code point order (the order of the UTF-8 bytes of the CustomerIDs).
+     * @return int[]: every entry number, ordered by the CustomerID of its contact
+     * @see ContactIndex#compareKeys(String, String)
+     */
+    int[] sortedEntries(){
+        Integer[] entries = new Integer[size];
+        for(int entry = 0; entry < size; entry++){
+            entries[entry] = entry;
+        }
+        Arrays.sort(entries, this::compareEntryKeys);
+        int[] sortedEntries = new int[size];
+        for(int i = 0; i < size; i++){
+            sortedEntries[i] = entries[i];
+        }
+        return sortedEntries;
+    }
+
+    /**
+     * Method to write the encoded contact of the given entry to a stream, as it is stored, so it can be read back with read().
+     * @param entry int: entry number, from 0 to size() - 1
+     * @param outputStream OutputStream: destination of the encoded contact
+     * @throws IOException if the contact could not be written
+     */
+    void write(int entry, OutputStream outputStream) throws IOException {
+        if(entry < 0 || entry >= size){
+            throw new IndexOutOfBoundsException("Entry " + entry + " of " + size);
+        }
+        long address = addresses[entry];
+        byte[] page = pages[(int) (address >>> 32)];
+        int start = (int) address;
+        int position = start;
+        for(int i = 0; i < ContactField.IN_SCHEMA_ORDER.length; i++){
+            int value = readVarint(page, position);
+            position += varintSize(value) + Math.max(value - 1, 0);
+        }
+        outputStream.write(page, start, position - start);
+    }
+
+    /**
+     * Method to encode the given contact, without adding it to the index, the same way write() writes a stored contact.
+     * @param contact Contact: contact to write
+     * @param outputStream OutputStream: destination of the encoded contact
+     * @throws IOException if the contact could not be written
+     */
+    void write(Contact contact, OutputStream outputStream) throws IOException {
+        outputStream.write(encodeBuffer, 0, encode(contact));
+    }
+
+    /**
+     * Method to read a contact written by write().
+     * @param inputStream DataInputStream: stream of encoded contacts
+     * @return Contact: the next contact, or null at the end of the stream
+     * @throws IOException if the stream could not be read, or ends part way through a contact
+     */
+    static Contact read(DataInputStream inputStream) throws IOException {
+        Contact contact = null;
+        for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = inputStream.read();
+                if(b == -1){
+                    if(contact == null && shift == 0){
+                        return null;
+                    }
+                    throw new EOFException("Encoded contact ends part way through its " + field.getElementName());
+                }
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+            if(contact == null){
+                contact = new Contact();
+            }
+            if(value != 0){
+                byte[] bytes = new byte[value - 1];
+                inputStream.readFully(bytes);
+                field.set(contact, decode(bytes, 0, bytes.length));
+            }
+        }
+        return contact;
+    }
+
+    /**
+     * Method to compare two CustomerIDs in Unicode code point order, the order sortedEntries() sorts them in.
+     * This differs from String#compareTo only for characters outside the Basic Multilingual Plane.
+     * An unpaired surrogate is ordered by its own value, the same as the bytes encodeField() writes for it.
+     * @param first String: CustomerID, may be null
+     * @param second String: CustomerID, may be null
+     * @return int: negative, zero or positive as the first CustomerID is ordered before, the same as or after the second. Null comes first.
+     */
+    static int compareKeys(String first, String second){
+        if(first == null || second == null){
+            return (first == null) ? ((second == null) ? 0 : -1) : 1;
+        }
+        int length = Math.min(first.length(), second.length());
+        for(int i = 0; i < length; i++){
+            if(first.charAt(i) != second.charAt(i)){
+                //Compare the whole code points the chars belong to, which start one char earlier after a shared high surrogate
+                int start = (i > 0 && Character.isHighSurrogate(first.charAt(i - 1))) ? i - 1 : i;
+                return Integer.compare(Character.codePointAt(first, start), Character.codePointAt(second, start));
+            }
+        }
+        return first.length() - second.length();
+    }
+
+    private int compareEntryKeys(int firstEntry, int secondEntry){
+        long firstAddress = addresses[firstEntry];
+        long secondAddress = addresses[secondEntry];
+        byte[] firstPage = pages[(int) (firstAddress >>> 32)];
+        byte[] secondPage = pages[(int) (secondAddress >>> 32)];
+        int firstPosition = (int) firstAddress;
+        int secondPosition = (int) secondAddress;
+        int firstLength = readVarint(firstPage, firstPosition) - 1;
+        int secondLength = readVarint(secondPage, secondPosition) - 1;
+        firstPosition += varintSize(firstLength + 1);
+        secondPosition += varintSize(secondLength + 1);
+        int length = Math.min(firstLength, secondLength);
+        for(int i = 0; i < length; i++){
+            int difference = (firstPage[firstPosition + i] & 0xFF) - (secondPage[secondPosition + i] & 0xFF);
+            if(difference != 0){
+                return difference;
+            }
+        }
+        return Integer.compare(firstLength, secondLength);
+    }
+
+    /**
+     * Method to check whether the given contact is the same as the contact stored at the given entry, without decoding it.
+     * Every field of the encoding carries its own length, so the stored contact is the same if its first bytes match
+     * the encoding of the given contact.
+     * @param entry int: entry number, from 0 to size() - 1
+     * @param contact Contact: contact to compare
+     * @return true if every field of the contact equals the stored one
+     */
+    boolean isStored(int entry, Contact contact){
+        if(entry < 0 || entry >= size){
+            throw new IndexOutOfBoundsException("Entry " + entry + " of " + size);
+        }
+        int length = encode(contact);
+        long address = addresses[entry];
+        byte[] page = pages[(int) (address >>> 32)];
+        int position = (int) address;
+        if(position + length > page.length){
+            return false;
+        }
+        for(int i = 0; i < length; i++){
+            if(page[position + i] != encodeBuffer[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to find the slot holding the given key, or the empty slot it would be added to.
+     * @param key byte[]: buffer starting with an encoded CustomerID, as at the start of an encoded contact
+     * @param keyLength int: number of bytes of the encoded CustomerID
+     * @param hash int: hash of the CustomerID
+     * @return int: index into the slots
+     */
+    private int findSlot(byte[] key, int keyLength, int hash){
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while(slots[slot] != 0){
+            int entry = slots[slot] - 1;
+            if(hashes[entry] == hash && keyEquals(addresses[entry], key, keyLength)){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean keyEquals(long address, byte[] key, int keyLength){
+        byte[] page = pages[(int) (address >>> 32)];
+        int position = (int) address;
+        for(int i = 0; i < keyLength; i++){
+            if(page[position + i] != key[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(){
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for(int entry = 0; entry < size; entry++){
+            int slot = hashes[entry] & mask;
+            while(newSlots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = entry + 1;
+        }
+        slots = newSlots;
+    }
+
+    /**
+     * Method to copy an encoded contact into the pages. A contact never spans two pages;
+     * one larger than a page gets a page of its own.
+     * @param bytes byte[]: encoded contact
+     * @param length int: number of bytes to copy
+     * @return long: address of the copy
+     */
+    private long append(byte[] bytes, int length){
+        if(pagePosition + length > pageSize || pageCount == 0){
+            if(pageCount == pages.length){
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            pages[pageCount++] = new byte[Math.max(pageSize, length)];
+            pageBytes += pages[pageCount - 1].length;
+            pagePosition = 0;
+        }
+        int page = pageCount - 1;
+        System.arraycopy(bytes, 0, pages[page], pagePosition, length);
+        long address = ((long) page << 32) | pagePosition;
+        pagePosition += length;
+        return address;
+    }
+
+    /**
+     * Method to encode every field of the given contact into the encode buffer.
+     * Each field is written as its UTF-8 length + 1 (0 for a null field) as a variable length integer, followed by its bytes.
+     * The CustomerID comes first, so an encoded contact starts with its encoded key.
+     * @param contact Contact: contact to encode
+     * @return int: number of bytes written to the encode buffer
+     */
+    private int encode(Contact contact){
+        int position = 0;
+        for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+            position = encodeField(field.get(contact), position);
+        }
+        return position;
+    }
+
+    /**
+     * Method to encode a CustomerID the same way it is encoded at the start of a contact.
+     * @param customerId String: CustomerID, may be null
+     * @return byte[]: the encode buffer, starting with the encoded CustomerID
+     */
+    private byte[] encodeKey(String customerId){
+        encodeField(customerId, 0);
+        return encodeBuffer;
+    }
+
+    /**
+     * Method to write a field into the encode buffer. The characters are encoded to UTF-8 straight into the buffer,
+     * as String#getBytes would copy every field into a new array first. Unlike getBytes, which writes them as '?',
+     * unpaired surrogates (e.g. from a "\ud800" escape in a JSON address book) are written as the three bytes
+     * of their own value, as in WTF-8, so every String is stored, compared and read back exactly.
+     * @param value String: value of the field, may be null
+     * @param position int: position in the encode buffer to write the field to
+     * @return int: position in the encode buffer after the field
+     */
+    private int encodeField(String value, int position){
+        if(value == null){
+            ensureEncodeCapacity(position + 1);
+            encodeBuffer[position] = 0;
+            return position + 1;
+        }
+        int length = utf8Length(value);
+        ensureEncodeCapacity(position + 5 + length);
+        position = writeVarint(encodeBuffer, position, length + 1);
+        return writeUtf8(value, encodeBuffer, position);
+    }
+
+    /**
+     * Method to encode a value the same way encodeField() does, without its size, e.g. as a key that sorts the same as compareKeys().
+     * @param value String: value to encode
+     * @return byte[]: the UTF-8 bytes of the value, with unpaired surrogates written as their own value
+     */
+    static byte[] encode(String value){
+        byte[] bytes = new byte[utf8Length(value)];
+        writeUtf8(value, bytes, 0);
+        return bytes;
+    }
+
+    private static int writeUtf8(String value, byte[] buffer, int position){
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c < 0x80){
+                buffer[position++] = (byte) c;
+            }
+            else if(c < 0x800){
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))){
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    private static int utf8Length(String value){
+        int length = 0;
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c < 0x80){
+                length += 1;
+            }
+            else if(c < 0x800){
+                length += 2;
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))){
+                length += 4;
+                i++;
+            }
+            else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Method to decode a field written by encodeField(). Fields without an unpaired surrogate are plain UTF-8,
+     * which String decodes fastest; the rest are decoded here, as String would replace each surrogate with U+FFFD.
+     * @param bytes byte[]: buffer holding the field
+     * @param offset int: position of the first byte of the field
+     * @param length int: number of bytes of the field
+     * @return String: the value of the field
+     */
+    private static String decode(byte[] bytes, int offset, int length){
+        int end = offset + length;
+        boolean hasSurrogate = false;
+        for(int i = offset; i < end - 1 && !hasSurrogate; i++){
+            //Surrogates are the only 3 byte sequences starting 0xED 0xA0 to 0xED 0xBF
+            hasSurrogate = bytes[i] == (byte) 0xED && (bytes[i + 1] & 0xFF) >= 0xA0;
+        }
+        if(!hasSurrogate){
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+
+        char[] chars = new char[length];
+        int count = 0;
+        int position = offset;
+        while(position < end){
+            int b = bytes[position] & 0xFF;
+            if(b < 0x80){
+                chars[count++] = (char) b;
+                position += 1;
+            }
+            else if(b < 0xE0){
+                chars[count++] = (char) (((b & 0x1F) << 6) | (bytes[position + 1] & 0x3F));
+                position += 2;
+            }
+            else if(b < 0xF0){
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((bytes[position + 1] & 0x3F) << 6) | (bytes[position + 2] & 0x3F));
+                position += 3;
+            }
+            else {
+                int codePoint = ((b & 0x07) << 18) | ((bytes[position + 1] & 0x3F) << 12) | ((bytes[position + 2] & 0x3F) << 6) | (bytes[position + 3] & 0x3F);
+                count += Character.toChars(codePoint, chars, count);
+                position += 4;
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static int writeVarint(byte[] buffer, int position, int value){
+        while((value & ~0x7F) != 0){
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(byte[] buffer, int position){
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while(b < 0);
+        return value;
+    }
+
+    private static int varintSize(int value){
+        int size = 1;
+        while((value & ~0x7F) != 0){
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private void ensureEncodeCapacity(int capacity){
+        if(encodeBuffer.length < capacity){
+            encodeBuffer = Arrays.copyOf(encodeBuffer, Math.max(capacity, encodeBuffer.length * 2));
+        }
+    }
+
+    /**
+     * Method to find the number of bytes of the encoded CustomerID at the start of the given encoded contact.
+     * @param encoded byte[]: encoded contact
+     * @return int: length of the variable length size and the bytes of the CustomerID
+     */
+    private static int keyLength(byte[] encoded){
+        int value = readVarint(encoded, 0);
+        return varintSize(value) + Math.max(value - 1, 0);
+    }
+
+    private static int hash(String customerId){
+        int hash = (customerId == null) ? 0 : customerId.hashCode();
+        //Spread the high bits, as the table is indexed by the low bits
+        return hash ^ (hash >>> 16) ^ (hash >>> 8);
+    }
+}
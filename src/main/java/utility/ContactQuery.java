@@ -0,0 +1,486 @@
+package utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Filter and projection applied to the contacts of an address book while it is read, so a conversion only writes
+ * the contacts and fields that are needed. A filter expression compares the fields of a contact to quoted strings:
+ *      Country == 'Germany' &amp;&amp; PostalCode startsWith '1'
+ *      (City == 'Berlin' || City == 'Hamburg') &amp;&amp; !(Fax == null)
+ * The operators are ==, !=, startsWith, endsWith and contains, combined with &amp;&amp;, || (&amp;&amp; binds tighter), ! and parentheses.
+ * Field names are the element names of ad.xsd, and a field that is left out of a contact only equals null.
+ *
+ * The readers hand the raw text of each field to a ContactMatcher as it is read. The comparisons are made on that text,
+ * and the filter is decided as soon as the fields read so far are enough, e.g. Country == 'Germany' after the Country
+ * of a contact from France. The rest of a rejected contact is stepped over without its text being decoded or kept, and
+ * a Contact is only built for the contacts that match, so filtering a large address book for a few contacts
+ * costs little more than reading it.
+ */
+public final class ContactQuery {
+    private static final int UNKNOWN = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+
+    private final String filterExpression;
+    private final Condition filter;
+    private final List<Comparison> comparisons = new ArrayList<>();
+    private final boolean[] projectedFields = new boolean[ContactField.IN_SCHEMA_ORDER.length];
+    private final boolean[] filteredFields = new boolean[ContactField.IN_SCHEMA_ORDER.length];
+    private final boolean projecting;
+
+    /**
+     * @param filterExpression String: expression a contact must match to be kept, or null to keep every contact
+     * @param fieldNames List of String: element names of the fields to keep, in any order, or null to keep every field
+     * @throws IllegalArgumentException if the expression is not valid, or a field name is not part of a Contact
+     */
+    public ContactQuery(String filterExpression, List<String> fieldNames){
+        this.filterExpression = filterExpression;
+        if(fieldNames == null){
+            Arrays.fill(projectedFields, true);
+        }
+        else {
+            for(String fieldName : fieldNames){
+                projectedFields[requireField(fieldName.trim()).ordinal()] = true;
+            }
+        }
+        this.projecting = fieldNames != null;
+        this.filter = (filterExpression == null) ? null : new ExpressionParser(filterExpression).parse();
+    }
+
+    /**
+     * Method to create the matcher a reader passes the fields of its contacts to. A matcher holds the state of
+     * the contact being read, so every reader needs its own, while the query itself can be shared.
+     * @return ContactMatcher: matcher for the contacts of one reader
+     */
+    ContactMatcher newMatcher(){
+        return new ContactMatcher();
+    }
+
+    /**
+     * @return List of String: element names of the fields the schema requires that the projection leaves out, empty if none
+     */
+    List<String> getDroppedRequiredFields() {
+        List<String> droppedRequiredFields = new ArrayList<>();
+        for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+            if(!field.isOptional() && !projectedFields[field.ordinal()]){
+                droppedRequiredFields.add(field.getElementName());
+            }
+        }
+        return droppedRequiredFields;
+    }
+
+    @Override
+    public String toString() {
+        return "ContactQuery[filter=" + filterExpression + ", projecting=" + projecting + "]";
+    }
+
+    private static ContactField requireField(String fieldName){
+        ContactField field = ContactField.forElementName(fieldName);
+        if(field == null){
+            throw new IllegalArgumentException("Unknown Contact field: " + fieldName);
+        }
+        return field;
+    }
+
+    /**
+     * Decides, one contact at a time, whether a contact matches the query from the raw text of its fields, and builds
+     * the Contact holding the projected fields of the contacts that match. For every contact a reader calls
+     * startContact(), then startValue() for each field, followed (if it returned true) by appendValue() for the text
+     * of the field and endValue(), and finally endContact(). The text of projected fields is kept in reusable buffers
+     * until the contact is decided, so no String is created for a contact that does not match.
+     */
+    final class ContactMatcher {
+        private final char[][] values = new char[ContactField.IN_SCHEMA_ORDER.length][];
+        //Length of the text of each field of the current contact, or -1 if the field has not been read (or is null)
+        private final int[] valueLengths = new int[ContactField.IN_SCHEMA_ORDER.length];
+        private final int[] comparisonResults = new int[comparisons.size()];
+        private ContactField currentField;
+        private int result;
+
+        private ContactMatcher(){
+            for(int i = 0; i < values.length; i++){
+                values[i] = new char[64];
+            }
+        }
+
+        /**
+         * Method to start reading a new contact, forgetting the fields of the previous one.
+         */
+        void startContact(){
+            Arrays.fill(valueLengths, -1);
+            Arrays.fill(comparisonResults, UNKNOWN);
+            result = (filter == null) ? TRUE : UNKNOWN;
+        }
+
+        /**
+         * Method to start reading the text of a field of the current contact.
+         * @param field ContactField: field the text belongs to
+         * @return true if the text is needed, false if the field is neither filtered on nor projected,
+         * or the contact has already been rejected, so the text can be skipped without being decoded
+         */
+        boolean startValue(ContactField field){
+            if(result == FALSE || (!projectedFields[field.ordinal()] && !filteredFields[field.ordinal()])){
+                currentField = null;
+                return false;
+            }
+            currentField = field;
+            valueLengths[field.ordinal()] = 0;
+            return true;
+        }
+
+        /**
+         * Method to add text to the field started by startValue(). The text may be given in several parts, e.g.
+         * when an XML element holds both characters and a CDATA section.
+         * @param text char[]: buffer holding the text
+         * @param offset int: start of the text in the buffer
+         * @param length int: number of characters of the text
+         */
+        void appendValue(char[] text, int offset, int length){
+            int field = currentField.ordinal();
+            int valueLength = valueLengths[field];
+            if(valueLength + length > values[field].length){
+                values[field] = Arrays.copyOf(values[field], Math.max(2 * values[field].length, valueLength + length));
+            }
+            System.arraycopy(text, offset, values[field], valueLength, length);
+            valueLengths[field] = valueLength + length;
+        }
+
+        /**
+         * Method to finish the field started by startValue(), comparing its text if it is filtered on.
+         */
+        void endValue(){
+            if(filteredFields[currentField.ordinal()]){
+                compare(currentField);
+            }
+            currentField = null;
+        }
+
+        /**
+         * Method to record that a field of the current contact is explicitly null, e.g. "Fax": null in JSON.
+         * @param field ContactField: field that is null
+         */
+        void nullValue(ContactField field){
+            valueLengths[field.ordinal()] = -1;
+            if(result != FALSE && filteredFields[field.ordinal()]){
+                compare(field);
+            }
+        }
+
+        /**
+         * Method to finish the current contact. The fields it left out are null.
+         * @return Contact: the projected fields of the contact if it matches the query, or null if it does not
+         */
+        Contact endContact(){
+            if(result == UNKNOWN){
+                for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+                    if(filteredFields[field.ordinal()] && valueLengths[field.ordinal()] < 0){
+                        compare(field);
+                    }
+                }
+            }
+            if(result != TRUE){
+                return null;
+            }
+            Contact contact = new Contact();
+            for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+                int valueLength = valueLengths[field.ordinal()];
+                if(valueLength >= 0 && projectedFields[field.ordinal()]){
+                    field.set(contact, new String(values[field.ordinal()], 0, valueLength));
+                }
+            }
+            return contact;
+        }
+
+        private void compare(ContactField field){
+            int valueLength = valueLengths[field.ordinal()];
+            char[] value = (valueLength < 0) ? null : values[field.ordinal()];
+            for(Comparison comparison : comparisons){
+                if(comparison.field == field){
+                    comparisonResults[comparison.index] = comparison.test(value, valueLength) ? TRUE : FALSE;
+                }
+            }
+            result = filter.evaluate(comparisonResults);
+        }
+    }
+
+    private enum Operator {
+        EQUALS, NOT_EQUALS, STARTS_WITH, ENDS_WITH, CONTAINS
+    }
+
+    /**
+     * Node of a parsed filter expression. It is evaluated with three-valued logic over the results of the comparisons
+     * made so far, so it can be decided before every field it compares has been read.
+     */
+    private abstract static class Condition {
+        /**
+         * @param comparisonResults int[]: TRUE, FALSE or UNKNOWN for every comparison of the expression, by index
+         * @return int: TRUE or FALSE if the node is decided by the known results, otherwise UNKNOWN
+         */
+        abstract int evaluate(int[] comparisonResults);
+    }
+
+    private static final class And extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        private And(Condition left, Condition right){
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate(int[] comparisonResults){
+            int leftResult = left.evaluate(comparisonResults);
+            if(leftResult == FALSE){
+                return FALSE;
+            }
+            int rightResult = right.evaluate(comparisonResults);
+            return (rightResult == FALSE) ? FALSE : (leftResult == TRUE && rightResult == TRUE) ? TRUE : UNKNOWN;
+        }
+    }
+
+    private static final class Or extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        private Or(Condition left, Condition right){
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate(int[] comparisonResults){
+            int leftResult = left.evaluate(comparisonResults);
+            if(leftResult == TRUE){
+                return TRUE;
+            }
+            int rightResult = right.evaluate(comparisonResults);
+            return (rightResult == TRUE) ? TRUE : (leftResult == FALSE && rightResult == FALSE) ? FALSE : UNKNOWN;
+        }
+    }
+
+    private static final class Not extends Condition {
+        private final Condition condition;
+
+        private Not(Condition condition){
+            this.condition = condition;
+        }
+
+        @Override
+        int evaluate(int[] comparisonResults){
+            int result = condition.evaluate(comparisonResults);
+            return (result == TRUE) ? FALSE : (result == FALSE) ? TRUE : UNKNOWN;
+        }
+    }
+
+    /**
+     * Comparison of one field to a string, made on the raw text of the field.
+     */
+    private static final class Comparison extends Condition {
+        private final int index;
+        private final ContactField field;
+        private final Operator operator;
+        private final String operand;
+
+        private Comparison(int index, ContactField field, Operator operator, String operand){
+            this.index = index;
+            this.field = field;
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        int evaluate(int[] comparisonResults){
+            return comparisonResults[index];
+        }
+
+        /**
+         * @param value char[]: buffer holding the text of the field, or null if the field is null
+         * @param length int: number of characters of the text, starting at the beginning of the buffer
+         * @return true if the field matches
+         */
+        boolean test(char[] value, int length){
+            if(value == null){
+                return (operator == Operator.EQUALS) ? operand == null : operator == Operator.NOT_EQUALS && operand != null;
+            }
+            switch(operator){
+                case EQUALS:
+                    return operand != null && length == operand.length() && regionMatches(value, 0);
+                case NOT_EQUALS:
+                    return operand == null || length != operand.length() || !regionMatches(value, 0);
+                case STARTS_WITH:
+                    return length >= operand.length() && regionMatches(value, 0);
+                case ENDS_WITH:
+                    return length >= operand.length() && regionMatches(value, length - operand.length());
+                default:
+                    for(int offset = 0; offset <= length - operand.length(); offset++){
+                        if(regionMatches(value, offset)){
+                            return true;
+                        }
+                    }
+                    return false;
+            }
+        }
+
+        private boolean regionMatches(char[] value, int offset){
+            for(int i = 0; i < operand.length(); i++){
+                if(value[offset + i] != operand.charAt(i)){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Recursive descent parser of a filter expression into a tree of conditions. Marks every field it compares as filtered on.
+     */
+    private final class ExpressionParser {
+        private final String expression;
+        private int position = 0;
+
+        private ExpressionParser(String expression){
+            this.expression = expression;
+        }
+
+        private Condition parse(){
+            Condition predicate = parseOr();
+            skipWhitespace();
+            if(position < expression.length()){
+                throw invalid("unexpected '" + expression.charAt(position) + "'");
+            }
+            return predicate;
+        }
+
+        private Condition parseOr(){
+            Condition predicate = parseAnd();
+            while(accept("||")){
+                predicate = new Or(predicate, parseAnd());
+            }
+            return predicate;
+        }
+
+        private Condition parseAnd(){
+            Condition predicate = parseUnary();
+            while(accept("&&")){
+                predicate = new And(predicate, parseUnary());
+            }
+            return predicate;
+        }
+
+        private Condition parseUnary(){
+            if(accept("!")){
+                return new Not(parseUnary());
+            }
+            if(accept("(")){
+                Condition predicate = parseOr();
+                if(!accept(")")){
+                    throw invalid("expected ')'");
+                }
+                return predicate;
+            }
+            return parseComparison();
+        }
+
+        private Condition parseComparison(){
+            ContactField field = requireField(parseWord("field name"));
+            filteredFields[field.ordinal()] = true;
+            String operatorName = accept("==") ? "==" : accept("!=") ? "!=" : parseWord("operator");
+            String operand = acceptNull() ? null : parseString();
+            Operator operator;
+            switch(operatorName){
+                case "==":
+                    operator = Operator.EQUALS;
+                    break;
+                case "!=":
+                    operator = Operator.NOT_EQUALS;
+                    break;
+                case "startsWith":
+                    operator = Operator.STARTS_WITH;
+                    break;
+                case "endsWith":
+                    operator = Operator.ENDS_WITH;
+                    break;
+                case "contains":
+                    operator = Operator.CONTAINS;
+                    break;
+                default:
+                    throw invalid("unknown operator '" + operatorName + "'");
+            }
+            if(operand == null && operator != Operator.EQUALS && operator != Operator.NOT_EQUALS){
+                throw invalid(operatorName + " cannot be used with null");
+            }
+            Comparison comparison = new Comparison(comparisons.size(), field, operator, operand);
+            comparisons.add(comparison);
+            return comparison;
+        }
+
+        private boolean acceptNull(){
+            skipWhitespace();
+            int end = position + "null".length();
+            if(expression.startsWith("null", position) && (end == expression.length() || !Character.isLetterOrDigit(expression.charAt(end)))){
+                position = end;
+                return true;
+            }
+            return false;
+        }
+
+        private String parseWord(String description){
+            skipWhitespace();
+            int start = position;
+            while(position < expression.length() && Character.isLetterOrDigit(expression.charAt(position))){
+                position++;
+            }
+            if(start == position){
+                throw invalid("expected " + description);
+            }
+            return expression.substring(start, position);
+        }
+
+        /**
+         * Method to parse a string in single or double quotes, where a backslash escapes the next character.
+         * @return String: the unquoted string
+         */
+        private String parseString(){
+            skipWhitespace();
+            if(position >= expression.length() || (expression.charAt(position) != '\'' && expression.charAt(position) != '"')){
+                throw invalid("expected a quoted string or null");
+            }
+            char quote = expression.charAt(position++);
+            StringBuilder value = new StringBuilder();
+            while(position < expression.length() && expression.charAt(position) != quote){
+                char c = expression.charAt(position++);
+                if(c == '\\' && position < expression.length()){
+                    c = expression.charAt(position++);
+                }
+                value.append(c);
+            }
+            if(position >= expression.length()){
+                throw invalid("unterminated string");
+            }
+            position++;
+            return value.toString();
+        }
+
+        private boolean accept(String token){
+            skipWhitespace();
+            if(expression.startsWith(token, position)){
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace(){
+            while(position < expression.length() && Character.isWhitespace(expression.charAt(position))){
+                position++;
+            }
+        }
+
+        private IllegalArgumentException invalid(String reason){
+            return new IllegalArgumentException("Invalid filter expression at position " + position + ": " + reason + " in: " + expression);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the contacts of an address book one at a time, so that the
+ * whole AddressBook never has to be held in memory.
+ */
+interface ContactReader extends Closeable {
+
+    /**
+     * Method to read the next contact of the address book.
+     * @return Contact: the next contact, or null if there are no more contacts
+     * @throws IOException if the address book could not be read
+     */
+    Contact nextContact() throws IOException;
+
+    /**
+     * Method to find where the contact last returned by nextContact() starts, so it can later be read again on its own.
+     * @return long: byte offset of the contact in the address book (for XML, its character offset after any byte order mark),
+     * or -1 if the reader cannot tell
+     */
+    default long getContactStart(){
+        return -1;
+    }
+
+    /**
+     * Method to find where the contact last returned by nextContact() ends, in the same units as getContactStart().
+     * @return long: offset just past the end of the contact, or -1 if the reader cannot tell
+     */
+    default long getContactEnd(){
+        return -1;
+    }
+}
@@ -0,0 +1,21 @@
+package utility;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes the contacts of an address book one at a time, so that the
+ * whole AddressBook never has to be held in memory.
+ * Closing the writer completes the address book document.
+ * Flushing it writes out every contact written so far, without completing the document.
+ */
+interface ContactWriter extends Closeable, Flushable {
+
+    /**
+     * Method to append a contact to the address book being written.
+     * @param contact Contact: contact to write
+     * @throws IOException if the contact could not be written
+     */
+    void writeContact(Contact contact) throws IOException;
+}
@@ -11,4 +11,8 @@ public class InvalidAddressBookException extends IOException {
     public InvalidAddressBookException(String errorMessage) {
         super(errorMessage);
     }
+
+    public InvalidAddressBookException(String errorMessage, Throwable cause) {
+        super(errorMessage, cause);
+    }
 }
@@ -0,0 +1,138 @@
+package utility;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Validates a JSON address book directly against the rules of /src/main/resources/ad.xsd,
+ * in a single streaming pass over the JSON tokens, without converting it to XML.
+ * A valid JSON address book is an object whose only property is an optional "Contact" array,
+ * and every element of that array is an object with each required Contact field, any of the optional
+ * PostalCode, Fax and Region fields, and no other fields. Each field appears at most once and has a
+ * string (or other scalar) value; a null value counts as the field being left out.
+ * Properties of a JSON object are unordered, so the order of the fields is not checked;
+ * the XML writer always writes them in the order defined by the schema.
+ * NDJSON address books are validated the same way, with every line being one element of the "Contact" array.
+ * This class holds no state, so one instance can be shared between threads.
+ */
+final class JsonAddressBookValidator {
+    private static final String CONTACT_PROPERTY = "Contact";
+    private static final int REQUIRED_FIELDS = requiredFieldsMask();
+
+    /**
+     * Method to validate the JSON address book read by the given parser.
+     * @param jsonParser JsonParser: parser positioned before the start of the address book
+     * @throws InvalidAddressBookException if the address book does not follow the schema
+     * @throws IOException if the JSON could not be read or is not well-formed
+     */
+    void validate(JsonParser jsonParser) throws IOException {
+        if(jsonParser.nextToken() != JsonToken.START_OBJECT){
+            throw new InvalidAddressBookException("JSON address book must be an object.");
+        }
+        boolean hasContactProperty = false;
+        JsonToken token;
+        while((token = jsonParser.nextToken()) == JsonToken.FIELD_NAME){
+            if(!CONTACT_PROPERTY.equals(jsonParser.getCurrentName()) || hasContactProperty){
+                throw new InvalidAddressBookException("Unexpected property in JSON address book: " + jsonParser.getCurrentName());
+            }
+            hasContactProperty = true;
+            if(jsonParser.nextToken() != JsonToken.START_ARRAY){
+                throw new InvalidAddressBookException("\"" + CONTACT_PROPERTY + "\" must be an array.");
+            }
+            validateContacts(jsonParser);
+        }
+        if(token != JsonToken.END_OBJECT){
+            throw new InvalidAddressBookException("JSON address book is not complete.");
+        }
+    }
+
+    /**
+     * Method to validate the NDJSON address book read by the given parser, where every line is a contact.
+     * @param jsonParser JsonParser: parser positioned before the first line of the address book
+     * @throws InvalidAddressBookException if a contact does not follow the schema
+     * @throws IOException if the JSON could not be read or is not well-formed
+     */
+    void validateNdjson(JsonParser jsonParser) throws IOException {
+        long contactNumber = 0;
+        JsonToken token;
+        while((token = jsonParser.nextToken()) != null){
+            contactNumber++;
+            if(token != JsonToken.START_OBJECT){
+                throw invalidContact(contactNumber, "must be an object.");
+            }
+            validateContact(jsonParser, contactNumber);
+        }
+    }
+
+    /**
+     * Method to validate every element of the "Contact" array.
+     * @param jsonParser JsonParser: parser positioned on the start of the array
+     * @throws IOException if a contact is not valid or the JSON could not be read
+     */
+    private void validateContacts(JsonParser jsonParser) throws IOException {
+        long contactNumber = 0;
+        JsonToken token;
+        while((token = jsonParser.nextToken()) != JsonToken.END_ARRAY){
+            contactNumber++;
+            if(token != JsonToken.START_OBJECT){
+                throw invalidContact(contactNumber, "must be an object.");
+            }
+            validateContact(jsonParser, contactNumber);
+        }
+    }
+
+    /**
+     * Method to validate a single contact. The fields that have been seen are tracked as a bit mask
+     * of ContactField ordinals, so no objects are created per contact.
+     * @param jsonParser JsonParser: parser positioned on the start of the contact object
+     * @param contactNumber long: position of the contact in the address book, starting at 1
+     * @throws IOException if the contact is not valid or the JSON could not be read
+     */
+    private void validateContact(JsonParser jsonParser, long contactNumber) throws IOException {
+        int seenFields = 0;
+        int presentFields = 0;
+        while(jsonParser.nextToken() == JsonToken.FIELD_NAME){
+            String fieldName = jsonParser.getCurrentName();
+            ContactField field = ContactField.forElementName(fieldName);
+            if(field == null){
+                throw invalidContact(contactNumber, "has an unknown field: " + fieldName);
+            }
+            int fieldBit = 1 << field.ordinal();
+            if((seenFields & fieldBit) != 0){
+                throw invalidContact(contactNumber, "has more than one " + fieldName + " field.");
+            }
+            seenFields |= fieldBit;
+
+            JsonToken value = jsonParser.nextToken();
+            if(value == JsonToken.VALUE_NULL){
+                continue;
+            }
+            if(value == null || !value.isScalarValue()){
+                throw invalidContact(contactNumber, "field " + fieldName + " must be a string.");
+            }
+            presentFields |= fieldBit;
+        }
+
+        int missingFields = REQUIRED_FIELDS & ~presentFields;
+        if(missingFields != 0){
+            ContactField missingField = ContactField.values()[Integer.numberOfTrailingZeros(missingFields)];
+            throw invalidContact(contactNumber, "is missing the required field " + missingField.getElementName() + ".");
+        }
+    }
+
+    private static InvalidAddressBookException invalidContact(long contactNumber, String reason){
+        return new InvalidAddressBookException("Invalid address book at Contact #" + contactNumber + ": Contact " + reason);
+    }
+
+    private static int requiredFieldsMask(){
+        int mask = 0;
+        for(ContactField field : ContactField.values()){
+            if(!field.isOptional()){
+                mask |= 1 << field.ordinal();
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,176 @@
+package utility;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * ContactReader that walks the tokens of a JSON address book and reads the elements
+ * of the "Contact" array one at a time, so only the current contact is ever held in memory.
+ * Each contact is read field by field straight from the parser. The fields are expected in schema order,
+ * which is matched against the pre-encoded property names without a lookup, but any order is accepted.
+ * With a ContactQuery, the raw text of the fields it needs is handed to its matcher, and every other value is skipped
+ * without being decoded, as are all values of a contact once the filter has rejected it.
+ * A Contact is only built for the contacts that match.
+ */
+final class JsonContactReader implements ContactReader {
+    private static final String CONTACT_PROPERTY = "Contact";
+
+    private final JsonParser jsonParser;
+    //null when every contact is returned as it is
+    private final ContactQuery.ContactMatcher contactMatcher;
+    private boolean inContactArray = false;
+    private long contactStart = -1;
+
+    /**
+     * @param jsonParser JsonParser: parser over the JSON address book. Closed when this reader is closed.
+     * @throws IOException if the address book does not start with a JSON object
+     */
+    JsonContactReader(JsonParser jsonParser) throws IOException {
+        this(jsonParser, null);
+    }
+
+    /**
+     * @param jsonParser JsonParser: parser over the JSON address book. Closed when this reader is closed.
+     * @param contactQuery ContactQuery: filter and projection of the contacts returned, or null to return every contact as it is
+     * @throws IOException if the address book does not start with a JSON object
+     */
+    JsonContactReader(JsonParser jsonParser, ContactQuery contactQuery) throws IOException {
+        this.jsonParser = jsonParser;
+        this.contactMatcher = (contactQuery == null) ? null : contactQuery.newMatcher();
+        if(jsonParser.nextToken() != JsonToken.START_OBJECT){
+            jsonParser.close();
+            throw new InvalidAddressBookException("JSON address book must be an object.");
+        }
+    }
+
+    @Override
+    public Contact nextContact() throws IOException {
+        while(nextContactObject()){
+            Contact contact = readContact(jsonParser, contactMatcher);
+            if(contact != null){
+                return contact;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to move the parser to the start of the next element of the "Contact" array.
+     * @return true if the parser is on the start of a contact object, false at the end of the address book
+     * @throws IOException if the address book could not be read or is not shaped like an address book
+     */
+    private boolean nextContactObject() throws IOException {
+        JsonToken token = jsonParser.nextToken();
+        if(!inContactArray){
+            if(token == null || token == JsonToken.END_OBJECT){
+                return false;
+            }
+            if(token != JsonToken.FIELD_NAME || !CONTACT_PROPERTY.equals(jsonParser.getCurrentName())){
+                throw new InvalidAddressBookException("Unknown property in JSON address book: " + jsonParser.getCurrentName());
+            }
+            if(jsonParser.nextToken() != JsonToken.START_ARRAY){
+                throw new InvalidAddressBookException("\"" + CONTACT_PROPERTY + "\" must be an array.");
+            }
+            inContactArray = true;
+            token = jsonParser.nextToken();
+        }
+
+        if(token == JsonToken.START_OBJECT){
+            contactStart = jsonParser.getTokenLocation().getByteOffset();
+            return true;
+        }
+        if(token == JsonToken.END_ARRAY){
+            inContactArray = false;
+            return nextContactObject();
+        }
+        throw new InvalidAddressBookException("Every element of \"" + CONTACT_PROPERTY + "\" must be an object.");
+    }
+
+    /**
+     * Method to read the fields of the contact object the parser is positioned on.
+     * Shared with NdjsonContactReader, whose lines are the same objects as the elements of the "Contact" array.
+     * @param jsonParser JsonParser: parser positioned on the start of a contact object
+     * @return Contact: the contact read, with the parser positioned on the end of its object
+     * @throws IOException if the contact could not be read or has a property that is not part of a Contact
+     */
+    static Contact readContact(JsonParser jsonParser) throws IOException {
+        return readContact(jsonParser, null);
+    }
+
+    /**
+     * Method to read the fields of the contact object the parser is positioned on, or, with a matcher, to pass the raw
+     * text of the fields it needs to the matcher. A value the matcher does not need is never decoded,
+     * the parser steps over its raw bytes.
+     * @param jsonParser JsonParser: parser positioned on the start of a contact object
+     * @param contactMatcher ContactQuery.ContactMatcher: matcher of the query to apply, or null to read every field
+     * @return Contact: the contact read, or null if it does not match the query, with the parser positioned on the end of its object
+     * @throws IOException if the contact could not be read or has a property that is not part of a Contact
+     */
+    static Contact readContact(JsonParser jsonParser, ContactQuery.ContactMatcher contactMatcher) throws IOException {
+        Contact contact = (contactMatcher == null) ? new Contact() : null;
+        if(contactMatcher != null){
+            contactMatcher.startContact();
+        }
+        int expectedFieldIndex = 0;
+
+        while(true){
+            ContactField field;
+            if(expectedFieldIndex < ContactField.IN_SCHEMA_ORDER.length
+                    && jsonParser.nextFieldName(ContactField.IN_SCHEMA_ORDER[expectedFieldIndex].getSerializedName())){
+                field = ContactField.IN_SCHEMA_ORDER[expectedFieldIndex];
+            } else {
+                JsonToken token = expectedFieldIndex < ContactField.IN_SCHEMA_ORDER.length ? jsonParser.currentToken() : jsonParser.nextToken();
+                if(token == JsonToken.END_OBJECT){
+                    return (contactMatcher == null) ? contact : contactMatcher.endContact();
+                }
+                if(token != JsonToken.FIELD_NAME){
+                    throw new InvalidAddressBookException("Unexpected " + token + " in Contact.");
+                }
+                field = ContactField.forElementName(jsonParser.getCurrentName());
+                if(field == null){
+                    throw new InvalidAddressBookException("Unknown property in Contact: " + jsonParser.getCurrentName());
+                }
+            }
+            expectedFieldIndex = field.ordinal() + 1;
+
+            JsonToken valueToken = jsonParser.nextToken();
+            if(valueToken == JsonToken.VALUE_NULL){
+                if(contactMatcher == null){
+                    field.set(contact, null);
+                } else {
+                    contactMatcher.nullValue(field);
+                }
+            } else if(valueToken != null && valueToken.isScalarValue()){
+                if(contactMatcher == null){
+                    field.set(contact, jsonParser.getText());
+                } else if(contactMatcher.startValue(field)){
+                    contactMatcher.appendValue(jsonParser.getTextCharacters(), jsonParser.getTextOffset(), jsonParser.getTextLength());
+                    contactMatcher.endValue();
+                }
+            } else {
+                throw new InvalidAddressBookException("Contact property \"" + field.getElementName() + "\" must be a string.");
+            }
+        }
+    }
+
+    @Override
+    public long getContactStart() {
+        return contactStart;
+    }
+
+    /**
+     * The parser stays on the end of the last contact object until nextContact() is called again,
+     * so the end is only looked up when it is asked for.
+     */
+    @Override
+    public long getContactEnd() {
+        return (contactStart < 0) ? -1 : jsonParser.getCurrentLocation().getByteOffset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonParser.close();
+    }
+}
@@ -0,0 +1,71 @@
+package utility;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+
+/**
+ * ContactWriter that writes each contact straight to a JSON generator as an element of the
+ * "Contact" array, producing the same document as serializing the whole AddressBook at once.
+ * The fields are written directly against the generator with pre-encoded property names, so no
+ * serializer is looked up and no bean introspection happens per contact. Whether the output is
+ * indented or compact depends on the pretty printer of the given generator.
+ */
+final class JsonContactWriter implements ContactWriter {
+    private static final SerializableString CONTACT_PROPERTY = new SerializedString("Contact");
+
+    private final JsonGenerator jsonGenerator;
+
+    /**
+     * @param jsonGenerator JsonGenerator: generator to write to. Closed when this writer is closed.
+     * @throws IOException if the start of the address book could not be written
+     */
+    JsonContactWriter(JsonGenerator jsonGenerator) throws IOException {
+        this.jsonGenerator = jsonGenerator;
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeFieldName(CONTACT_PROPERTY);
+        jsonGenerator.writeStartArray();
+    }
+
+    @Override
+    public void writeContact(Contact contact) throws IOException {
+        writeContact(jsonGenerator, contact);
+    }
+
+    /**
+     * Method to write the given contact as a JSON object with its fields in schema order, leaving out null fields.
+     * Shared with NdjsonContactWriter, whose lines are the same objects as the elements of the "Contact" array.
+     * @param jsonGenerator JsonGenerator: generator to write the object to
+     * @param contact Contact: contact to write
+     * @throws IOException if the contact could not be written
+     */
+    static void writeContact(JsonGenerator jsonGenerator, Contact contact) throws IOException {
+        jsonGenerator.writeStartObject();
+        for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+            String value = field.get(contact);
+            if(value == null){
+                continue;
+            }
+            jsonGenerator.writeFieldName(field.getSerializedName());
+            jsonGenerator.writeString(value);
+        }
+        jsonGenerator.writeEndObject();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        jsonGenerator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            jsonGenerator.writeEndArray();
+            jsonGenerator.writeEndObject();
+        } finally {
+            jsonGenerator.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream that reads a file through memory-mapped segments instead of read() system calls,
+ * so the parser copies straight out of the page cache.
+ * A single MappedByteBuffer cannot be larger than 2 GB, so the file is mapped one segment at a time
+ * (1 GB by default) as the stream reaches it, and files of any size can be read.
+ * Mapped segments are released by the garbage collector once the stream has moved past them, not when it is closed,
+ * so on Windows the file cannot be deleted or replaced until then.
+ * If the file is truncated while it is mapped, the JVM reports reading the missing pages with an InternalError,
+ * which may only be thrown a little after the read that faulted. See AddressBookParser.InputMode.
+ */
+final class MappedFileInputStream extends InputStream {
+    static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel fileChannel;
+    private final long fileSize;
+    private final long segmentSize;
+    private long segmentStart = 0;
+    //null until the segment starting at segmentStart has been mapped
+    private MappedByteBuffer segment;
+
+    /**
+     * @param file File: file to read
+     * @throws IOException if the file could not be opened
+     */
+    MappedFileInputStream(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param file File: file to read
+     * @param segmentSize long: number of bytes to map at a time, at most Integer.MAX_VALUE
+     * @throws IOException if the file could not be opened
+     */
+    MappedFileInputStream(File file, long segmentSize) throws IOException {
+        if(segmentSize <= 0 || segmentSize > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Segment size must be between 1 and " + Integer.MAX_VALUE + ": " + segmentSize);
+        }
+        this.fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.fileSize = fileChannel.size();
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(!nextSegmentIfNeeded()){
+            return -1;
+        }
+        return segment.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if(length == 0){
+            return 0;
+        }
+        if(!nextSegmentIfNeeded()){
+            return -1;
+        }
+        int read = Math.min(length, segment.remaining());
+        segment.get(bytes, offset, read);
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        while(skipped < count && nextSegmentIfNeeded()){
+            int step = (int) Math.min(count - skipped, segment.remaining());
+            segment.position(segment.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        long position = (segment == null) ? segmentStart : segmentStart + segment.position();
+        return (int) Math.min(fileSize - position, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment = null;
+        fileChannel.close();
+    }
+
+    /**
+     * Method to map the next segment of the file once the current one has been read completely.
+     * @return true if there is data left to read, false at the end of the file
+     * @throws IOException if the stream is closed or the segment could not be mapped
+     */
+    private boolean nextSegmentIfNeeded() throws IOException {
+        ensureOpen();
+        if(segment != null){
+            if(segment.hasRemaining()){
+                return true;
+            }
+            segmentStart += segment.capacity();
+            segment = null;
+        }
+        if(segmentStart >= fileSize){
+            return false;
+        }
+        segment = fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart, Math.min(segmentSize, fileSize - segmentStart));
+        return true;
+    }
+
+    private void ensureOpen() throws IOException {
+        if(!fileChannel.isOpen()){
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package utility;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * ContactReader for newline delimited JSON (NDJSON) address books, where every line is one Contact object
+ * and there is no enclosing document. Each line is read with the same field by field code as the elements of
+ * the "Contact" array of a JSON address book, so only the current contact is ever held in memory.
+ * Blank lines are skipped, and errors name the contact and the line it starts on.
+ * With a ContactQuery, only the fields it needs are decoded, only until the filter rejects the contact,
+ * and a Contact is only built for the contacts that match it.
+ */
+final class NdjsonContactReader implements ContactReader {
+    private final JsonParser jsonParser;
+    //null when every contact is returned as it is
+    private final ContactQuery.ContactMatcher contactMatcher;
+    private long contactNumber = 0;
+    private long contactStart = -1;
+
+    /**
+     * @param jsonParser JsonParser: parser over the NDJSON address book. Closed when this reader is closed.
+     */
+    NdjsonContactReader(JsonParser jsonParser){
+        this(jsonParser, null);
+    }
+
+    /**
+     * @param jsonParser JsonParser: parser over the NDJSON address book. Closed when this reader is closed.
+     * @param contactQuery ContactQuery: filter and projection of the contacts returned, or null to return every contact as it is
+     */
+    NdjsonContactReader(JsonParser jsonParser, ContactQuery contactQuery){
+        this.jsonParser = jsonParser;
+        this.contactMatcher = (contactQuery == null) ? null : contactQuery.newMatcher();
+    }
+
+    @Override
+    public Contact nextContact() throws IOException {
+        JsonToken token;
+        while((token = jsonParser.nextToken()) != null){
+            Contact contact = readContact(token);
+            if(contact != null){
+                return contact;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param token JsonToken: the first token of the line, which must start a contact object
+     * @return Contact: the contact on the line, or null if it does not match the query
+     * @throws IOException if the contact could not be read or is invalid
+     */
+    private Contact readContact(JsonToken token) throws IOException {
+        contactNumber++;
+        JsonLocation tokenLocation = jsonParser.getTokenLocation();
+        int lineNumber = tokenLocation.getLineNr();
+        if(token != JsonToken.START_OBJECT){
+            throw invalidContact(lineNumber, "Contact must be an object.", null);
+        }
+        contactStart = tokenLocation.getByteOffset();
+        try {
+            return JsonContactReader.readContact(jsonParser, contactMatcher);
+        } catch (InvalidAddressBookException e) {
+            throw invalidContact(lineNumber, e.getMessage(), e);
+        }
+    }
+
+    private InvalidAddressBookException invalidContact(int lineNumber, String reason, Throwable cause){
+        return new InvalidAddressBookException("Invalid address book at Contact #" + contactNumber + " (line " + lineNumber + "): " + reason, cause);
+    }
+
+    @Override
+    public long getContactStart() {
+        return contactStart;
+    }
+
+    /**
+     * The parser stays on the end of the last contact object until nextContact() is called again,
+     * so the end is only looked up when it is asked for.
+     */
+    @Override
+    public long getContactEnd() {
+        return (contactStart < 0) ? -1 : jsonParser.getCurrentLocation().getByteOffset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonParser.close();
+    }
+}
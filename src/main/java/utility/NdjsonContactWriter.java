@@ -0,0 +1,42 @@
+package utility;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.IOException;
+
+/**
+ * ContactWriter for newline delimited JSON (NDJSON) address books: every contact is written as a compact
+ * JSON object on its own line, ending in '\n', with no enclosing document.
+ * Nothing has to be written when the writer is closed, so an NDJSON address book can be appended to,
+ * split at any line, or read by a consumer while it is still being written.
+ */
+final class NdjsonContactWriter implements ContactWriter {
+    private final JsonGenerator jsonGenerator;
+
+    /**
+     * @param jsonGenerator JsonGenerator: generator to write to. Closed when this writer is closed.
+     *                      Any pretty printer it has is replaced, as every contact must stay on one line.
+     */
+    NdjsonContactWriter(JsonGenerator jsonGenerator){
+        this.jsonGenerator = jsonGenerator;
+        //An empty root value separator, as each object is followed by its own line break
+        jsonGenerator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+    }
+
+    @Override
+    public void writeContact(Contact contact) throws IOException {
+        JsonContactWriter.writeContact(jsonGenerator, contact);
+        jsonGenerator.writeRaw('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        jsonGenerator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonGenerator.close();
+    }
+}
@@ -0,0 +1,47 @@
+package utility;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Class to wrap streams owned by the caller of AddressBookParser, so that closing the readers and writers
+ * of a conversion does not close them. Closing a wrapped output stream flushes it instead.
+ */
+final class NonClosingStreams {
+
+    private NonClosingStreams(){
+    }
+
+    /**
+     * @param inputStream InputStream: stream owned by the caller
+     * @return InputStream: stream that reads from the given stream but ignores close()
+     */
+    static InputStream wrap(InputStream inputStream){
+        return new FilterInputStream(inputStream) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * @param outputStream OutputStream: stream owned by the caller
+     * @return OutputStream: stream that writes to the given stream and only flushes it on close()
+     */
+    static OutputStream wrap(OutputStream outputStream){
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,421 @@
+package utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Class to convert a single large XML address book using several cores.
+ * The file is split into byte ranges of roughly the chunk size, each starting at a &lt;Contact&gt; element.
+ * Every range is wrapped in the &lt;AddressBook&gt; root element of the file, so it is a complete address book on its own,
+ * and converted on a ForkJoinPool: parsed and validated against the schema, and its contacts written to a buffer in the
+ * output format. The buffers are then written to the output in their original order, while the following chunks are
+ * still being converted, so the output is exactly the same as a sequential conversion.
+ *
+ * Only a limited number of chunks are in flight at once, so memory use does not grow with the size of the file.
+ * Address books that cannot be split safely (compressed, small, with a DOCTYPE, or not UTF-8) are converted sequentially,
+ * as are conversions to Smile, whose back-references to earlier names and values cannot be split between chunks.
+ * If a chunk is found to be invalid the whole file is converted again sequentially, so that a split in an unexpected
+ * place (e.g. "&lt;Contact&gt;" inside a CDATA section) never changes the result, and errors name the right Contact.
+ */
+public final class ParallelXmlConverter {
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int WINDOW_SIZE = 64 * 1024;
+    private static final byte[] ROOT_START = "<AddressBook".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ROOT_END = "</AddressBook>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTACT_START = "<Contact".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DOCTYPE = "<!DOCTYPE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XML_DECLARATION = "<?xml".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final AddressBookParser addressBookParser;
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * @param addressBookParser AddressBookParser: parser used to read the chunks and write the output
+     * @param parallelism int: number of chunks parsed at the same time, usually the number of cores
+     */
+    public ParallelXmlConverter(AddressBookParser addressBookParser, int parallelism){
+        this(addressBookParser, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param addressBookParser AddressBookParser: parser used to read the chunks and write the output
+     * @param parallelism int: number of chunks parsed at the same time, usually the number of cores
+     * @param chunkSize int: approximate number of bytes in each chunk
+     */
+    public ParallelXmlConverter(AddressBookParser addressBookParser, int parallelism, int chunkSize){
+        if(parallelism < 1){
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        if(chunkSize < 1){
+            throw new IllegalArgumentException("Chunk size must be at least 1.");
+        }
+        this.addressBookParser = addressBookParser;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Method to convert the given XML address book, writing it in the format of the output file's extension (usually .json).
+     * @param xmlInputFile File: XML address book to convert
+     * @param outputFile File: .json (or .xml) output file for the conversion
+     * @throws IOException if the input file does not exist or could not be read, or the output could not be written
+     * @throws InvalidAddressBookException if the given input file is not a valid address book
+     */
+    public void convert(File xmlInputFile, File outputFile) throws IOException {
+        if(!xmlInputFile.isFile()){
+            throw new IOException("Invalid address book given: " + xmlInputFile.getAbsolutePath());
+        }
+        if(!Compression.stripExtension(xmlInputFile.getName()).endsWith(".xml")){
+            throw new IOException("Only XML address books can be converted in parallel: " + xmlInputFile.getPath());
+        }
+
+        AddressBookFormat outputFormat = AddressBookFormat.forFileName(outputFile.getName());
+        AddressBookParser.writeAtomically(outputFile, temporaryFile -> {
+            if(Compression.forFileName(xmlInputFile.getName()) == Compression.NONE && outputFormat != null && outputFormat != AddressBookFormat.SMILE){
+                try(FileChannel fileChannel = FileChannel.open(xmlInputFile.toPath(), StandardOpenOption.READ)){
+                    ChunkPlan chunkPlan = planChunks(fileChannel);
+                    if(chunkPlan != null){
+                        try {
+                            convertChunks(fileChannel, chunkPlan, outputFormat, temporaryFile);
+                            return null;
+                        } catch (InvalidAddressBookException e) {
+                            //Fall through and convert sequentially, which either succeeds or reports the error accurately
+                        }
+                    }
+                }
+            }
+            convertSequentially(xmlInputFile, temporaryFile);
+            return null;
+        });
+    }
+
+    private void convertSequentially(File xmlInputFile, File outputFile) throws IOException {
+        try(ContactReader contactReader = addressBookParser.newContactReader(xmlInputFile);
+            ContactWriter contactWriter = addressBookParser.newContactWriter(outputFile)){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                contactWriter.writeContact(contact);
+            }
+        }
+    }
+
+    /**
+     * Method to convert the chunks on a ForkJoinPool and write them to the output in order.
+     * At most twice the parallelism of chunks are converted ahead of the one being written.
+     * @param fileChannel FileChannel: the XML address book, read with positional reads from several threads
+     * @param chunkPlan ChunkPlan: where the chunks start and the root element to wrap them in
+     * @param outputFormat AddressBookFormat: format of the output
+     * @param outputFile File: output file for the conversion
+     * @throws IOException if a chunk could not be read or is invalid, or the output could not be written
+     */
+    private void convertChunks(FileChannel fileChannel, ChunkPlan chunkPlan, AddressBookFormat outputFormat, File outputFile) throws IOException {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        Deque<ForkJoinTask<byte[]>> chunksInFlight = new ArrayDeque<>();
+        try(OutputStream outputStream = Compression.openOutputStream(outputFile)){
+            int nextChunk = 0;
+            while(nextChunk < chunkPlan.getChunkCount() || !chunksInFlight.isEmpty()){
+                while(nextChunk < chunkPlan.getChunkCount() && chunksInFlight.size() < parallelism * 2){
+                    int chunk = nextChunk++;
+                    chunksInFlight.add(forkJoinPool.submit(() -> convertChunk(fileChannel, chunkPlan, chunk, outputFormat)));
+                }
+                outputStream.write(getConvertedChunk(chunksInFlight.poll()));
+            }
+        } finally {
+            for(ForkJoinTask<byte[]> chunk : chunksInFlight){
+                chunk.cancel(true);
+            }
+            forkJoinPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to read one chunk, wrapped in the root element, and write its contacts in the output format.
+     * The chunk is written as a complete address book of its own, of which only the part the chunk adds to the whole
+     * output is kept: the first chunk keeps the start of the document, and the last chunk its end. Every other chunk
+     * writes its first contact twice and keeps only the second copy, so the separator in front of it
+     * (e.g. the comma between the elements of a JSON array) is written exactly as in a sequential conversion.
+     * @param fileChannel FileChannel: the XML address book
+     * @param chunkPlan ChunkPlan: where the chunks start and the root element to wrap them in
+     * @param chunk int: index of the chunk to convert
+     * @param outputFormat AddressBookFormat: format of the output
+     * @return byte[]: the part of the output written for the contacts of the chunk
+     * @throws IOException if the chunk could not be read or is invalid
+     */
+    private byte[] convertChunk(FileChannel fileChannel, ChunkPlan chunkPlan, int chunk, AddressBookFormat outputFormat) throws IOException {
+        long start = chunkPlan.getChunkStart(chunk);
+        byte[] chunkBytes = read(fileChannel, start, (int) (chunkPlan.getChunkStart(chunk + 1) - start));
+        boolean isFirstChunk = chunk == 0;
+        boolean isLastChunk = chunk == chunkPlan.getChunkCount() - 1;
+
+        InputStream chunkStream = new ByteArrayInputStream(chunkBytes);
+        if(!isFirstChunk){
+            chunkStream = new SequenceInputStream(new ByteArrayInputStream(chunkPlan.getRootStartTag()), chunkStream);
+        }
+        if(!isLastChunk){
+            chunkStream = new SequenceInputStream(chunkStream, new ByteArrayInputStream(ROOT_END));
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(chunkBytes.length);
+        int outputStart = 0;
+        int outputEnd;
+        try(ContactReader contactReader = addressBookParser.newXmlContactReader(chunkStream);
+            ContactWriter contactWriter = addressBookParser.newContactWriter(outputStream, outputFormat)){
+            Contact contact = contactReader.nextContact();
+            if(!isFirstChunk){
+                //A chunk starts at a <Contact> tag, unless the tag was found inside a comment or CDATA section
+                if(contact == null){
+                    throw new InvalidAddressBookException("Chunk " + chunk + " of the address book has no contacts.");
+                }
+                contactWriter.writeContact(contact);
+                contactWriter.flush();
+                outputStart = outputStream.size();
+            }
+            while(contact != null){
+                contactWriter.writeContact(contact);
+                contact = contactReader.nextContact();
+            }
+            contactWriter.flush();
+            outputEnd = outputStream.size();
+        }
+        byte[] output = outputStream.toByteArray();
+        return Arrays.copyOfRange(output, outputStart, isLastChunk ? output.length : outputEnd);
+    }
+
+    private static byte[] getConvertedChunk(ForkJoinTask<byte[]> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parallel conversion was interrupted.", e);
+        } catch (ExecutionException e) {
+            //ForkJoinPool wraps checked exceptions thrown by a Callable in RuntimeExceptions
+            for(Throwable cause = e.getCause(); cause != null; cause = cause.getCause()){
+                if(cause instanceof IOException){
+                    throw (IOException) cause;
+                }
+            }
+            throw new IOException("Parallel conversion failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Method to decide where the chunks of the file start.
+     * The first chunk starts at the beginning of the file, and every other chunk at the first &lt;Contact&gt;
+     * at least the chunk size after the start of the previous one. The first chunk always holds at least one contact,
+     * so every chunk after it is written with the separator that goes between two contacts.
+     * @param fileChannel FileChannel: the XML address book
+     * @return ChunkPlan: the chunks, or null if the file should be converted sequentially
+     * @throws IOException if the file could not be read
+     */
+    private ChunkPlan planChunks(FileChannel fileChannel) throws IOException {
+        long fileSize = fileChannel.size();
+        if(fileSize < 2L * chunkSize){
+            return null;
+        }
+
+        byte[] head = read(fileChannel, 0, (int) Math.min(WINDOW_SIZE, fileSize));
+        if(indexOf(head, head.length, DOCTYPE, 0) >= 0 || !isUtf8(head)){
+            return null;
+        }
+        int rootStart = indexOf(head, head.length, ROOT_START, 0);
+        int rootEnd = (rootStart < 0) ? -1 : indexOf(head, head.length, new byte[]{'>'}, rootStart);
+        if(rootEnd < 0 || head[rootEnd - 1] == '/' || !isNameEnd(head[rootStart + ROOT_START.length])){
+            return null;
+        }
+
+        long firstContactStart = findContactStart(fileChannel, rootEnd + 1);
+        if(firstContactStart < 0){
+            return null;
+        }
+        List<Long> chunkStarts = new ArrayList<>();
+        chunkStarts.add(0L);
+        long target = Math.max(chunkSize, firstContactStart + 1);
+        while(target < fileSize){
+            long contactStart = findContactStart(fileChannel, target);
+            if(contactStart < 0){
+                break;
+            }
+            chunkStarts.add(contactStart);
+            target = contactStart + chunkSize;
+        }
+        if(chunkStarts.size() < 2){
+            return null;
+        }
+        chunkStarts.add(fileSize);
+        return new ChunkPlan(chunkStarts, Arrays.copyOfRange(head, rootStart, rootEnd + 1));
+    }
+
+    /**
+     * Method to find the first &lt;Contact&gt; start tag at or after the given position.
+     * @param fileChannel FileChannel: the XML address book
+     * @param from long: position to start searching at
+     * @return long: position of the '&lt;' of the start tag, or -1 if there is none
+     * @throws IOException if the file could not be read
+     */
+    private static long findContactStart(FileChannel fileChannel, long from) throws IOException {
+        long fileSize = fileChannel.size();
+        int overlap = CONTACT_START.length;
+        for(long position = from; position < fileSize; position += WINDOW_SIZE - overlap){
+            byte[] window = read(fileChannel, position, (int) Math.min(WINDOW_SIZE, fileSize - position));
+            int index = 0;
+            while((index = indexOf(window, window.length - 1, CONTACT_START, index)) >= 0){
+                if(isNameEnd(window[index + CONTACT_START.length])){
+                    return position + index;
+                }
+                index++;
+            }
+            if(position + window.length >= fileSize){
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method to check the encoding of the file, as the chunks are split on UTF-8 bytes. Without a byte order mark or
+     * an encoding in the XML declaration an XML document is UTF-8, otherwise the declared encoding must be UTF-8 or US-ASCII.
+     * The declaration is parsed the way XML allows it to be written: whitespace around the '=', either quote,
+     * and the encoding name in any case. Anything that cannot be parsed is left to the sequential conversion.
+     * @param head byte[]: start of the file
+     * @return true if the file is UTF-8 (or ASCII)
+     */
+    static boolean isUtf8(byte[] head){
+        int position = startsWith(head, 0, UTF8_BOM) ? UTF8_BOM.length : 0;
+        //A UTF-16 or UTF-32 document starts with a byte order mark or has a zero byte in its first two characters
+        if(head.length < position + 2 || head[position] == 0 || head[position + 1] == 0 || (head[position] & 0xFF) >= 0xFE){
+            return false;
+        }
+        if(!startsWith(head, position, XML_DECLARATION) || head.length == position + XML_DECLARATION.length
+                || !isWhitespace(head[position + XML_DECLARATION.length])){
+            return true;
+        }
+
+        int declarationEnd = indexOf(head, head.length, new byte[]{'?', '>'}, position);
+        if(declarationEnd < 0){
+            return false;
+        }
+        position += XML_DECLARATION.length;
+        while(true){
+            position = skipWhitespace(head, position, declarationEnd);
+            if(position == declarationEnd){
+                return true;
+            }
+            int nameStart = position;
+            while(position < declarationEnd && head[position] != '=' && !isWhitespace(head[position])){
+                position++;
+            }
+            String name = new String(head, nameStart, position - nameStart, StandardCharsets.US_ASCII);
+            position = skipWhitespace(head, position, declarationEnd);
+            if(position == declarationEnd || head[position] != '='){
+                return false;
+            }
+            position = skipWhitespace(head, position + 1, declarationEnd);
+            if(position == declarationEnd || (head[position] != '"' && head[position] != '\'')){
+                return false;
+            }
+            byte quote = head[position++];
+            int valueStart = position;
+            while(position < declarationEnd && head[position] != quote){
+                position++;
+            }
+            if(position == declarationEnd){
+                return false;
+            }
+            if(name.equals("encoding")){
+                String encodingName = new String(head, valueStart, position - valueStart, StandardCharsets.US_ASCII);
+                return encodingName.equalsIgnoreCase("UTF-8") || encodingName.equalsIgnoreCase("US-ASCII");
+            }
+            position++;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, int position, byte[] prefix){
+        return position + prefix.length <= bytes.length && indexOf(bytes, position + prefix.length, prefix, position) == position;
+    }
+
+    private static int skipWhitespace(byte[] bytes, int position, int end){
+        while(position < end && isWhitespace(bytes[position])){
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isWhitespace(byte character){
+        return character == ' ' || character == '\t' || character == '\n' || character == '\r';
+    }
+
+    private static boolean isNameEnd(byte character){
+        return character == '>' || character == '/' || isWhitespace(character);
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte[] pattern, int from){
+        for(int i = from; i <= length - pattern.length; i++){
+            int j = 0;
+            while(j < pattern.length && bytes[i + j] == pattern[j]){
+                j++;
+            }
+            if(j == pattern.length){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] read(FileChannel fileChannel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()){
+            if(fileChannel.read(buffer, position + buffer.position()) < 0){
+                throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Where the chunks of a file start, and the root start tag every chunk but the first is wrapped in.
+     */
+    private static final class ChunkPlan {
+        private final List<Long> chunkStarts;
+        private final byte[] rootStartTag;
+
+        private ChunkPlan(List<Long> chunkStarts, byte[] rootStartTag){
+            this.chunkStarts = chunkStarts;
+            this.rootStartTag = rootStartTag;
+        }
+
+        int getChunkCount() {
+            return chunkStarts.size() - 1;
+        }
+
+        /**
+         * @param chunk int: index of the chunk, or the chunk count for the end of the file
+         * @return long: position of the first byte of the chunk
+         */
+        long getChunkStart(int chunk) {
+            return chunkStarts.get(chunk);
+        }
+
+        byte[] getRootStartTag() {
+            return rootStartTag;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package utility;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of compiled XML schemas, shared by every AddressBookParser.
+ * Compiling a schema is far more expensive than validating a small address book with it,
+ * so each schema is compiled once and reused. Schemas are cached by their location, together with a
+ * hash of their contents, so editing a schema file causes it to be compiled again and replace the old one.
+ * At most MAX_CACHED_SCHEMAS locations are kept, the least recently used is evicted first, so a long-running
+ * process that is given many schemas does not hold on to every one of them.
+ * Compiled Schema objects are thread-safe.
+ */
+final class SchemaCache {
+    static final int MAX_CACHED_SCHEMAS = 16;
+
+    //Ordered by access, guarded by its own lock. Compiling is done outside the lock so lookups are never held up by it.
+    private static final Map<String, CompiledSchema> SCHEMAS = new LinkedHashMap<String, CompiledSchema>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledSchema> eldest) {
+            return size() > MAX_CACHED_SCHEMAS;
+        }
+    };
+
+    /**
+     * A compiled schema and the SHA-256 hash of the contents it was compiled from.
+     */
+    static final class CompiledSchema {
+        private final Schema schema;
+        private final String hash;
+
+        private CompiledSchema(Schema schema, String hash){
+            this.schema = schema;
+            this.hash = hash;
+        }
+
+        Schema getSchema() {
+            return schema;
+        }
+
+        /**
+         * @return String: hex encoded SHA-256 hash of the schema file, e.g. to tell whether address books validated
+         * against it have to be validated again
+         */
+        String getHash() {
+            return hash;
+        }
+    }
+
+    private SchemaCache(){
+    }
+
+    /**
+     * Method to get the compiled schema at the given location, compiling it if it has not been seen before
+     * or its contents have changed since it was compiled.
+     * @param schemaLocation URL: location of the XSD file
+     * @return CompiledSchema: the compiled schema and the hash of its contents
+     * @throws IOException if the schema could not be read or compiled
+     */
+    static CompiledSchema getSchema(URL schemaLocation) throws IOException {
+        if(schemaLocation == null){
+            throw new IOException("Schema must be specified.");
+        }
+        byte[] schemaBytes = readAllBytes(schemaLocation);
+        String schemaHash = sha256(schemaBytes);
+        String location = schemaLocation.toExternalForm();
+
+        CompiledSchema compiledSchema;
+        synchronized(SCHEMAS){
+            compiledSchema = SCHEMAS.get(location);
+        }
+        if(compiledSchema == null || !compiledSchema.hash.equals(schemaHash)){
+            CompiledSchema newSchema = new CompiledSchema(compileSchema(schemaLocation, schemaBytes), schemaHash);
+            synchronized(SCHEMAS){
+                //Another thread may have compiled the same contents in the meantime
+                compiledSchema = SCHEMAS.get(location);
+                if(compiledSchema == null || !compiledSchema.hash.equals(schemaHash)){
+                    SCHEMAS.put(location, newSchema);
+                    compiledSchema = newSchema;
+                }
+            }
+        }
+        return compiledSchema;
+    }
+
+    /**
+     * @return int: number of schema locations currently cached
+     */
+    static int size(){
+        synchronized(SCHEMAS){
+            return SCHEMAS.size();
+        }
+    }
+
+    /**
+     * Method to compile the given schema. A new SchemaFactory is used each time since they are not thread-safe.
+     * @param schemaLocation URL: location of the schema, used to resolve relative includes and imports
+     * @param schemaBytes byte[]: contents of the schema
+     * @return Schema: the compiled schema
+     * @throws IOException if the schema could not be compiled
+     */
+    private static Schema compileSchema(URL schemaLocation, byte[] schemaBytes) throws IOException {
+        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        try {
+            return schemaFactory.newSchema(new StreamSource(new ByteArrayInputStream(schemaBytes), schemaLocation.toExternalForm()));
+        } catch (SAXException e) {
+            throw new IOException("Could not compile schema: " + schemaLocation, e);
+        }
+    }
+
+    private static byte[] readAllBytes(URL schemaLocation) throws IOException {
+        try(InputStream inputStream = schemaLocation.openStream()){
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = inputStream.read(buffer)) != -1){
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    private static String sha256(byte[] bytes){
+        try {
+            StringBuilder hash = new StringBuilder();
+            for(byte b : MessageDigest.getInstance("SHA-256").digest(bytes)){
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
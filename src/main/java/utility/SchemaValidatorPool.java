@@ -0,0 +1,60 @@
+package utility;
+
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of validators for a compiled schema, so repeated validations do not have to create new ones.
+ * Validators and ValidatorHandlers are not thread-safe, so:
+ *      a Validator is kept per thread, since a whole document is validated in one call, and
+ *      ValidatorHandlers are borrowed for the lifetime of a streamed document and then returned,
+ *      since one thread may have several documents open at once.
+ */
+final class SchemaValidatorPool {
+    private final Schema schema;
+    private final ThreadLocal<Validator> validators;
+    private final Queue<ValidatorHandler> validatorHandlers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param schema Schema: the compiled schema to validate against
+     */
+    SchemaValidatorPool(Schema schema){
+        this.schema = schema;
+        this.validators = ThreadLocal.withInitial(schema::newValidator);
+    }
+
+    /**
+     * Method to get the calling thread's validator, reset so it is ready to validate a new document.
+     * @return Validator: validator for the schema, only to be used by the calling thread
+     */
+    Validator getValidator(){
+        Validator validator = validators.get();
+        validator.reset();
+        return validator;
+    }
+
+    /**
+     * Method to borrow a validator for a document that will be validated as it is streamed.
+     * It is returned to the pool by StreamingSchemaValidator#release().
+     * @return StreamingSchemaValidator: validator for a single document
+     */
+    StreamingSchemaValidator borrowStreamingValidator(){
+        ValidatorHandler validatorHandler = validatorHandlers.poll();
+        if(validatorHandler == null){
+            validatorHandler = schema.newValidatorHandler();
+        }
+        return new StreamingSchemaValidator(validatorHandler, this);
+    }
+
+    /**
+     * Method to return a ValidatorHandler to the pool once its document has been validated.
+     * @param validatorHandler ValidatorHandler: handler that is no longer in use
+     */
+    void release(ValidatorHandler validatorHandler){
+        validatorHandler.setDocumentLocator(null);
+        validatorHandlers.offer(validatorHandler);
+    }
+}
@@ -0,0 +1,129 @@
+package utility;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.validation.ValidatorHandler;
+
+/**
+ * Validates an address book against /src/main/resources/ad.xsd while it is being read or written,
+ * by forwarding the XML events of the stream to a ValidatorHandler.
+ * This lets a conversion validate and parse (or serialize) the document in a single pass,
+ * and reports which Contact made the address book invalid.
+ */
+final class StreamingSchemaValidator {
+    private static final String CONTACT_ELEMENT = "Contact";
+    private static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+
+    private final ValidatorHandler validatorHandler;
+    private final SchemaValidatorPool validatorPool;
+    private long contactCount = 0;
+    private boolean released = false;
+
+    /**
+     * @param validatorHandler ValidatorHandler: handler for the address book schema
+     * @param validatorPool SchemaValidatorPool: pool the handler is returned to when released
+     */
+    StreamingSchemaValidator(ValidatorHandler validatorHandler, SchemaValidatorPool validatorPool){
+        this.validatorHandler = validatorHandler;
+        this.validatorPool = validatorPool;
+    }
+
+    /**
+     * Method to return the underlying ValidatorHandler to its pool once the document has been read or written.
+     * The validator must not be used after it has been released.
+     */
+    void release(){
+        if(!released){
+            released = true;
+            validatorPool.release(validatorHandler);
+        }
+    }
+
+    /**
+     * Method to give the validator the location of the events in the source document,
+     * so that validation errors can report a line and column.
+     * @param locator Locator: location of the current event
+     */
+    void setDocumentLocator(Locator locator){
+        validatorHandler.setDocumentLocator(locator);
+    }
+
+    void startDocument() throws InvalidAddressBookException {
+        try {
+            validatorHandler.startDocument();
+        } catch (SAXException e) {
+            throw invalidAddressBook(e);
+        }
+    }
+
+    void endDocument() throws InvalidAddressBookException {
+        try {
+            validatorHandler.endDocument();
+        } catch (SAXException e) {
+            throw invalidAddressBook(e);
+        }
+    }
+
+    void startElement(String namespaceUri, String localName, Attributes attributes) throws InvalidAddressBookException {
+        if(CONTACT_ELEMENT.equals(localName)){
+            contactCount++;
+        }
+        try {
+            validatorHandler.startElement(namespaceUri, localName, localName, attributes);
+        } catch (SAXException e) {
+            throw invalidAddressBook(e);
+        }
+    }
+
+    void startElement(String localName) throws InvalidAddressBookException {
+        startElement("", localName, NO_ATTRIBUTES);
+    }
+
+    void endElement(String namespaceUri, String localName) throws InvalidAddressBookException {
+        try {
+            validatorHandler.endElement(namespaceUri, localName, localName);
+        } catch (SAXException e) {
+            throw invalidAddressBook(e);
+        }
+    }
+
+    void endElement(String localName) throws InvalidAddressBookException {
+        endElement("", localName);
+    }
+
+    void characters(char[] characters, int start, int length) throws InvalidAddressBookException {
+        try {
+            validatorHandler.characters(characters, start, length);
+        } catch (SAXException e) {
+            throw invalidAddressBook(e);
+        }
+    }
+
+    void characters(String text) throws InvalidAddressBookException {
+        characters(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Method to describe a validation failure, including the offending Contact and,
+     * if known, its position in the document.
+     * @param e SAXException: the error reported by the schema validator
+     * @return InvalidAddressBookException: exception to throw to the caller
+     */
+    private InvalidAddressBookException invalidAddressBook(SAXException e){
+        StringBuilder message = new StringBuilder("Invalid address book");
+        if(contactCount > 0){
+            message.append(" at Contact #").append(contactCount);
+        }
+        if(e instanceof SAXParseException && ((SAXParseException) e).getLineNumber() > 0){
+            SAXParseException parseException = (SAXParseException) e;
+            message.append(" (line ").append(parseException.getLineNumber())
+                    .append(", column ").append(parseException.getColumnNumber()).append(')');
+        }
+        message.append(": ").append(e.getMessage());
+        return new InvalidAddressBookException(message.toString(), e);
+    }
+}
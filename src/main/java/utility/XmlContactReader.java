@@ -0,0 +1,323 @@
+package utility;
+
+import org.codehaus.stax2.LocationInfo;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.xml.sax.Locator;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * ContactReader that pulls one &lt;Contact&gt; element at a time from an XML address book
+ * using StAX (Woodstox), so only the current contact is ever held in memory.
+ * If a StreamingSchemaValidator is given, every event read is also fed to it, so the
+ * address book is validated in the same pass that reads it.
+ * With a ContactQuery, every element is still validated, but only the text of the fields the query needs is collected,
+ * and only until the filter rejects the contact. A Contact is only built for the contacts that match it.
+ */
+final class XmlContactReader implements ContactReader {
+    private static final String CONTACT_ELEMENT = "Contact";
+
+    private final InputStream inputStream;
+    private final XMLStreamReader xmlStreamReader;
+    private final StreamingSchemaValidator schemaValidator;
+    //null when every contact is returned as it is
+    private final ContactQuery.ContactMatcher contactMatcher;
+    private final StringBuilder elementText = new StringBuilder();
+    private long contactStart = -1;
+
+    /**
+     * @param xmlInputFactory XMLInputFactory: factory used to create the underlying stream reader
+     * @param inputStream InputStream: XML address book to read. Closed when this reader is closed.
+     * @param schemaValidator StreamingSchemaValidator: validator to feed the events to, or null to skip validation
+     * @throws IOException if the stream reader could not be created
+     */
+    XmlContactReader(XMLInputFactory xmlInputFactory, InputStream inputStream, StreamingSchemaValidator schemaValidator) throws IOException {
+        this(xmlInputFactory, inputStream, schemaValidator, null);
+    }
+
+    /**
+     * @param xmlInputFactory XMLInputFactory: factory used to create the underlying stream reader
+     * @param inputStream InputStream: XML address book to read. Closed when this reader is closed.
+     * @param schemaValidator StreamingSchemaValidator: validator to feed the events to, or null to skip validation
+     * @param contactQuery ContactQuery: filter and projection of the contacts returned, or null to return every contact as it is
+     * @throws IOException if the stream reader could not be created
+     */
+    XmlContactReader(XMLInputFactory xmlInputFactory, InputStream inputStream, StreamingSchemaValidator schemaValidator, ContactQuery contactQuery) throws IOException {
+        this.inputStream = inputStream;
+        this.schemaValidator = schemaValidator;
+        this.contactMatcher = (contactQuery == null) ? null : contactQuery.newMatcher();
+        try {
+            this.xmlStreamReader = xmlInputFactory.createXMLStreamReader(inputStream);
+            if(schemaValidator != null){
+                schemaValidator.setDocumentLocator(new StreamLocator());
+                schemaValidator.startDocument();
+            }
+        } catch (XMLStreamException e) {
+            releaseSchemaValidator();
+            inputStream.close();
+            throw invalidXml(e);
+        } catch (InvalidAddressBookException e) {
+            releaseSchemaValidator();
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Contact nextContact() throws IOException {
+        try {
+            while(xmlStreamReader.hasNext()){
+                int event = nextEvent();
+                if(event == XMLStreamConstants.START_ELEMENT && CONTACT_ELEMENT.equals(xmlStreamReader.getLocalName())){
+                    contactStart = characterOffset(false);
+                    Contact contact = (contactMatcher == null) ? readContact() : readMatchingContact();
+                    if(contact != null){
+                        return contact;
+                    }
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw invalidXml(e);
+        }
+    }
+
+    @Override
+    public long getContactStart() {
+        return contactStart;
+    }
+
+    /**
+     * The stream reader stays on the end of the last &lt;Contact&gt; element until nextContact() is called again,
+     * so the end is only looked up when it is asked for.
+     */
+    @Override
+    public long getContactEnd() {
+        return (contactStart < 0) ? -1 : characterOffset(true);
+    }
+
+    /**
+     * Method to find the character offset of the current event, counted in UTF-16 units from the start of the document
+     * (after any byte order mark), as Woodstox does not track byte offsets when it decodes the input itself.
+     * @param ending boolean: true for the offset just past the event, false for the offset of its first character
+     * @return long: the character offset, or -1 if the stream reader does not track offsets
+     */
+    private long characterOffset(boolean ending){
+        if(!(xmlStreamReader instanceof XMLStreamReader2)){
+            return -1;
+        }
+        LocationInfo locationInfo = ((XMLStreamReader2) xmlStreamReader).getLocationInfo();
+        try {
+            return ending ? locationInfo.getEndingCharOffset() : locationInfo.getStartingCharOffset();
+        } catch (XMLStreamException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Method to read the child elements of the current &lt;Contact&gt; element into a Contact.
+     * The stream reader must be positioned on the start of the &lt;Contact&gt; element and will be
+     * positioned on its end when this method returns.
+     * @return Contact: the contact that was read
+     * @throws XMLStreamException if the XML is not well-formed
+     * @throws InvalidAddressBookException if the contact contains an element not defined in ad.xsd
+     */
+    private Contact readContact() throws XMLStreamException, InvalidAddressBookException {
+        Contact contact = new Contact();
+        ContactField currentField = null;
+        while(true){
+            switch (nextEvent()){
+                case XMLStreamConstants.START_ELEMENT:
+                    currentField = requireField();
+                    elementText.setLength(0);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if(currentField != null){
+                        elementText.append(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if(currentField == null){
+                        return contact;
+                    }
+                    currentField.set(contact, elementText.toString());
+                    currentField = null;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Method to pass the text of the child elements of the current &lt;Contact&gt; element to the matcher of the query,
+     * for as long as the matcher needs it. Every event is still validated.
+     * The stream reader must be positioned on the start of the &lt;Contact&gt; element and will be
+     * positioned on its end when this method returns.
+     * @return Contact: the projected contact if it matches the query, or null if it does not
+     * @throws XMLStreamException if the XML is not well-formed
+     * @throws InvalidAddressBookException if the contact contains an element not defined in ad.xsd
+     */
+    private Contact readMatchingContact() throws XMLStreamException, InvalidAddressBookException {
+        contactMatcher.startContact();
+        boolean inField = false;
+        boolean isReadField = false;
+        while(true){
+            switch (nextEvent()){
+                case XMLStreamConstants.START_ELEMENT:
+                    isReadField = contactMatcher.startValue(requireField());
+                    inField = true;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if(inField && isReadField){
+                        contactMatcher.appendValue(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if(!inField){
+                        return contactMatcher.endContact();
+                    }
+                    if(isReadField){
+                        contactMatcher.endValue();
+                    }
+                    inField = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private ContactField requireField() throws InvalidAddressBookException {
+        ContactField field = ContactField.forElementName(xmlStreamReader.getLocalName());
+        if(field == null){
+            throw new InvalidAddressBookException("Unknown element in Contact: " + xmlStreamReader.getLocalName());
+        }
+        return field;
+    }
+
+    /**
+     * Method to advance the stream reader to the next event, forwarding it to the schema validator if there is one.
+     * @return int: the type of the event, as defined in XMLStreamConstants
+     * @throws XMLStreamException if the XML is not well-formed
+     * @throws InvalidAddressBookException if the event makes the address book invalid
+     */
+    private int nextEvent() throws XMLStreamException, InvalidAddressBookException {
+        int event = xmlStreamReader.next();
+        if(schemaValidator == null){
+            return event;
+        }
+        switch (event){
+            case XMLStreamConstants.START_ELEMENT:
+                schemaValidator.startElement(namespaceUri(), xmlStreamReader.getLocalName(), currentAttributes());
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                schemaValidator.endElement(namespaceUri(), xmlStreamReader.getLocalName());
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                schemaValidator.characters(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                schemaValidator.endDocument();
+                break;
+            default:
+                break;
+        }
+        return event;
+    }
+
+    private String namespaceUri(){
+        String namespaceUri = xmlStreamReader.getNamespaceURI();
+        return (namespaceUri == null) ? "" : namespaceUri;
+    }
+
+    /**
+     * Method to copy the attributes of the current start element so they can be validated.
+     * @return AttributesImpl: the attributes of the current element
+     */
+    private AttributesImpl currentAttributes(){
+        AttributesImpl attributes = new AttributesImpl();
+        for(int i = 0; i < xmlStreamReader.getAttributeCount(); i++){
+            String namespaceUri = xmlStreamReader.getAttributeNamespace(i);
+            String prefix = xmlStreamReader.getAttributePrefix(i);
+            String localName = xmlStreamReader.getAttributeLocalName(i);
+            String qualifiedName = (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+            attributes.addAttribute((namespaceUri == null) ? "" : namespaceUri, localName, qualifiedName,
+                    xmlStreamReader.getAttributeType(i), xmlStreamReader.getAttributeValue(i));
+        }
+        return attributes;
+    }
+
+    /**
+     * Method to convert a StAX parsing error to the exception thrown to callers.
+     * I/O errors are passed through as they are, anything else means the document is not a valid address book.
+     * @param e XMLStreamException: error thrown by the stream reader
+     * @return IOException: exception to throw to the caller
+     */
+    private static IOException invalidXml(XMLStreamException e){
+        if(e.getNestedException() instanceof IOException){
+            return (IOException) e.getNestedException();
+        }
+        return new InvalidAddressBookException("Invalid XML address book given: " + e.getMessage(), e);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xmlStreamReader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not close XML address book.", e);
+        } finally {
+            releaseSchemaValidator();
+            inputStream.close();
+        }
+    }
+
+    private void releaseSchemaValidator(){
+        if(schemaValidator != null){
+            schemaValidator.release();
+        }
+    }
+
+    /**
+     * Locator that reports the position of the stream reader, used in validation error messages.
+     */
+    private final class StreamLocator implements Locator {
+        @Override
+        public String getPublicId() {
+            return location().getPublicId();
+        }
+
+        @Override
+        public String getSystemId() {
+            return location().getSystemId();
+        }
+
+        @Override
+        public int getLineNumber() {
+            return location().getLineNumber();
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return location().getColumnNumber();
+        }
+
+        private Location location(){
+            return xmlStreamReader.getLocation();
+        }
+    }
+}
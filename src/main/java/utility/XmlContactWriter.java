@@ -0,0 +1,142 @@
+package utility;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * ContactWriter that writes each contact to a StAX (Woodstox) stream writer as soon as it is given,
+ * either indented the same way as XmlMapper with INDENT_OUTPUT enabled, or compact without any whitespace between elements.
+ * If a StreamingSchemaValidator is given, every event is validated before it is written, so an
+ * invalid contact is rejected without having to re-read the output.
+ */
+final class XmlContactWriter implements ContactWriter {
+    private static final String ROOT_ELEMENT = "AddressBook";
+    private static final String CONTACT_ELEMENT = "Contact";
+    private static final String NEW_LINE = System.lineSeparator();
+    private static final String CONTACT_INDENT = NEW_LINE + "  ";
+    private static final String FIELD_INDENT = NEW_LINE + "    ";
+
+    private final OutputStream outputStream;
+    private final XMLStreamWriter xmlStreamWriter;
+    private final StreamingSchemaValidator schemaValidator;
+    private final boolean indentOutput;
+    private boolean hasContacts = false;
+
+    /**
+     * @param xmlOutputFactory XMLOutputFactory: factory used to create the underlying stream writer
+     * @param outputStream OutputStream: destination of the XML address book. Closed when this writer is closed.
+     * @param schemaValidator StreamingSchemaValidator: validator to feed the events to, or null to skip validation
+     * @param indentOutput boolean: true to indent the elements, false to write them without whitespace in between
+     * @throws IOException if the start of the address book could not be written
+     */
+    XmlContactWriter(XMLOutputFactory xmlOutputFactory, OutputStream outputStream, StreamingSchemaValidator schemaValidator, boolean indentOutput) throws IOException {
+        this.outputStream = outputStream;
+        this.schemaValidator = schemaValidator;
+        this.indentOutput = indentOutput;
+        try {
+            this.xmlStreamWriter = xmlOutputFactory.createXMLStreamWriter(outputStream, "UTF-8");
+            if(schemaValidator != null){
+                schemaValidator.startDocument();
+            }
+            writeStartElement(ROOT_ELEMENT);
+        } catch (XMLStreamException e) {
+            releaseSchemaValidator();
+            outputStream.close();
+            throw new IOException("Could not write XML address book.", e);
+        } catch (InvalidAddressBookException e) {
+            releaseSchemaValidator();
+            outputStream.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void writeContact(Contact contact) throws IOException {
+        try {
+            writeIndent(CONTACT_INDENT);
+            writeStartElement(CONTACT_ELEMENT);
+            for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+                String value = field.get(contact);
+                if(value == null){
+                    continue;
+                }
+                writeIndent(FIELD_INDENT);
+                writeStartElement(field.getElementName());
+                writeCharacters(value);
+                writeEndElement(field.getElementName());
+            }
+            writeIndent(CONTACT_INDENT);
+            writeEndElement(CONTACT_ELEMENT);
+            hasContacts = true;
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write contact to XML address book.", e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            xmlStreamWriter.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write XML address book.", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if(hasContacts){
+                writeIndent(NEW_LINE);
+            }
+            writeEndElement(ROOT_ELEMENT);
+            if(schemaValidator != null){
+                schemaValidator.endDocument();
+            }
+            if(indentOutput){
+                xmlStreamWriter.writeCharacters(NEW_LINE);
+            }
+            xmlStreamWriter.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write XML address book.", e);
+        } finally {
+            releaseSchemaValidator();
+            outputStream.close();
+        }
+    }
+
+    private void releaseSchemaValidator(){
+        if(schemaValidator != null){
+            schemaValidator.release();
+        }
+    }
+
+    private void writeStartElement(String localName) throws XMLStreamException, InvalidAddressBookException {
+        if(schemaValidator != null){
+            schemaValidator.startElement(localName);
+        }
+        xmlStreamWriter.writeStartElement(localName);
+    }
+
+    private void writeEndElement(String localName) throws XMLStreamException, InvalidAddressBookException {
+        if(schemaValidator != null){
+            schemaValidator.endElement(localName);
+        }
+        xmlStreamWriter.writeEndElement();
+    }
+
+    private void writeIndent(String indent) throws XMLStreamException, InvalidAddressBookException {
+        if(indentOutput){
+            writeCharacters(indent);
+        }
+    }
+
+    private void writeCharacters(String text) throws XMLStreamException, InvalidAddressBookException {
+        if(schemaValidator != null){
+            schemaValidator.characters(text);
+        }
+        xmlStreamWriter.writeCharacters(text);
+    }
+}
@@ -0,0 +1,173 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressBookDiffTest {
+
+    private final File invalidXmlFile = new File(getClass().getResource("/invalidSchema.xml").getFile());
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void diff() throws IOException {
+        //setup: an old XML address book, and a new JSON address book where every tenth contact is removed,
+        //every tenth has a new phone number, every tenth has its fax number added or left out, and five contacts are added
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File oldAddressBook = tempDirectory.resolve("old.xml").toFile();
+        File newAddressBook = tempDirectory.resolve("new.json").toFile();
+        List<Contact> oldContacts = TestAddressBooks.generate(addressBookParser, oldAddressBook, 7, 0.5, true, 3000);
+
+        try(ContactWriter contactWriter = addressBookParser.newContactWriter(newAddressBook)){
+            for(int i = 0; i < oldContacts.size(); i++){
+                Contact contact = oldContacts.get(i);
+                if(i % 10 == 0){
+                    continue;
+                }
+                if(i % 10 == 1){
+                    contact.setPhone("(555) 010-" + i);
+                }
+                if(i % 10 == 2){
+                    contact.setFax((contact.getFax() == null) ? "(555) 020-" + i : null);
+                }
+                contactWriter.writeContact(contact);
+            }
+            for(int i = 0; i < 5; i++){
+                Contact contact = new Contact();
+                contact.setCustomerID("NEW" + i);
+                contact.setCompanyName("Company " + i);
+                contact.setContactName("Name " + i);
+                contact.setContactTitle("Title " + i);
+                contact.setAddress("Address " + i);
+                contact.setCity("City " + i);
+                contact.setEmail("new" + i + "@example.com");
+                contact.setCountry("Country " + i);
+                contact.setPhone("(555) 030-" + i);
+                contactWriter.writeContact(contact);
+            }
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        AddressBookDiff.Summary summary = new AddressBookDiff(addressBookParser).diff(oldAddressBook, newAddressBook, new AddressBookDiff.Listener() {
+            @Override
+            public void added(Contact contact) {
+                added.add(contact.getCustomerID());
+            }
+
+            @Override
+            public void removed(Contact contact) {
+                removed.add(contact.getCustomerID());
+            }
+
+            @Override
+            public void modified(Contact oldContact, Contact newContact, List<AddressBookDiff.FieldChange> fieldChanges) {
+                assertEquals(1, fieldChanges.size());
+                AddressBookDiff.FieldChange fieldChange = fieldChanges.get(0);
+                modified.add(newContact.getCustomerID() + ' ' + fieldChange.getFieldName());
+                assertEquals(ContactField.forElementName(fieldChange.getFieldName()).get(newContact), fieldChange.getNewValue());
+            }
+        });
+
+        //Assert every kind of change is found, in the order of the new (or, for removed contacts, the old) address book
+        assertEquals(5, summary.getAddedCount());
+        assertEquals(300, summary.getRemovedCount());
+        assertEquals(600, summary.getModifiedCount());
+        assertEquals(2100, summary.getUnchangedCount());
+        assertEquals("NEW0", added.get(0));
+        assertEquals(oldContacts.get(0).getCustomerID(), removed.get(0));
+        assertEquals(oldContacts.get(2990).getCustomerID(), removed.get(299));
+        assertEquals(oldContacts.get(1).getCustomerID() + " Phone", modified.get(0));
+        assertEquals(oldContacts.get(2).getCustomerID() + " Fax", modified.get(1));
+
+        //Assert the NDJSON output has one line per change
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new AddressBookDiff(addressBookParser).diff(oldAddressBook, newAddressBook, outputStream);
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(905, lines.length);
+        assertTrue(lines[0].startsWith("{\"change\":\"modified\",\"CustomerID\":\"" + oldContacts.get(1).getCustomerID() + "\",\"Fields\":{\"Phone\":{\"old\":"));
+        assertTrue(lines[904].startsWith("{\"change\":\"removed\",\"CustomerID\":\"" + oldContacts.get(2990).getCustomerID() + "\",\"Contact\":{"));
+
+        //Assert comparing an address book with itself finds no changes, and an invalid address book is reported
+        AddressBookDiff.Summary sameSummary = new AddressBookDiff(addressBookParser).diff(oldAddressBook, oldAddressBook, new ByteArrayOutputStream());
+        assertEquals(3000, sameSummary.getUnchangedCount());
+        assertEquals(0, sameSummary.getAddedCount() + sameSummary.getRemovedCount() + sameSummary.getModifiedCount());
+        assertThrows(InvalidAddressBookException.class, () -> new AddressBookDiff(addressBookParser).diff(oldAddressBook, invalidXmlFile, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void contactIndex() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File addressBook = tempDirectory.resolve("ad.json").toFile();
+        List<Contact> contacts = TestAddressBooks.generate(addressBookParser, addressBook, 11, 0.5, true, 5000);
+
+        ContactIndex contactIndex = new ContactIndex();
+        for(Contact contact : contacts){
+            contactIndex.put(contact);
+        }
+
+        //Assert every contact is stored in order and decodes to the same fields
+        assertEquals(contacts.size(), contactIndex.size());
+        for(int i = 0; i < contacts.size(); i++){
+            assertEquals(i, contactIndex.indexOf(contacts.get(i).getCustomerID()));
+            assertTrue(contactIndex.isStored(i, contacts.get(i)));
+            Contact decoded = contactIndex.get(i);
+            for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+                assertEquals(field.get(contacts.get(i)), field.get(decoded));
+            }
+        }
+        assertEquals(-1, contactIndex.indexOf("missing"));
+        assertEquals(-1, contactIndex.indexOf(null));
+
+        //Assert a contact with the same CustomerID replaces the stored one and keeps its entry
+        Contact replacement = contacts.get(42);
+        replacement.setCity("Replaced");
+        assertFalse(contactIndex.isStored(42, replacement));
+        assertEquals(42, contactIndex.put(replacement));
+        assertEquals(contacts.size(), contactIndex.size());
+        assertEquals("Replaced", contactIndex.get(42).getCity());
+
+        //Assert unpaired surrogates are stored exactly, so CustomerIDs that differ only in them do not collide,
+        //and are sorted, written and read back in the same order as compareKeys()
+        ContactIndex surrogateIndex = new ContactIndex();
+        List<String> customerIDs = Arrays.asList("A?", "A\uD800", "A\uDBFF", "A\uDC00x", "A\uD800\uDC00", "A\uD7FF", "A\uE000", "A\uD800x");
+        for(String customerID : customerIDs){
+            Contact contact = new Contact();
+            contact.setCustomerID(customerID);
+            contact.setCity("City " + customerID);
+            surrogateIndex.put(contact);
+        }
+        assertEquals(customerIDs.size(), surrogateIndex.size());
+        ByteArrayOutputStream runBytes = new ByteArrayOutputStream();
+        List<String> sortedCustomerIDs = new ArrayList<>();
+        for(int entry : surrogateIndex.sortedEntries()){
+            assertEquals("City " + surrogateIndex.get(entry).getCustomerID(), surrogateIndex.get(entry).getCity());
+            sortedCustomerIDs.add(surrogateIndex.get(entry).getCustomerID());
+            surrogateIndex.write(entry, runBytes);
+        }
+        List<String> expectedCustomerIDs = new ArrayList<>(customerIDs);
+        expectedCustomerIDs.sort(ContactIndex::compareKeys);
+        assertEquals(expectedCustomerIDs, sortedCustomerIDs);
+        assertEquals(Arrays.asList("A?", "A\uD7FF", "A\uD800", "A\uD800x", "A\uDBFF", "A\uDC00x", "A\uE000", "A\uD800\uDC00"), sortedCustomerIDs);
+        DataInputStream runStream = new DataInputStream(new ByteArrayInputStream(runBytes.toByteArray()));
+        for(String customerID : sortedCustomerIDs){
+            assertEquals(customerID, ContactIndex.read(runStream).getCustomerID());
+        }
+        assertNull(ContactIndex.read(runStream));
+    }
+}
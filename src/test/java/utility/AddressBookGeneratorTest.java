@@ -0,0 +1,59 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressBookGeneratorTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void generate() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File xmlAddressBook = tempDirectory.resolve("generated.xml").toFile();
+        File jsonAddressBook = tempDirectory.resolve("generated.json").toFile();
+        File regeneratedXmlAddressBook = tempDirectory.resolve("regenerated.xml").toFile();
+        File convertedJsonAddressBook = tempDirectory.resolve("converted.json").toFile();
+
+        AddressBookGenerator generator = new AddressBookGenerator(addressBookParser, 42, 0.5, true);
+        generator.generate(xmlAddressBook, 500);
+        generator.generate(jsonAddressBook, 500);
+        new AddressBookGenerator(addressBookParser, 42, 0.5, true).generate(regeneratedXmlAddressBook, 500);
+
+        //Assert the generated address books follow the schema
+        assertTrue(addressBookParser.isValidXmlAddressBook(xmlAddressBook));
+        assertTrue(addressBookParser.isValidJsonAddressBook(jsonAddressBook));
+
+        //Assert the same seed generates the same address book, and the XML and JSON versions hold the same contacts
+        assertArrayEquals(Files.readAllBytes(xmlAddressBook.toPath()), Files.readAllBytes(regeneratedXmlAddressBook.toPath()));
+        addressBookParser.convertXmlAddressBookToJson(xmlAddressBook, convertedJsonAddressBook);
+        assertArrayEquals(Files.readAllBytes(jsonAddressBook.toPath()), Files.readAllBytes(convertedJsonAddressBook.toPath()));
+    }
+
+    @Test
+    void generateWithOptionalFieldDensity() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File withoutOptionalFields = tempDirectory.resolve("without.xml").toFile();
+        File withOptionalFields = tempDirectory.resolve("with.xml").toFile();
+
+        new AddressBookGenerator(addressBookParser, 7, 0, false).generate(withoutOptionalFields, 100);
+        new AddressBookGenerator(addressBookParser, 7, 1, false).generate(withOptionalFields, 100);
+
+        String withoutOptionalFieldsXml = new String(Files.readAllBytes(withoutOptionalFields.toPath()), StandardCharsets.UTF_8);
+        String withOptionalFieldsXml = new String(Files.readAllBytes(withOptionalFields.toPath()), StandardCharsets.UTF_8);
+        assertFalse(withoutOptionalFieldsXml.contains("<Fax>"));
+        assertEquals(100, withOptionalFieldsXml.split("<Fax>", -1).length - 1);
+
+        //Assert an invalid density is rejected
+        assertThrows(IllegalArgumentException.class, () -> new AddressBookGenerator(addressBookParser, 7, 1.5, false));
+    }
+}
@@ -0,0 +1,93 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressBookIndexTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void lookup() throws IOException {
+        //setup: the same generated contacts, with multi-byte characters, as XML, JSON and NDJSON address books
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File generatedFile = tempDirectory.resolve("generated.xml").toFile();
+        List<Contact> contacts = TestAddressBooks.generate(addressBookParser, generatedFile, 5, 0.5, true, 2000);
+        String country = contacts.get(1234).getCountry();
+        List<String> customerIDsInCountry = contacts.stream().filter(contact -> country.equals(contact.getCountry()))
+                .map(Contact::getCustomerID).collect(Collectors.toList());
+
+        for(String fileName : Arrays.asList("ad.xml", "ad.json", "ad.ndjson")){
+            File addressBook = tempDirectory.resolve(fileName).toFile();
+            addressBookParser.convertAddressBook(generatedFile, addressBook);
+            assertEquals(2000, AddressBookIndex.build(addressBookParser, addressBook, Arrays.asList("Country", "City")));
+
+            try(AddressBookIndex addressBookIndex = AddressBookIndex.open(addressBookParser, addressBook)){
+                //Assert every contact is found by its CustomerID, with all of its fields
+                assertEquals(2000, addressBookIndex.getContactCount());
+                assertEquals(Arrays.asList("CustomerID", "Country", "City"), addressBookIndex.getFieldNames());
+                for(int i = 0; i < contacts.size(); i += 7){
+                    Contact contact = addressBookIndex.lookup(contacts.get(i).getCustomerID());
+                    for(ContactField field : ContactField.IN_SCHEMA_ORDER){
+                        assertEquals(field.get(contacts.get(i)), field.get(contact), fileName + " " + field.getElementName());
+                    }
+                }
+
+                //Assert a secondary field finds every contact with the value, in file order
+                List<String> found = addressBookIndex.lookup("Country", country).stream().map(Contact::getCustomerID).collect(Collectors.toList());
+                assertEquals(customerIDsInCountry, found);
+                assertNull(addressBookIndex.lookup("missing"));
+                assertEquals(Collections.emptyList(), addressBookIndex.lookup("City", "missing"));
+                assertThrows(IllegalArgumentException.class, () -> addressBookIndex.lookup("Phone", "(555) 000-0000"));
+            }
+
+            //Assert an index is not used once the address book has changed
+            assertTrue(addressBook.setLastModified(addressBook.lastModified() - 10000));
+            assertThrows(IOException.class, () -> AddressBookIndex.open(addressBookParser, addressBook));
+        }
+    }
+
+    @Test
+    void lookupXmlWithByteOrderMarkAndCarriageReturns() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File addressBook = tempDirectory.resolve("bom.xml").toFile();
+        String xml = "\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n<AddressBook>\r\n"
+                + contactXml("\u00C4\uD83D\uDE00", "M\u00FCnchen") + "<!-- \u00E9 -->" + contactXml("B&amp;", "Z\u00FCrich") + contactXml("C", "Z\u00FCrich") + "</AddressBook>\r\n";
+        Files.write(addressBook.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+
+        AddressBookIndex.build(addressBookParser, addressBook, Collections.singletonList("City"));
+        try(AddressBookIndex addressBookIndex = AddressBookIndex.open(addressBookParser, addressBook)){
+            assertEquals("M\u00FCnchen", addressBookIndex.lookup("\u00C4\uD83D\uDE00").getCity());
+            assertEquals("B&", addressBookIndex.lookup("B&").getCustomerID());
+            assertEquals(Arrays.asList("B&", "C"), addressBookIndex.lookup("City", "Z\u00FCrich").stream().map(Contact::getCustomerID).collect(Collectors.toList()));
+        }
+
+        //Assert address books that cannot be read from an offset are rejected
+        File compressedFile = tempDirectory.resolve("ad.xml.gz").toFile();
+        File smileFile = tempDirectory.resolve("ad.smile").toFile();
+        addressBookParser.convertAddressBook(addressBook, compressedFile);
+        addressBookParser.convertAddressBook(addressBook, smileFile);
+        assertThrows(IOException.class, () -> AddressBookIndex.build(addressBookParser, compressedFile, Collections.emptyList()));
+        assertThrows(IOException.class, () -> AddressBookIndex.build(addressBookParser, smileFile, Collections.emptyList()));
+        assertThrows(IOException.class, () -> AddressBookIndex.open(addressBookParser, smileFile));
+    }
+
+    private static String contactXml(String customerID, String city){
+        return "  <Contact>\r\n    <CustomerID>" + customerID + "</CustomerID><CompanyName>Company</CompanyName><ContactName>Name</ContactName>"
+                + "<ContactTitle>Title</ContactTitle><Address>Address</Address><City>" + city + "</City><Email>mail@example.com</Email>"
+                + "<Country>Country</Country><Phone>(555) 000-0000</Phone>\r\n  </Contact>\r\n";
+    }
+}
@@ -0,0 +1,125 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressBookMergerTest {
+
+    private final File invalidXmlFile = new File(getClass().getResource("/invalidSchema.xml").getFile());
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void merge() throws IOException {
+        //setup: an XML address book of contacts 0 to 2999 and a JSON address book of contacts 2000 to 3999,
+        //where the 1000 contacts in both have a new phone number and leave out their fax number in the JSON address book
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File generatedFile = tempDirectory.resolve("generated.json").toFile();
+        List<Contact> contacts = TestAddressBooks.generate(addressBookParser, generatedFile, 3, 1.0, true, 4000);
+        String originalPhone = contacts.get(2500).getPhone();
+        String originalFax = contacts.get(2500).getFax();
+
+        File firstFile = tempDirectory.resolve("first.xml").toFile();
+        File secondFile = tempDirectory.resolve("second.json").toFile();
+        try(ContactWriter contactWriter = addressBookParser.newContactWriter(firstFile)){
+            for(Contact contact : contacts.subList(0, 3000)){
+                contactWriter.writeContact(contact);
+            }
+        }
+        try(ContactWriter contactWriter = addressBookParser.newContactWriter(secondFile)){
+            for(int i = 2000; i < 4000; i++){
+                Contact contact = contacts.get(i);
+                if(i < 3000){
+                    contact.setPhone("(555) 000-" + i);
+                    contact.setFax(null);
+                }
+                contactWriter.writeContact(contact);
+            }
+        }
+        List<File> inputFiles = Arrays.asList(firstFile, secondFile);
+
+        for(AddressBookMerger.ConflictPolicy conflictPolicy : AddressBookMerger.ConflictPolicy.values()){
+            File mergedFile = tempDirectory.resolve("merged-" + conflictPolicy + ".xml").toFile();
+            AddressBookMerger.Summary summary = new AddressBookMerger(addressBookParser, conflictPolicy).merge(inputFiles, mergedFile);
+
+            //Assert there is one schema-valid contact per CustomerID, ordered by CustomerID
+            assertEquals(5000, summary.getInputCount());
+            assertEquals(4000, summary.getOutputCount());
+            assertEquals(1000, summary.getDuplicateCount());
+            assertEquals(0, summary.getSpilledRunCount());
+            assertTrue(addressBookParser.isValidAddressBook(mergedFile));
+            List<Contact> mergedContacts = TestAddressBooks.readContacts(addressBookParser, mergedFile);
+            assertEquals(4000, mergedContacts.size());
+            for(int i = 0; i < mergedContacts.size(); i++){
+                assertEquals(contacts.get(i).getCustomerID(), mergedContacts.get(i).getCustomerID());
+            }
+
+            //Assert the conflict policy decides the fields of a contact in both address books
+            Contact merged = mergedContacts.get(2500);
+            switch(conflictPolicy){
+                case FIRST_WINS:
+                    assertEquals(originalPhone, merged.getPhone());
+                    assertEquals(originalFax, merged.getFax());
+                    break;
+                case LAST_WINS:
+                    assertEquals("(555) 000-2500", merged.getPhone());
+                    assertNull(merged.getFax());
+                    break;
+                default:
+                    assertEquals("(555) 000-2500", merged.getPhone());
+                    assertEquals(originalFax, merged.getFax());
+            }
+
+            //Assert spilling to run files when the contacts do not fit in the memory limit gives the same address book
+            File spilledFile = tempDirectory.resolve("spilled-" + conflictPolicy + ".xml").toFile();
+            AddressBookMerger.Summary spilledSummary = new AddressBookMerger(addressBookParser, conflictPolicy, 512 * 1024).merge(inputFiles, spilledFile);
+            assertTrue(spilledSummary.getSpilledRunCount() > 0);
+            assertEquals(4000, spilledSummary.getOutputCount());
+            assertArrayEquals(Files.readAllBytes(mergedFile.toPath()), Files.readAllBytes(spilledFile.toPath()));
+
+            //Assert the smallest memory limit still fills a run with many contacts, and merging the runs in passes of two gives the same address book
+            File passesFile = tempDirectory.resolve("passes-" + conflictPolicy + ".xml").toFile();
+            AddressBookMerger.Summary passesSummary = new AddressBookMerger(addressBookParser, conflictPolicy, AddressBookMerger.MIN_MEMORY_LIMIT, 2).merge(inputFiles, passesFile);
+            assertTrue(passesSummary.getSpilledRunCount() >= 3, passesSummary.toString());
+            assertTrue(passesSummary.getSpilledRunCount() < 50, passesSummary.toString());
+            assertArrayEquals(Files.readAllBytes(mergedFile.toPath()), Files.readAllBytes(passesFile.toPath()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new AddressBookMerger(addressBookParser, AddressBookMerger.ConflictPolicy.LAST_WINS, AddressBookMerger.MIN_MEMORY_LIMIT - 1));
+
+        //Assert an invalid address book is reported, and no run files are left behind
+        File failedFile = tempDirectory.resolve("failed.xml").toFile();
+        AddressBookMerger addressBookMerger = new AddressBookMerger(addressBookParser, AddressBookMerger.ConflictPolicy.LAST_WINS, 512 * 1024);
+        assertThrows(InvalidAddressBookException.class, () -> addressBookMerger.merge(Arrays.asList(firstFile, invalidXmlFile), failedFile));
+        assertFalse(failedFile.exists());
+        try(Stream<Path> files = Files.list(tempDirectory)){
+            assertFalse(files.anyMatch(file -> file.getFileName().toString().endsWith(".run")));
+        }
+
+        //Assert a merge failing while the output is written, here on a contact the XML schema rejects, leaves the
+        //existing output file as it was
+        File incompleteFile = tempDirectory.resolve("incomplete.ndjson").toFile();
+        try(ContactWriter contactWriter = addressBookParser.newContactWriter(incompleteFile)){
+            Contact incompleteContact = new Contact();
+            incompleteContact.setCustomerID("ZZZZZ");
+            contactWriter.writeContact(incompleteContact);
+        }
+        File existingFile = tempDirectory.resolve("existing.xml").toFile();
+        Files.copy(firstFile.toPath(), existingFile.toPath());
+        assertThrows(InvalidAddressBookException.class, () -> addressBookMerger.merge(Arrays.asList(firstFile, incompleteFile), existingFile));
+        assertArrayEquals(Files.readAllBytes(firstFile.toPath()), Files.readAllBytes(existingFile.toPath()));
+        try(Stream<Path> files = Files.list(tempDirectory)){
+            assertFalse(files.anyMatch(file -> file.getFileName().toString().startsWith(".address-book-convert")));
+        }
+    }
+}
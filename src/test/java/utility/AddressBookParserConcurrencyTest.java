@@ -0,0 +1,89 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test that shares one AddressBookParser between many threads, mixing conversions, validations
+ * and failing conversions, and checks every result is identical to running the same work on a single thread.
+ */
+class AddressBookParserConcurrencyTest {
+    private static final int THREAD_COUNT = 16;
+    private static final int ITERATIONS_PER_THREAD = 25;
+
+    private final File xmlAddressBook = new File(getClass().getResource("/ad.xml").getFile());
+    private final File jsonAddressBook = new File(getClass().getResource("/jsonExpectedOutput.json").getFile());
+    private final File invalidXmlAddressBook = new File(getClass().getResource("/invalidContact.xml").getFile());
+    private final File invalidJsonAddressBook = new File(getClass().getResource("/invalidContact.json").getFile());
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void concurrentConversionsAndValidations() throws Exception {
+        AddressBookParser addressBookParser = new AddressBookParser();
+
+        //Single-threaded reference results
+        File referenceJson = tempDirectory.resolve("reference.json").toFile();
+        File referenceXml = tempDirectory.resolve("reference.xml").toFile();
+        addressBookParser.convertXmlAddressBookToJson(xmlAddressBook, referenceJson);
+        addressBookParser.convertJsonAddressBookToXml(jsonAddressBook, referenceXml);
+        byte[] expectedJson = Files.readAllBytes(referenceJson.toPath());
+        byte[] expectedXml = Files.readAllBytes(referenceXml.toPath());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for(int thread = 0; thread < THREAD_COUNT; thread++){
+                Path threadDirectory = Files.createDirectory(tempDirectory.resolve("thread" + thread));
+                futures.add(executorService.submit(stressTask(addressBookParser, threadDirectory, startSignal, expectedJson, expectedXml)));
+            }
+            startSignal.countDown();
+            for(Future<Void> future : futures){
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private Callable<Void> stressTask(AddressBookParser addressBookParser, Path outputDirectory, CountDownLatch startSignal,
+                                      byte[] expectedJson, byte[] expectedXml){
+        return () -> {
+            File jsonResultFile = outputDirectory.resolve("result.json").toFile();
+            File xmlResultFile = outputDirectory.resolve("result.xml").toFile();
+            startSignal.await();
+            for(int i = 0; i < ITERATIONS_PER_THREAD; i++){
+                addressBookParser.convertXmlAddressBookToJson(xmlAddressBook, jsonResultFile);
+                assertArrayEquals(expectedJson, Files.readAllBytes(jsonResultFile.toPath()));
+
+                addressBookParser.convertJsonAddressBookToXml(jsonAddressBook, xmlResultFile);
+                assertArrayEquals(expectedXml, Files.readAllBytes(xmlResultFile.toPath()));
+
+                assertTrue(addressBookParser.isValidXmlAddressBook(xmlAddressBook));
+                assertTrue(addressBookParser.isValidJsonAddressBook(jsonAddressBook));
+                assertFalse(addressBookParser.isValidXmlAddressBook(invalidXmlAddressBook));
+                assertFalse(addressBookParser.isValidJsonAddressBook(invalidJsonAddressBook));
+
+                assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertXmlAddressBookToJson(invalidXmlAddressBook, jsonResultFile));
+                assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertJsonAddressBookToXml(invalidJsonAddressBook, xmlResultFile));
+            }
+            return null;
+        };
+    }
+}
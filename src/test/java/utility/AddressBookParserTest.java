@@ -1,12 +1,28 @@
 package utility;
 
+import io.airlift.compress.zstd.ZstdInputStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -140,4 +156,424 @@ class AddressBookParserTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void invalidContactIsReportedWhileConverting() {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File jsonResultFile = new File("./invalidContactResult.json");
+        jsonResultFile.deleteOnExit();
+        File xmlResultFile = new File("./invalidContactResult.xml");
+        xmlResultFile.deleteOnExit();
+
+        /*
+        The second contact of both files is missing its required Email element, so validation
+        should fail on that contact in the same pass that converts the address book.
+         */
+        File invalidContactXmlFile = new File(getClass().getResource("/invalidContact.xml").getFile());
+        InvalidAddressBookException xmlException = assertThrows(InvalidAddressBookException.class,
+                () -> addressBookParser.convertXmlAddressBookToJson(invalidContactXmlFile, jsonResultFile));
+        assertTrue(xmlException.getMessage().contains("Contact #2"), xmlException.getMessage());
+
+        File invalidContactJsonFile = new File(getClass().getResource("/invalidContact.json").getFile());
+        InvalidAddressBookException jsonException = assertThrows(InvalidAddressBookException.class,
+                () -> addressBookParser.convertJsonAddressBookToXml(invalidContactJsonFile, xmlResultFile));
+        assertTrue(jsonException.getMessage().contains("Contact #2"), jsonException.getMessage());
+
+        //Assert the pooled validators are reset after a failure, so the next conversion still succeeds
+        assertDoesNotThrow(() -> addressBookParser.convertXmlAddressBookToJson(xmlExpectedFileResult, jsonResultFile));
+        assertDoesNotThrow(() -> assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath())));
+    }
+
+    @Test
+    void invalidAddressBookLeavesNoOutput(@TempDir Path tempDirectory) throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File invalidContactXmlFile = new File(getClass().getResource("/invalidContact.xml").getFile());
+        File invalidContactJsonFile = new File(getClass().getResource("/invalidContact.json").getFile());
+        File jsonResultFile = tempDirectory.resolve("invalidContactResult.json").toFile();
+        File xmlResultFile = tempDirectory.resolve("invalidContactResult.xml").toFile();
+        File ndjsonResultFile = tempDirectory.resolve("invalidContactResult.ndjson.gz").toFile();
+
+        //Assert the contacts read before the invalid one are not left behind as a shorter, but well-formed, address book
+        assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertXmlAddressBookToJson(invalidContactXmlFile, jsonResultFile));
+        assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertJsonAddressBookToXml(invalidContactJsonFile, xmlResultFile));
+        assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertAddressBook(invalidContactXmlFile, ndjsonResultFile));
+        assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertAddressBook(invalidContactXmlFile, ndjsonResultFile, new ContactQuery(null, null)));
+        assertFalse(jsonResultFile.exists());
+        assertFalse(xmlResultFile.exists());
+        assertFalse(ndjsonResultFile.exists());
+
+        //Assert an existing output is only replaced by a complete conversion, and no temporary files are left behind
+        addressBookParser.convertXmlAddressBookToJson(xmlExpectedFileResult, jsonResultFile);
+        assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertXmlAddressBookToJson(invalidContactXmlFile, jsonResultFile));
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+        assertArrayEquals(new String[]{"invalidContactResult.json"}, tempDirectory.toFile().list());
+    }
+
+    @Test
+    void isValidXmlAddressBookWithSchemaFile() throws IOException {
+        File schemaFile = new File(getClass().getResource("/ad.xsd").getFile());
+        AddressBookParser addressBookParser = new AddressBookParser(schemaFile);
+
+        //Validate repeatedly so that the cached schema and pooled validator are reused
+        for(int i = 0; i < 3; i++){
+            assertTrue(addressBookParser.isValidXmlAddressBook(xmlExpectedFileResult));
+            assertFalse(addressBookParser.isValidXmlAddressBook(new File(getClass().getResource("/invalidSchema.xml").getFile())));
+        }
+
+        //Assert IO exception is thrown when a schema file that does not exist is given
+        assertThrows(IOException.class, () -> new AddressBookParser(new File("./doesNotExist.xsd")));
+    }
+
+    @Test
+    void schemaCacheIsBounded(@TempDir Path tempDirectory) throws IOException {
+        File schemaFile = new File(getClass().getResource("/ad.xsd").getFile());
+        File editedSchemaFile = tempDirectory.resolve("edited.xsd").toFile();
+        Files.copy(schemaFile.toPath(), editedSchemaFile.toPath());
+
+        //Assert an edited schema replaces the compiled one at the same location, rather than being cached next to it
+        SchemaCache.CompiledSchema compiledSchema = SchemaCache.getSchema(editedSchemaFile.toURI().toURL());
+        assertSame(compiledSchema, SchemaCache.getSchema(editedSchemaFile.toURI().toURL()));
+        int cachedSchemaCount = SchemaCache.size();
+        Files.write(editedSchemaFile.toPath(), "\n<!-- edited -->".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        SchemaCache.CompiledSchema editedSchema = SchemaCache.getSchema(editedSchemaFile.toURI().toURL());
+        assertNotSame(compiledSchema, editedSchema);
+        assertNotEquals(compiledSchema.getHash(), editedSchema.getHash());
+        assertEquals(cachedSchemaCount, SchemaCache.size());
+
+        //Assert many schema files never grow the cache past its bound
+        for(int i = 0; i < SchemaCache.MAX_CACHED_SCHEMAS * 2; i++){
+            File copiedSchemaFile = tempDirectory.resolve("copy" + i + ".xsd").toFile();
+            Files.copy(schemaFile.toPath(), copiedSchemaFile.toPath());
+            assertTrue(new AddressBookParser(copiedSchemaFile).isValidXmlAddressBook(xmlExpectedFileResult));
+        }
+        assertEquals(SchemaCache.MAX_CACHED_SCHEMAS, SchemaCache.size());
+    }
+
+    @Test
+    void isValidJsonAddressBook() {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File workingDirectory = new File(".");
+        int filesBeforeValidation = workingDirectory.list().length;
+
+        assertTrue(addressBookParser.isValidJsonAddressBook(jsonExpectedFileResult));
+        assertFalse(addressBookParser.isValidJsonAddressBook(new File(getClass().getResource("/invalidJson.json").getFile())));
+        assertFalse(addressBookParser.isValidJsonAddressBook(new File(getClass().getResource("/invalidContact.json").getFile())));
+        assertFalse(addressBookParser.isValidJsonAddressBook(xmlExpectedFileResult));
+        assertFalse(addressBookParser.isValidJsonAddressBook(new File("./doesNotExist.json")));
+
+        //Assert validation no longer writes temporary files to the working directory
+        assertEquals(filesBeforeValidation, workingDirectory.list().length);
+    }
+
+    @Test
+    void compactOutputLayout() throws IOException {
+        AddressBookParser compactParser = new AddressBookParser(AddressBookParser.OutputLayout.COMPACT);
+        AddressBookParser indentedParser = new AddressBookParser();
+        File compactJsonFile = new File("./compactResult.json");
+        compactJsonFile.deleteOnExit();
+        File compactXmlFile = new File("./compactResult.xml");
+        compactXmlFile.deleteOnExit();
+        File jsonResultFile = new File("./compactRoundTrip.json");
+        jsonResultFile.deleteOnExit();
+
+        //Assert the compact output has no whitespace between elements
+        compactParser.convertXmlAddressBookToJson(xmlExpectedFileResult, compactJsonFile);
+        String compactJson = new String(Files.readAllBytes(compactJsonFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(compactJson.startsWith("{\"Contact\":[{\"CustomerID\":"), compactJson);
+        assertFalse(compactJson.contains("\n"));
+
+        compactParser.convertJsonAddressBookToXml(compactJsonFile, compactXmlFile);
+        String compactXml = new String(Files.readAllBytes(compactXmlFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(compactXml.contains("<AddressBook><Contact><CustomerID>"), compactXml);
+        assertFalse(compactXml.contains("\n"));
+
+        //Assert converting the compact XML back with the default layout gives the expected result byte for byte
+        indentedParser.convertXmlAddressBookToJson(compactXmlFile, jsonResultFile);
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+    }
+
+    @Test
+    void convertCompressedAddressBooks() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File gzipJsonFile = new File("./compressedResult.json.gz");
+        gzipJsonFile.deleteOnExit();
+        File zstdXmlFile = new File("./compressedResult.xml.zst");
+        zstdXmlFile.deleteOnExit();
+        File gzipXmlFile = new File("./compressedResult.xml.gz");
+        gzipXmlFile.deleteOnExit();
+
+        //Assert the compressed output decompresses to the expected result byte for byte
+        addressBookParser.convertXmlAddressBookToJson(xmlExpectedFileResult, gzipJsonFile);
+        try(InputStream inputStream = new GZIPInputStream(new FileInputStream(gzipJsonFile))){
+            assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), readAllBytes(inputStream));
+        }
+
+        //Assert compressed input is read directly, and converts to another codec
+        addressBookParser.convertJsonAddressBookToXml(gzipJsonFile, zstdXmlFile);
+        try(InputStream inputStream = new ZstdInputStream(new FileInputStream(zstdXmlFile))){
+            assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), readAllBytes(inputStream));
+        }
+
+        assertTrue(addressBookParser.isValidXmlAddressBook(zstdXmlFile));
+        assertTrue(addressBookParser.isValidJsonAddressBook(gzipJsonFile));
+
+        //Assert a file that is not actually compressed is rejected rather than read as garbage
+        Files.copy(xmlExpectedFileResult.toPath(), gzipXmlFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertFalse(addressBookParser.isValidXmlAddressBook(gzipXmlFile));
+        assertThrows(IOException.class, () -> addressBookParser.convertXmlAddressBookToJson(gzipXmlFile, gzipJsonFile));
+    }
+
+    private static byte[] readAllBytes(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = inputStream.read(buffer)) != -1){
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    void convertStreamsAndChannels() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        byte[] xmlBytes = Files.readAllBytes(xmlExpectedFileResult.toPath());
+        byte[] jsonBytes = Files.readAllBytes(jsonExpectedFileResult.toPath());
+
+        //Assert the stream overloads give the same result as the File versions, and leave the streams open
+        boolean[] closed = new boolean[2];
+        InputStream xmlInputStream = new ByteArrayInputStream(xmlBytes) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        ByteArrayOutputStream jsonOutputStream = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[1] = true;
+            }
+        };
+        addressBookParser.convertXmlAddressBookToJson(xmlInputStream, jsonOutputStream);
+        assertArrayEquals(jsonBytes, jsonOutputStream.toByteArray());
+        assertFalse(closed[0]);
+        assertFalse(closed[1]);
+
+        ByteArrayOutputStream xmlOutputStream = new ByteArrayOutputStream();
+        addressBookParser.convertJsonAddressBookToXml(new ByteArrayInputStream(jsonBytes), xmlOutputStream);
+        assertArrayEquals(xmlBytes, xmlOutputStream.toByteArray());
+
+        //Assert the channel overloads give the same result and leave the channels open
+        ReadableByteChannel xmlInputChannel = Channels.newChannel(new ByteArrayInputStream(xmlBytes));
+        ByteArrayOutputStream channelOutputStream = new ByteArrayOutputStream();
+        WritableByteChannel jsonOutputChannel = Channels.newChannel(channelOutputStream);
+        addressBookParser.convertXmlAddressBookToJson(xmlInputChannel, jsonOutputChannel);
+        assertArrayEquals(jsonBytes, channelOutputStream.toByteArray());
+        assertTrue(xmlInputChannel.isOpen());
+        assertTrue(jsonOutputChannel.isOpen());
+
+        assertTrue(addressBookParser.isValidXmlAddressBook(new ByteArrayInputStream(xmlBytes)));
+        assertTrue(addressBookParser.isValidJsonAddressBook(Channels.newChannel(new ByteArrayInputStream(jsonBytes))));
+        assertFalse(addressBookParser.isValidXmlAddressBook(new ByteArrayInputStream(jsonBytes)));
+        assertFalse(addressBookParser.isValidJsonAddressBook(new ByteArrayInputStream(xmlBytes)));
+
+        //Assert an invalid address book is still rejected
+        File invalidContactXmlFile = new File(getClass().getResource("/invalidContact.xml").getFile());
+        assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertXmlAddressBookToJson(
+                new ByteArrayInputStream(Files.readAllBytes(invalidContactXmlFile.toPath())), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void convertNdjsonAddressBooks() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File ndjsonFile = new File("./ndjsonResult.ndjson");
+        ndjsonFile.deleteOnExit();
+        File appendedNdjsonFile = new File("./appendedResult.jsonl");
+        appendedNdjsonFile.deleteOnExit();
+        File jsonResultFile = new File("./ndjsonResult.json");
+        jsonResultFile.deleteOnExit();
+        File xmlResultFile = new File("./ndjsonResult.xml");
+        xmlResultFile.deleteOnExit();
+
+        //Assert every contact is written as one compact object on its own line
+        addressBookParser.convertAddressBook(xmlExpectedFileResult, ndjsonFile);
+        List<String> lines = Files.readAllLines(ndjsonFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(countOccurrences(new String(Files.readAllBytes(xmlExpectedFileResult.toPath()), StandardCharsets.UTF_8), "<Contact>"), lines.size());
+        for(String line : lines){
+            assertTrue(line.startsWith("{\"CustomerID\":") && line.endsWith("}"), line);
+        }
+        assertTrue(addressBookParser.isValidAddressBook(ndjsonFile));
+
+        //Assert NDJSON converts back to exactly the expected JSON and XML
+        addressBookParser.convertAddressBook(ndjsonFile, jsonResultFile);
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+        addressBookParser.convertAddressBook(ndjsonFile, xmlResultFile);
+        assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), Files.readAllBytes(xmlResultFile.toPath()));
+
+        //Assert NDJSON address books can be appended to without rewriting them
+        ByteArrayOutputStream ndjsonOutputStream = new ByteArrayOutputStream();
+        try(InputStream jsonInputStream = new FileInputStream(jsonExpectedFileResult)){
+            addressBookParser.convertAddressBook(jsonInputStream, AddressBookFormat.JSON, ndjsonOutputStream, AddressBookFormat.NDJSON);
+        }
+        assertArrayEquals(Files.readAllBytes(ndjsonFile.toPath()), ndjsonOutputStream.toByteArray());
+        Files.copy(ndjsonFile.toPath(), appendedNdjsonFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.write(appendedNdjsonFile.toPath(), ndjsonOutputStream.toByteArray(), StandardOpenOption.APPEND);
+        assertTrue(addressBookParser.isValidAddressBook(appendedNdjsonFile));
+        addressBookParser.convertAddressBook(appendedNdjsonFile, jsonResultFile);
+        String appendedJson = new String(Files.readAllBytes(jsonResultFile.toPath()), StandardCharsets.UTF_8);
+        assertEquals(2 * lines.size(), countOccurrences(appendedJson, "\"CustomerID\""));
+
+        //Assert an invalid line is reported with its contact and line number
+        String invalidNdjson = lines.get(0) + "\n" + lines.get(1).replaceFirst("\"Phone\":\"[^\"]*\",", "") + "\n";
+        byte[] invalidNdjsonBytes = invalidNdjson.getBytes(StandardCharsets.UTF_8);
+        assertFalse(addressBookParser.isValidAddressBook(new ByteArrayInputStream(invalidNdjsonBytes), AddressBookFormat.NDJSON));
+        InvalidAddressBookException exception = assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertAddressBook(
+                new ByteArrayInputStream(invalidNdjsonBytes), AddressBookFormat.NDJSON, new ByteArrayOutputStream(), AddressBookFormat.XML));
+        assertTrue(exception.getMessage().contains("Contact #2"), exception.getMessage());
+        byte[] notAnObjectBytes = (lines.get(0) + "\n[]\n").getBytes(StandardCharsets.UTF_8);
+        exception = assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertAddressBook(
+                new ByteArrayInputStream(notAnObjectBytes), AddressBookFormat.NDJSON, new ByteArrayOutputStream(), AddressBookFormat.JSON));
+        assertTrue(exception.getMessage().contains("Contact #2 (line 2)"), exception.getMessage());
+
+        //Assert files of an unknown format are rejected
+        assertThrows(IOException.class, () -> addressBookParser.convertAddressBook(ndjsonFile, new File("./ndjsonResult.txt")));
+    }
+
+    private static int countOccurrences(String text, String pattern){
+        int count = 0;
+        for(int index = text.indexOf(pattern); index >= 0; index = text.indexOf(pattern, index + pattern.length())){
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    void convertBinaryAddressBooks() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File smileFile = new File("./binaryResult.smile");
+        smileFile.deleteOnExit();
+        File cborFile = new File("./binaryResult.cbor.gz");
+        cborFile.deleteOnExit();
+        File jsonResultFile = new File("./binaryResult.json");
+        jsonResultFile.deleteOnExit();
+        File xmlResultFile = new File("./binaryResult.xml");
+        xmlResultFile.deleteOnExit();
+
+        //Assert the binary formats are smaller than JSON and convert back to exactly the expected JSON and XML
+        addressBookParser.convertAddressBook(xmlExpectedFileResult, smileFile);
+        byte[] smileBytes = Files.readAllBytes(smileFile.toPath());
+        assertEquals(":)\n", new String(smileBytes, 0, 3, StandardCharsets.US_ASCII));
+        assertTrue(smileBytes.length < jsonExpectedFileResult.length());
+        assertTrue(addressBookParser.isValidAddressBook(smileFile));
+        addressBookParser.convertAddressBook(smileFile, jsonResultFile);
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+
+        addressBookParser.convertAddressBook(smileFile, cborFile);
+        assertTrue(addressBookParser.isValidAddressBook(cborFile));
+        addressBookParser.convertAddressBook(cborFile, xmlResultFile);
+        assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), Files.readAllBytes(xmlResultFile.toPath()));
+
+        //Assert a binary address book is validated against the schema, and JSON is not read as Smile
+        File invalidContactJsonFile = new File(getClass().getResource("/invalidContact.json").getFile());
+        addressBookParser.convertAddressBook(invalidContactJsonFile, smileFile);
+        assertFalse(addressBookParser.isValidAddressBook(smileFile));
+        assertThrows(InvalidAddressBookException.class, () -> addressBookParser.convertAddressBook(smileFile, xmlResultFile));
+        try(InputStream jsonInputStream = new FileInputStream(jsonExpectedFileResult)){
+            assertFalse(addressBookParser.isValidAddressBook(jsonInputStream, AddressBookFormat.SMILE));
+        }
+    }
+
+    @Test
+    void convertWithContactQuery() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File xmlResultFile = new File("./queryResult.xml");
+        xmlResultFile.deleteOnExit();
+        File ndjsonResultFile = new File("./queryResult.ndjson");
+        ndjsonResultFile.deleteOnExit();
+
+        //Assert only the matching contacts are written, to a schema-valid address book of the same format
+        ContactQuery contactQuery = new ContactQuery("Country == 'Germany' && PostalCode startsWith '1'", null);
+        assertEquals(2, addressBookParser.convertAddressBook(xmlExpectedFileResult, xmlResultFile, contactQuery));
+        String xmlResult = new String(Files.readAllBytes(xmlResultFile.toPath()), StandardCharsets.UTF_8);
+        assertEquals(2, countOccurrences(xmlResult, "<Contact>"));
+        assertTrue(xmlResult.contains("<CustomerID>ALFKI</CustomerID>") && xmlResult.contains("<CustomerID>KOENE</CustomerID>"));
+        assertTrue(addressBookParser.isValidAddressBook(xmlResultFile));
+
+        //Assert the same contacts are found in JSON, and the projection keeps only the given fields
+        contactQuery = new ContactQuery("(Country == \"Germany\" || Country == 'Austria') && !(PostalCode startsWith '1') && Fax != null", Arrays.asList("CustomerID", "City"));
+        assertEquals(5, addressBookParser.convertAddressBook(jsonExpectedFileResult, ndjsonResultFile, contactQuery));
+        List<String> lines = Files.readAllLines(ndjsonResultFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("{\"CustomerID\":\"BLAUS\",\"City\":\"Mannheim\"}", lines.get(0));
+        assertEquals(5, lines.size());
+
+        //Assert a projection leaving out required fields is rejected for XML, and invalid expressions are reported
+        ContactQuery projection = new ContactQuery(null, Arrays.asList("CustomerID", "City"));
+        assertThrows(IllegalArgumentException.class, () -> addressBookParser.convertAddressBook(jsonExpectedFileResult, xmlResultFile, projection));
+        assertThrows(IllegalArgumentException.class, () -> new ContactQuery("Country = 'Germany'", null));
+        assertThrows(IllegalArgumentException.class, () -> new ContactQuery("Planet == 'Earth'", null));
+        assertThrows(IllegalArgumentException.class, () -> new ContactQuery("City startsWith null", null));
+        assertThrows(IllegalArgumentException.class, () -> new ContactQuery("(City == 'Berlin'", null));
+        assertThrows(IllegalArgumentException.class, () -> new ContactQuery(null, Arrays.asList("Planet")));
+    }
+
+    @Test
+    void contactQueryIsDecidedWhileStreaming() throws IOException {
+        //Assert once the filter is decided false, no further value of the contact is asked for
+        ContactQuery contactQuery = new ContactQuery("Country == 'Germany' && Fax != null", Arrays.asList("CustomerID", "Fax"));
+        ContactQuery.ContactMatcher contactMatcher = contactQuery.newMatcher();
+        contactMatcher.startContact();
+        assertTrue(contactMatcher.startValue(ContactField.CUSTOMER_ID));
+        contactMatcher.appendValue("ALFKI".toCharArray(), 0, 5);
+        contactMatcher.endValue();
+        assertFalse(contactMatcher.startValue(ContactField.CITY));
+        assertTrue(contactMatcher.startValue(ContactField.COUNTRY));
+        char[] country = "xxFrancexx".toCharArray();
+        contactMatcher.appendValue(country, 2, 6);
+        contactMatcher.endValue();
+        assertFalse(contactMatcher.startValue(ContactField.FAX));
+        assertNull(contactMatcher.endContact());
+
+        //Assert a matching contact is built from its projected fields, and an absent field compares as null
+        contactMatcher.startContact();
+        assertTrue(contactMatcher.startValue(ContactField.CUSTOMER_ID));
+        contactMatcher.appendValue("ALF".toCharArray(), 0, 3);
+        contactMatcher.appendValue("KI".toCharArray(), 0, 2);
+        contactMatcher.endValue();
+        assertTrue(contactMatcher.startValue(ContactField.COUNTRY));
+        contactMatcher.appendValue("Germany".toCharArray(), 0, 7);
+        contactMatcher.endValue();
+        assertNull(contactMatcher.endContact());
+        contactMatcher.startContact();
+        assertTrue(contactMatcher.startValue(ContactField.COUNTRY));
+        contactMatcher.appendValue("Germany".toCharArray(), 0, 7);
+        contactMatcher.endValue();
+        assertTrue(contactMatcher.startValue(ContactField.FAX));
+        contactMatcher.appendValue("030-0076545".toCharArray(), 0, 11);
+        contactMatcher.endValue();
+        Contact contact = contactMatcher.endContact();
+        assertEquals("030-0076545", contact.getFax());
+        assertNull(contact.getCountry());
+        assertNull(contact.getCustomerID());
+
+        //Assert every format selects the same contacts, whichever field decides the filter
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File ndjsonAddressBook = new File("./queryInput.ndjson");
+        ndjsonAddressBook.deleteOnExit();
+        addressBookParser.convertAddressBook(jsonExpectedFileResult, ndjsonAddressBook);
+        File ndjsonResultFile = new File("./streamedQueryResult.ndjson");
+        ndjsonResultFile.deleteOnExit();
+        String[] expressions = {"Fax == null || CustomerID startsWith 'B'", "!(Region != null) && Country contains 'an'", "City endsWith 'n' || Phone == null"};
+        for(String expression : expressions){
+            ContactQuery query = new ContactQuery(expression, Arrays.asList("CustomerID", "Region"));
+            List<String> expected = null;
+            for(File addressBook : Arrays.asList(xmlExpectedFileResult, jsonExpectedFileResult, ndjsonAddressBook)){
+                addressBookParser.convertAddressBook(addressBook, ndjsonResultFile, query);
+                List<String> lines = Files.readAllLines(ndjsonResultFile.toPath(), StandardCharsets.UTF_8);
+                if(expected == null){
+                    expected = lines;
+                    assertFalse(expected.isEmpty(), expression);
+                }
+                assertEquals(expected, lines, expression + " on " + addressBook.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressBookServerTest {
+
+    private final File xmlExpectedFileResult = new File(getClass().getResource("/ad.xml").getFile());
+    private final File jsonExpectedFileResult = new File(getClass().getResource("/jsonExpectedOutput.json").getFile());
+
+    @TempDir
+    Path tempDirectory;
+
+    private AddressBookServer addressBookServer;
+    private AddressBookClient addressBookClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        addressBookServer = new AddressBookServer(new AddressBookParser(), 0, tempDirectory.resolve("tokens").toFile());
+        addressBookServer.start();
+        addressBookClient = new AddressBookClient(addressBookServer.getPort(), tempDirectory.resolve("tokens").toFile());
+    }
+
+    @AfterEach
+    void tearDown() {
+        addressBookServer.stop();
+    }
+
+    @Test
+    void convertAndValidate() throws IOException {
+        File jsonResultFile = tempDirectory.resolve("result.json").toFile();
+        File xmlResultFile = tempDirectory.resolve("result.xml").toFile();
+
+        //Assert conversions through the server match the expected results byte for byte
+        addressBookClient.convert(xmlExpectedFileResult, jsonResultFile);
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+        addressBookClient.convert(jsonExpectedFileResult, xmlResultFile);
+        assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), Files.readAllBytes(xmlResultFile.toPath()));
+
+        assertTrue(addressBookClient.validate(xmlExpectedFileResult));
+        assertTrue(addressBookClient.validate(jsonExpectedFileResult));
+        File invalidXmlFile = new File(getClass().getResource("/invalidSchema.xml").getFile());
+        assertFalse(addressBookClient.validate(invalidXmlFile));
+
+        //Assert an invalid address book is reported as such, and other failures as IOExceptions
+        assertThrows(InvalidAddressBookException.class, () -> addressBookClient.convert(invalidXmlFile, jsonResultFile));
+        assertThrows(IOException.class, () -> addressBookClient.convert(new File("./doesNotExist.xml"), jsonResultFile));
+        assertThrows(IOException.class, () -> addressBookClient.convert(xmlExpectedFileResult, tempDirectory.resolve("result.txt").toFile()));
+    }
+
+    @Test
+    void requestsWithoutTokenAreRejected() throws IOException {
+        File jsonResultFile = tempDirectory.resolve("result.json").toFile();
+        String convertPath = "/convert?input=" + xmlExpectedFileResult.getAbsolutePath() + "&output=" + jsonResultFile.getAbsolutePath();
+        String localHost = "127.0.0.1:" + addressBookServer.getPort();
+        String token = new String(Files.readAllBytes(addressBookServer.getTokenFile().toPath()), StandardCharsets.US_ASCII);
+
+        //Assert the token file can only be read by the user running the server
+        if(FileSystems.getDefault().supportedFileAttributeViews().contains("posix")){
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(addressBookServer.getTokenFile().toPath())));
+        }
+
+        //Assert a request is only served with the right token, and not when sent by a page from another origin or host
+        assertEquals(403, post(convertPath, localHost, null, null));
+        assertEquals(403, post(convertPath, localHost, "wrong-token", null));
+        assertEquals(403, post(convertPath, localHost, token, "http://evil.example"));
+        assertEquals(403, post(convertPath, "evil.example:" + addressBookServer.getPort(), token, null));
+        assertEquals(403, post("/shutdown", localHost, null, null));
+        assertFalse(jsonResultFile.exists());
+        assertEquals(200, post(convertPath, "localhost:" + addressBookServer.getPort(), token, "http://localhost:" + addressBookServer.getPort()));
+        assertTrue(jsonResultFile.exists());
+
+        //Assert the token file is removed once the server stops
+        addressBookServer.stop();
+        assertFalse(addressBookServer.getTokenFile().exists());
+    }
+
+    /**
+     * Method to send a POST request over a plain socket, as HttpURLConnection does not allow setting the Host and Origin headers.
+     * @return int: the status code of the response
+     */
+    private int post(String pathAndQuery, String host, String token, String origin) throws IOException {
+        try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), addressBookServer.getPort())){
+            StringBuilder request = new StringBuilder("POST " + pathAndQuery + " HTTP/1.1\r\nHost: " + host + "\r\nContent-Length: 0\r\nConnection: close\r\n");
+            if(token != null){
+                request.append(AddressBookServer.TOKEN_HEADER).append(": ").append(token).append("\r\n");
+            }
+            if(origin != null){
+                request.append("Origin: ").append(origin).append("\r\n");
+            }
+            socket.getOutputStream().write(request.append("\r\n").toString().getBytes(StandardCharsets.UTF_8));
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+            return Integer.parseInt(statusLine.split(" ")[1]);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchConverterTest {
+
+    private final File xmlExpectedFileResult = new File(getClass().getResource("/ad.xml").getFile());
+    private final File jsonExpectedFileResult = new File(getClass().getResource("/jsonExpectedOutput.json").getFile());
+    private final File invalidXmlFile = new File(getClass().getResource("/invalidSchema.xml").getFile());
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void convert() throws IOException {
+        //setup: an input directory with two valid address books, one invalid one and a file that is not an address book
+        Path inputDirectory = Files.createDirectory(tempDirectory.resolve("input"));
+        Files.copy(xmlExpectedFileResult.toPath(), inputDirectory.resolve("first.xml"));
+        Files.copy(jsonExpectedFileResult.toPath(), inputDirectory.resolve("second.json"));
+        Files.copy(invalidXmlFile.toPath(), inputDirectory.resolve("third.xml"));
+        Files.write(inputDirectory.resolve("notes.txt"), new byte[0]);
+        File outputDirectory = tempDirectory.resolve("output").toFile();
+
+        List<File> inputFiles = BatchConverter.findAddressBooks(inputDirectory.toString());
+        assertEquals(3, inputFiles.size());
+        assertEquals(2, BatchConverter.findAddressBooks(inputDirectory.resolve("*.xml").toString()).size());
+
+        BatchReport batchReport = new BatchConverter(new AddressBookParser(), 2).convert(inputFiles, outputDirectory);
+
+        //Assert every file has a result in input order, and only the invalid address book failed
+        assertEquals(3, batchReport.getFileResults().size());
+        assertEquals(2, batchReport.getSuccessCount());
+        assertEquals(1, batchReport.getFailureCount());
+        assertEquals(inputFiles.get(2), batchReport.getFileResults().get(2).getInputFile());
+        assertFalse(batchReport.getFileResults().get(2).isSuccess());
+
+        //Assert the outputs match those of converting each file on its own
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(new File(outputDirectory, "first.json").toPath()));
+        assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), Files.readAllBytes(new File(outputDirectory, "second.xml").toPath()));
+
+        //Assert IO exception is thrown when the input directory does not exist
+        assertThrows(IOException.class, () -> BatchConverter.findAddressBooks(tempDirectory.resolve("missing").resolve("*.xml").toString()));
+    }
+
+    @Test
+    void convertWithVirtualThreads() throws IOException {
+        Path inputDirectory = Files.createDirectory(tempDirectory.resolve("input"));
+        for(int i = 0; i < 50; i++){
+            Files.copy(xmlExpectedFileResult.toPath(), inputDirectory.resolve("addressBook" + i + ".xml"));
+        }
+        File outputDirectory = tempDirectory.resolve("output").toFile();
+
+        //Virtual threads are used on Java 21 and later, otherwise this falls back to a pool of platform threads
+        BatchConverter batchConverter = new BatchConverter(new AddressBookParser(), 8, BatchConverter.ExecutionMode.VIRTUAL_THREADS);
+        BatchReport batchReport = batchConverter.convert(BatchConverter.findAddressBooks(inputDirectory.toString()), outputDirectory);
+
+        assertEquals(50, batchReport.getSuccessCount());
+        byte[] jsonExpectedFileResultBytes = Files.readAllBytes(jsonExpectedFileResult.toPath());
+        for(BatchReport.FileResult fileResult : batchReport.getFileResults()){
+            assertArrayEquals(jsonExpectedFileResultBytes, Files.readAllBytes(fileResult.getOutputFile().toPath()));
+        }
+    }
+
+    @Test
+    void convertIncrementally() throws IOException {
+        Path inputDirectory = Files.createDirectory(tempDirectory.resolve("input"));
+        Path xmlInputFile = Files.copy(xmlExpectedFileResult.toPath(), inputDirectory.resolve("first.xml"));
+        Path jsonInputFile = Files.copy(jsonExpectedFileResult.toPath(), inputDirectory.resolve("second.json"));
+        Files.copy(invalidXmlFile.toPath(), inputDirectory.resolve("third.xml"));
+        File outputDirectory = tempDirectory.resolve("output").toFile();
+        List<File> inputFiles = BatchConverter.findAddressBooks(inputDirectory.toString());
+        BatchConverter batchConverter = new BatchConverter(new AddressBookParser(), 2);
+
+        //Assert the first run converts everything and writes the manifest
+        BatchReport batchReport = batchConverter.convertIncrementally(inputFiles, outputDirectory);
+        assertEquals(2, batchReport.getSuccessCount());
+        assertEquals(0, batchReport.getUpToDateCount());
+        assertTrue(new File(outputDirectory, BatchManifest.FILE_NAME).isFile());
+
+        //Assert a rerun skips the unchanged files, but tries the failed file again
+        batchReport = batchConverter.convertIncrementally(inputFiles, outputDirectory);
+        assertEquals(2, batchReport.getUpToDateCount());
+        assertEquals(1, batchReport.getFailureCount());
+        assertEquals(0, batchReport.getConvertedBytes());
+        assertTrue(batchReport.getFileResults().get(0).isUpToDate());
+
+        //Assert a file that was touched without changing is hashed and still skipped, and a changed file is converted
+        assertTrue(xmlInputFile.toFile().setLastModified(xmlInputFile.toFile().lastModified() + 10000));
+        Files.write(jsonInputFile, Files.readAllLines(jsonExpectedFileResult.toPath()));
+        batchReport = batchConverter.convertIncrementally(inputFiles, outputDirectory);
+        assertTrue(batchReport.getFileResults().get(0).isUpToDate());
+        assertFalse(batchReport.getFileResults().get(1).isUpToDate());
+        assertTrue(batchReport.getFileResults().get(1).isSuccess());
+        assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), Files.readAllBytes(new File(outputDirectory, "second.xml").toPath()));
+
+        //Assert a missing output is written again
+        assertTrue(new File(outputDirectory, "first.json").delete());
+        batchReport = batchConverter.convertIncrementally(inputFiles, outputDirectory);
+        assertFalse(batchReport.getFileResults().get(0).isUpToDate());
+        assertTrue(batchReport.getFileResults().get(1).isUpToDate());
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(new File(outputDirectory, "first.json").toPath()));
+
+        //Assert a different schema (or output layout) converts and validates everything again
+        Path schemaFile = tempDirectory.resolve("ad.xsd");
+        Files.copy(new File(getClass().getResource("/ad.xsd").getFile()).toPath(), schemaFile);
+        Files.write(schemaFile, "<!-- edited -->".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        batchReport = new BatchConverter(new AddressBookParser(schemaFile.toFile()), 2).convertIncrementally(inputFiles, outputDirectory);
+        assertEquals(2, batchReport.getSuccessCount());
+        assertEquals(0, batchReport.getUpToDateCount());
+        batchReport = new BatchConverter(new AddressBookParser(AddressBookParser.OutputLayout.COMPACT), 2).convertIncrementally(inputFiles, outputDirectory);
+        assertEquals(0, batchReport.getUpToDateCount());
+    }
+}
@@ -0,0 +1,85 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileInputStreamTest {
+
+    private final File xmlExpectedFileResult = new File(getClass().getResource("/ad.xml").getFile());
+    private final File jsonExpectedFileResult = new File(getClass().getResource("/jsonExpectedOutput.json").getFile());
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void readAcrossSegments() throws IOException {
+        byte[] expectedBytes = Files.readAllBytes(xmlExpectedFileResult.toPath());
+
+        //Assert reads that cross segment boundaries return every byte in order, for segments smaller and larger than the reads
+        for(int segmentSize : new int[]{1, 7, 1000, expectedBytes.length, Integer.MAX_VALUE}){
+            try(InputStream inputStream = new MappedFileInputStream(xmlExpectedFileResult, segmentSize)){
+                assertEquals(expectedBytes.length, inputStream.available());
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                outputStream.write(inputStream.read());
+                byte[] buffer = new byte[333];
+                int read;
+                while((read = inputStream.read(buffer)) != -1){
+                    outputStream.write(buffer, 0, read);
+                }
+                assertArrayEquals(expectedBytes, outputStream.toByteArray(), "Segment size " + segmentSize);
+                assertEquals(-1, inputStream.read());
+                assertEquals(0, inputStream.available());
+            }
+        }
+
+        //Assert skipping crosses segments too
+        try(InputStream inputStream = new MappedFileInputStream(xmlExpectedFileResult, 10)){
+            assertEquals(25, inputStream.skip(25));
+            assertEquals(expectedBytes[25] & 0xFF, inputStream.read());
+            assertEquals(expectedBytes.length - 26, inputStream.skip(Long.MAX_VALUE));
+            assertEquals(-1, inputStream.read());
+        }
+
+        //Assert an empty file is read as an empty stream
+        File emptyFile = Files.createFile(tempDirectory.resolve("empty.xml")).toFile();
+        try(InputStream inputStream = new MappedFileInputStream(emptyFile)){
+            assertEquals(-1, inputStream.read(new byte[10]));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileInputStream(xmlExpectedFileResult, 0));
+    }
+
+    @Test
+    void convertFromMappedSegments() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+
+        //Assert the parser reads a mapped file split into many segments the same as a regular stream
+        ByteArrayOutputStream jsonOutputStream = new ByteArrayOutputStream();
+        try(InputStream inputStream = new MappedFileInputStream(xmlExpectedFileResult, 64)){
+            addressBookParser.convertXmlAddressBookToJson(inputStream, jsonOutputStream);
+        }
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), jsonOutputStream.toByteArray());
+
+        //Assert files are only mapped when a parser is asked to, and then convert the same
+        try(InputStream inputStream = addressBookParser.openInputStream(xmlExpectedFileResult)){
+            assertTrue(inputStream instanceof FileInputStream);
+        }
+        AddressBookParser mappedAddressBookParser = new AddressBookParser(AddressBookParser.OutputLayout.INDENTED, AddressBookParser.InputMode.MEMORY_MAPPED);
+        try(InputStream inputStream = mappedAddressBookParser.openInputStream(xmlExpectedFileResult)){
+            assertTrue(inputStream instanceof MappedFileInputStream);
+        }
+        File jsonResultFile = tempDirectory.resolve("result.json").toFile();
+        mappedAddressBookParser.convertXmlAddressBookToJson(xmlExpectedFileResult, jsonResultFile);
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+    }
+}
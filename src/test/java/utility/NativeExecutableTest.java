@@ -0,0 +1,178 @@
+package utility;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the same byte-for-byte comparisons as AddressBookParserTest against the native executable, and goes through
+ * every code path the executable needs reflection or resources for: the binary and compressed formats, batches,
+ * and the server with its client.
+ * Skipped unless the executable is given in the 'native.executable' system property, which 'gradlew nativeTest' does.
+ * 'gradlew nativeImageConfig' instead runs the fat jar given in 'native.agent.jar' under GraalVM's tracing agent,
+ * writing the configuration each process uses to its own directory under 'native.agent.output'.
+ */
+class NativeExecutableTest {
+
+    private final File xmlExpectedFileResult = new File(getClass().getResource("/ad.xml").getFile());
+    private final File jsonExpectedFileResult = new File(getClass().getResource("/jsonExpectedOutput.json").getFile());
+
+    @TempDir
+    Path tempDirectory;
+
+    private String nativeExecutable;
+    private String agentJar;
+
+    @BeforeEach
+    void setUp() {
+        nativeExecutable = System.getProperty("native.executable");
+        agentJar = System.getProperty("native.agent.jar");
+        assumeTrue(nativeExecutable != null || agentJar != null, "No native executable given");
+    }
+
+    @Test
+    void convertXmlAddressBookToJson() throws IOException, InterruptedException {
+        File jsonResultFile = tempDirectory.resolve("result.json").toFile();
+
+        run(xmlExpectedFileResult.getAbsolutePath(), jsonResultFile.getAbsolutePath());
+        assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+    }
+
+    @Test
+    void convertJsonAddressBookToXml() throws IOException, InterruptedException {
+        File xmlResultFile = tempDirectory.resolve("result.xml").toFile();
+
+        run(jsonExpectedFileResult.getAbsolutePath(), xmlResultFile.getAbsolutePath());
+        assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), Files.readAllBytes(xmlResultFile.toPath()));
+    }
+
+    @Test
+    void validateAddressBook() throws IOException, InterruptedException {
+        assertTrue(run(xmlExpectedFileResult.getAbsolutePath(), "-v").contains("This document is a valid address book."));
+        assertTrue(run(jsonExpectedFileResult.getAbsolutePath(), "-v").contains("This document is a valid address book."));
+
+        //The schema and its error messages have to be available in the executable to reject an invalid address book
+        File invalidXmlFile = new File(getClass().getResource("/invalidSchema.xml").getFile());
+        assertTrue(run(invalidXmlFile.getAbsolutePath(), "-v").contains("This document is not a valid address book."));
+        File invalidContactFile = new File(getClass().getResource("/invalidContact.xml").getFile());
+        File jsonResultFile = tempDirectory.resolve("invalidContact.json").toFile();
+        assertTrue(run(invalidContactFile.getAbsolutePath(), jsonResultFile.getAbsolutePath()).contains("Contact #2"));
+    }
+
+    @Test
+    void convertBinaryAndCompressedAddressBooks() throws IOException, InterruptedException {
+        //Each format is written from the XML address book, then converted back to XML, which must match the original
+        for(String fileName : Arrays.asList("ad.smile", "ad.cbor", "ad.ndjson.zst", "ad.json.gz")){
+            File convertedFile = tempDirectory.resolve(fileName).toFile();
+            File xmlResultFile = tempDirectory.resolve(fileName + ".xml").toFile();
+
+            run(xmlExpectedFileResult.getAbsolutePath(), convertedFile.getAbsolutePath());
+            run(convertedFile.getAbsolutePath(), xmlResultFile.getAbsolutePath());
+            assertArrayEquals(Files.readAllBytes(xmlExpectedFileResult.toPath()), Files.readAllBytes(xmlResultFile.toPath()), fileName);
+        }
+    }
+
+    @Test
+    void convertBatch() throws IOException, InterruptedException {
+        File inputDirectory = tempDirectory.resolve("input").toFile();
+        File outputDirectory = tempDirectory.resolve("output").toFile();
+        assertTrue(inputDirectory.mkdir());
+        Files.copy(xmlExpectedFileResult.toPath(), inputDirectory.toPath().resolve("ad.xml"));
+        Files.copy(jsonExpectedFileResult.toPath(), inputDirectory.toPath().resolve("ad.json"));
+
+        //Virtual threads are looked up reflectively, and a plain pool is used where they are not supported
+        String output = run("--batch", inputDirectory.getAbsolutePath(), outputDirectory.getAbsolutePath(), "2", "--virtual-threads");
+        assertTrue(output.contains("Converted 2 of 2 address books (0 failed"), output);
+    }
+
+    @Test
+    void convertWithServer() throws IOException, InterruptedException {
+        //The server writes its token file under user.home, which is kept in the temporary directory
+        List<String> vmOptions = Collections.singletonList("-Duser.home=" + tempDirectory.toAbsolutePath());
+        Process server = new ProcessBuilder(command(vmOptions, "--server", "0")).redirectErrorStream(true).start();
+        try {
+            BufferedReader serverOutput = new BufferedReader(new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+            String listeningPrefix = "Address book server listening on 127.0.0.1:";
+            String line;
+            while((line = serverOutput.readLine()) != null && !line.startsWith(listeningPrefix)){
+                continue;
+            }
+            assertNotNull(line, "The server did not start");
+            String port = line.substring(listeningPrefix.length());
+
+            File jsonResultFile = tempDirectory.resolve("server.json").toFile();
+            run(vmOptions, "--client", port, xmlExpectedFileResult.getAbsolutePath(), jsonResultFile.getAbsolutePath());
+            assertArrayEquals(Files.readAllBytes(jsonExpectedFileResult.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+            assertTrue(run(vmOptions, "--client", port, xmlExpectedFileResult.getAbsolutePath(), "--validate").contains("This document is a valid address book."));
+            run(vmOptions, "--client", port, "--shutdown");
+            assertTrue(server.waitFor(30, TimeUnit.SECONDS), "The server did not shut down");
+        } finally {
+            server.destroy();
+        }
+    }
+
+    /**
+     * Method to build the command that runs the native executable, or the fat jar under the tracing agent.
+     * @param vmOptions List<String>: system properties to run with, e.g. "-Duser.home=..."
+     * @param args String...: command line arguments for the executable
+     * @return List<String>: the command to start
+     */
+    private List<String> command(List<String> vmOptions, String... args){
+        List<String> command = new ArrayList<>();
+        if(nativeExecutable != null){
+            command.add(nativeExecutable);
+            command.addAll(vmOptions);
+        }
+        else{
+            command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+            command.add("-agentlib:native-image-agent=config-output-dir=" + System.getProperty("native.agent.output") + File.separator + "{pid}");
+            command.addAll(vmOptions);
+            command.add("-jar");
+            command.add(agentJar);
+        }
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    private String run(String... args) throws IOException, InterruptedException {
+        return run(Collections.emptyList(), args);
+    }
+
+    /**
+     * Method to run the native executable with the given arguments and return what it printed.
+     * @param vmOptions List<String>: system properties to run with, e.g. "-Duser.home=..."
+     * @param args String...: command line arguments for the executable
+     * @return String: standard output and standard error of the executable
+     */
+    private String run(List<String> vmOptions, String... args) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command(vmOptions, args)).redirectErrorStream(true).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try(InputStream inputStream = process.getInputStream()){
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = inputStream.read(buffer)) != -1){
+                output.write(buffer, 0, read);
+            }
+        }
+        assertEquals(0, process.waitFor());
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
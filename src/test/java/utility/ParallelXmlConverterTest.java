@@ -0,0 +1,110 @@
+package utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelXmlConverterTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void convertMatchesSequentialConversion() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File xmlAddressBook = tempDirectory.resolve("addressBook.xml").toFile();
+        new AddressBookGenerator(addressBookParser, 3, 0.5, true).generate(xmlAddressBook, 2000);
+
+        File expectedJsonFile = tempDirectory.resolve("expected.json").toFile();
+        addressBookParser.convertXmlAddressBookToJson(xmlAddressBook, expectedJsonFile);
+        byte[] expectedJsonBytes = Files.readAllBytes(expectedJsonFile.toPath());
+
+        //Assert splitting into many small chunks, on one or several threads, gives exactly the sequential result
+        for(int parallelism : new int[]{1, 4}){
+            File jsonResultFile = tempDirectory.resolve("result" + parallelism + ".json").toFile();
+            new ParallelXmlConverter(addressBookParser, parallelism, 16 * 1024).convert(xmlAddressBook, jsonResultFile);
+            assertArrayEquals(expectedJsonBytes, Files.readAllBytes(jsonResultFile.toPath()));
+        }
+
+        //Assert a file smaller than two chunks is still converted
+        File jsonResultFile = tempDirectory.resolve("result.json").toFile();
+        new ParallelXmlConverter(addressBookParser, 4).convert(xmlAddressBook, jsonResultFile);
+        assertArrayEquals(expectedJsonBytes, Files.readAllBytes(jsonResultFile.toPath()));
+    }
+
+    @Test
+    void convertedChunksMatchSequentialConversionInEveryFormat() throws IOException {
+        //Assert the chunks written on the pool join up to exactly the sequential output, in both layouts and every format
+        for(AddressBookParser.OutputLayout outputLayout : AddressBookParser.OutputLayout.values()){
+            AddressBookParser addressBookParser = new AddressBookParser(outputLayout);
+            File xmlAddressBook = tempDirectory.resolve(outputLayout + ".xml").toFile();
+            new AddressBookGenerator(addressBookParser, 9, 0.5, true).generate(xmlAddressBook, 1000);
+            for(String outputFileName : new String[]{"result.json", "result.xml", "result.ndjson", "result.cbor", "result.smile", "result.json.gz"}){
+                File expectedFile = tempDirectory.resolve("expected-" + outputFileName).toFile();
+                File resultFile = tempDirectory.resolve(outputFileName).toFile();
+                addressBookParser.convertAddressBook(xmlAddressBook, expectedFile);
+                new ParallelXmlConverter(addressBookParser, 3, 4 * 1024).convert(xmlAddressBook, resultFile);
+                assertArrayEquals(Files.readAllBytes(expectedFile.toPath()), Files.readAllBytes(resultFile.toPath()), outputLayout + " " + outputFileName);
+            }
+        }
+    }
+
+    @Test
+    void declaredEncodingIsRespected() throws IOException {
+        //Assert only UTF-8 and US-ASCII files are split, however the XML declaration is written
+        assertTrue(ParallelXmlConverter.isUtf8(bytes("<AddressBook>")));
+        assertTrue(ParallelXmlConverter.isUtf8(bytes("\uFEFF<?xml version=\"1.0\"?><AddressBook>")));
+        assertTrue(ParallelXmlConverter.isUtf8(bytes("<?xml version='1.0' encoding='utf-8'?><AddressBook>")));
+        assertTrue(ParallelXmlConverter.isUtf8(bytes("<?xml version=\"1.0\"\n  encoding = \"US-ASCII\" ?><AddressBook>")));
+        assertFalse(ParallelXmlConverter.isUtf8(bytes("<?xml version=\"1.0\" encoding = 'ISO-8859-1'?><AddressBook>")));
+        assertFalse(ParallelXmlConverter.isUtf8(bytes("<?xml version=\"1.0\" encoding\t=\"windows-1252\"?><AddressBook>")));
+        assertFalse(ParallelXmlConverter.isUtf8(bytes("<?xml version=\"1.0\" encoding=UTF-8?><AddressBook>")));
+        assertFalse(ParallelXmlConverter.isUtf8("<?xml version=\"1.0\"?><AddressBook>".getBytes(StandardCharsets.UTF_16)));
+
+        //Assert an ISO-8859-1 address book with non-ASCII characters is converted the same as sequentially
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File utf8AddressBook = tempDirectory.resolve("utf8.xml").toFile();
+        new AddressBookGenerator(addressBookParser, 7, 0.5, false).generate(utf8AddressBook, 500);
+        String xml = new String(Files.readAllBytes(utf8AddressBook.toPath()), StandardCharsets.UTF_8).replace("<City>", "<City>M\u00FCnchen ");
+        File latin1AddressBook = tempDirectory.resolve("latin1.xml").toFile();
+        Files.write(latin1AddressBook.toPath(), ("<?xml version=\"1.0\" encoding = 'ISO-8859-1'?>\n" + xml).getBytes(StandardCharsets.ISO_8859_1));
+
+        File expectedJsonFile = tempDirectory.resolve("expected.json").toFile();
+        File jsonResultFile = tempDirectory.resolve("result.json").toFile();
+        addressBookParser.convertXmlAddressBookToJson(latin1AddressBook, expectedJsonFile);
+        new ParallelXmlConverter(addressBookParser, 4, 8 * 1024).convert(latin1AddressBook, jsonResultFile);
+        assertArrayEquals(Files.readAllBytes(expectedJsonFile.toPath()), Files.readAllBytes(jsonResultFile.toPath()));
+        assertTrue(new String(Files.readAllBytes(jsonResultFile.toPath()), StandardCharsets.UTF_8).contains("M\u00FCnchen"));
+    }
+
+    private static byte[] bytes(String head){
+        return head.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void invalidAddressBookIsReported() throws IOException {
+        AddressBookParser addressBookParser = new AddressBookParser();
+        File xmlAddressBook = tempDirectory.resolve("addressBook.xml").toFile();
+        new AddressBookGenerator(addressBookParser, 5, 0.5, false).generate(xmlAddressBook, 500);
+
+        //Remove the Email of the 300th contact, which ends up in the middle of one of the chunks
+        String xml = new String(Files.readAllBytes(xmlAddressBook.toPath()), StandardCharsets.UTF_8);
+        String invalidXml = xml.replaceFirst("<Email>contact299@example.com</Email>", "");
+        assertNotEquals(xml, invalidXml);
+        Files.write(xmlAddressBook.toPath(), invalidXml.getBytes(StandardCharsets.UTF_8));
+
+        File jsonResultFile = tempDirectory.resolve("result.json").toFile();
+        InvalidAddressBookException exception = assertThrows(InvalidAddressBookException.class,
+                () -> new ParallelXmlConverter(addressBookParser, 4, 8 * 1024).convert(xmlAddressBook, jsonResultFile));
+        assertTrue(exception.getMessage().contains("Contact #300"), exception.getMessage());
+
+        assertThrows(IOException.class, () -> new ParallelXmlConverter(addressBookParser, 4).convert(new File("./doesNotExist.xml"), jsonResultFile));
+    }
+}
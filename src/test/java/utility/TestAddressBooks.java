@@ -0,0 +1,50 @@
+package utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers shared by the tests that set up generated address books and compare contacts.
+ */
+final class TestAddressBooks {
+
+    private TestAddressBooks(){
+    }
+
+    /**
+     * Method to generate a synthetic address book and read its contacts back.
+     * @param addressBookParser AddressBookParser: parser used to write and read the address book
+     * @param addressBook File: address book to generate, in the format of its extension
+     * @param seed long: seed of the generator
+     * @param optionalFieldDensity double: share of contacts that have each optional field
+     * @param unicodeHeavy boolean: whether the fields use many multi-byte characters
+     * @param contactCount int: number of contacts to generate
+     * @return List of Contact: the generated contacts, in order
+     * @throws IOException if the address book could not be written or read
+     */
+    static List<Contact> generate(AddressBookParser addressBookParser, File addressBook, long seed, double optionalFieldDensity,
+                                  boolean unicodeHeavy, int contactCount) throws IOException {
+        new AddressBookGenerator(addressBookParser, seed, optionalFieldDensity, unicodeHeavy).generate(addressBook, contactCount);
+        return readContacts(addressBookParser, addressBook);
+    }
+
+    /**
+     * Method to read every contact of an address book into memory.
+     * @param addressBookParser AddressBookParser: parser used to read the address book
+     * @param addressBook File: address book to read, in the format of its extension
+     * @return List of Contact: the contacts, in order
+     * @throws IOException if the address book could not be read or is invalid
+     */
+    static List<Contact> readContacts(AddressBookParser addressBookParser, File addressBook) throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        try(ContactReader contactReader = addressBookParser.newContactReader(addressBook)){
+            Contact contact;
+            while((contact = contactReader.nextContact()) != null){
+                contacts.add(contact);
+            }
+        }
+        return contacts;
+    }
+}